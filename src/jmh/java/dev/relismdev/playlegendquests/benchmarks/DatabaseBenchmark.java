@@ -0,0 +1,144 @@
+package dev.relismdev.playlegendquests.benchmarks;
+
+import dev.relismdev.playlegendquests.models.Objective;
+import dev.relismdev.playlegendquests.models.ProgressDelta;
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.models.User;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import dev.relismdev.playlegendquests.utils.ItemUtils;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the queries of the storage layer against an in-memory database of the H2 backend,
+ * which runs the same SQL as the MySQL backend.
+ * The numbers leave out the network round trips of a real server, so they compare changes to the queries
+ * and to the code around them rather than predicting production latencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1";
+    private static final int QUESTS = 1000;
+    private static final int BATCH_SIZE = 100; // Players per batched write
+    private final List<Quest> quests = new ArrayList<>(); // Stored quests
+    private final List<User> users = new ArrayList<>(); // Stored users
+    private int next; // Rotates through the stored quests
+
+    @Setup
+    public void setup() throws SQLException {
+        MockBukkit.mock();
+        ItemUtils.setCodec("legacy");
+        DatabaseWrapper.init(new H2Backend(JDBC_URL));
+        for (int i = 0; i < QUESTS; i++) {
+            Quest quest = newQuest("Quest " + i);
+            DatabaseWrapper.createQuest(quest);
+            quests.add(quest);
+        }
+        List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            uuids.add(UUID.randomUUID());
+        }
+        users.addAll(DatabaseWrapper.provisionUsers(uuids, "en_US").values());
+    }
+
+    @TearDown
+    public void tearDown() {
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public Quest getQuestById() throws SQLException {
+        return DatabaseWrapper.getQuest(nextQuest().getId());
+    }
+
+    @Benchmark
+    public Quest getQuestByName() throws SQLException {
+        return DatabaseWrapper.getQuest(nextQuest().getName());
+    }
+
+    @Benchmark
+    public boolean updateQuest() throws SQLException {
+        Quest quest = nextQuest();
+        quest.setReward_coins(quest.getReward_coins() + 1);
+        return DatabaseWrapper.updateQuest(quest);
+    }
+
+    @Benchmark
+    public boolean createAndDeleteQuest() throws SQLException {
+        Quest quest = newQuest("Temporary quest");
+        DatabaseWrapper.createQuest(quest);
+        return DatabaseWrapper.deleteQuest(quest.getId());
+    }
+
+    @Benchmark
+    public int updateUsers() throws SQLException {
+        Map<User, Long> changes = new HashMap<>();
+        for (User user : users) {
+            user.addBalance(1);
+            changes.put(user, user.drainBalanceChange());
+        }
+        return DatabaseWrapper.updateUsers(changes);
+    }
+
+    @Benchmark
+    public void writeProgressDeltas() throws SQLException {
+        int questId = nextQuest().getId();
+        List<ProgressDelta> deltas = new ArrayList<>(users.size());
+        for (User user : users) {
+            ProgressDelta delta = new ProgressDelta(user.getUuid(), questId);
+            delta.add(1, false);
+            deltas.add(delta);
+        }
+        DatabaseWrapper.writeProgressDeltas(deltas);
+    }
+
+    /**
+     * Retrieves the next stored quest, rotating through all of them.
+     *
+     * @return A stored quest.
+     */
+    private Quest nextQuest() {
+        next = (next + 1) % quests.size();
+        return quests.get(next);
+    }
+
+    /**
+     * Builds a quest with an objective and a reward item, like the ones created in game.
+     *
+     * @param name The name of the quest.
+     * @return The new quest, not stored yet.
+     */
+    private static Quest newQuest(String name) {
+        Quest quest = new Quest(name, "Benchmark quest", 100, new ItemStack(Material.DIAMOND, 3));
+        quest.setObjective(Objective.parse("break stone 64"));
+        return quest;
+    }
+}
@@ -0,0 +1,114 @@
+package dev.relismdev.playlegendquests.benchmarks;
+
+import dev.relismdev.playlegendquests.utils.ItemUtils;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.bukkit.Material;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the serialization of reward items with each codec, as done whenever a quest is stored or loaded.
+ * The size of the encoded items is printed at the end of each trial, next to the timings.
+ * <p>
+ * The Paper codec relies on the item serializer of a real server, which MockBukkit does not implement:
+ * its trials fail at setup unless the benchmarks run against a Paper server on the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemUtilsBenchmark {
+
+    private static final int QUEST_ID = 1;
+
+    @Param({"legacy", "paper"})
+    private String codec;
+
+    @Param({"plain", "enchanted"})
+    private String item;
+
+    private ItemStack itemStack; // Item serialized by the benchmarks
+    private String serialized; // Base64 form of the item
+    private byte[] encoded; // Codec-prefixed form of the item
+
+    @Setup
+    public void setup() {
+        MockBukkit.mock();
+        if (!ItemUtils.setCodec(codec)) {
+            throw new IllegalArgumentException("Unknown codec " + codec);
+        }
+        itemStack = "plain".equals(item) ? new ItemStack(Material.DIAMOND, 16) : enchantedItem();
+        serialized = ItemUtils.serializeItemStack(itemStack);
+        encoded = ItemUtils.encodeItemStack(itemStack);
+        if (encoded == null) {
+            throw new IllegalStateException("The " + codec + " codec cannot encode items in this environment, see the logged failure.");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("Encoded size with the " + codec + " codec, " + item + " item: " + encoded.length + " bytes");
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public String serializeItemStack() {
+        return ItemUtils.serializeItemStack(itemStack);
+    }
+
+    @Benchmark
+    public ItemStack deserializeItemStack() {
+        return ItemUtils.deserializeItemStack(serialized);
+    }
+
+    @Benchmark
+    public byte[] encodeItemStack() {
+        return ItemUtils.encodeItemStack(itemStack);
+    }
+
+    @Benchmark
+    public ItemStack decodeItemStack() {
+        return ItemUtils.decodeItemStack(encoded);
+    }
+
+    // Repeated loads of an unchanged quest item, served from the decoded item cache
+    @Benchmark
+    public ItemStack decodeQuestItem() {
+        return ItemUtils.decodeQuestItem(QUEST_ID, encoded);
+    }
+
+    /**
+     * Creates a reward item carrying the metadata quest rewards typically have.
+     *
+     * @return A named sword with lore and enchantments.
+     */
+    private static ItemStack enchantedItem() {
+        ItemStack sword = new ItemStack(Material.DIAMOND_SWORD);
+        ItemMeta meta = sword.getItemMeta();
+        meta.setDisplayName("Quest reward");
+        meta.setLore(Arrays.asList("Awarded for completing a quest", "Bound to its first owner"));
+        meta.addEnchant(Enchantment.DAMAGE_ALL, 5, true);
+        meta.addEnchant(Enchantment.DURABILITY, 3, true);
+        sword.setItemMeta(meta);
+        return sword;
+    }
+}
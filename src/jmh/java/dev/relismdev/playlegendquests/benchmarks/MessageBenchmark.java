@@ -0,0 +1,159 @@
+package dev.relismdev.playlegendquests.benchmarks;
+
+import dev.relismdev.playlegendquests.utils.LocaleManager;
+import dev.relismdev.playlegendquests.utils.MessageTemplate;
+import dev.relismdev.playlegendquests.utils.Placeholders;
+import dev.relismdev.playlegendquests.utils.msg;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.MockPlugin;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the messaging path: color code translation, locale lookups, the rendering of compiled messages,
+ * and sending messages with and without placeholders, their values memoized or not.
+ * PlaceholderAPI needs a running server, so placeholders are replaced by a stand-in parser: the numbers show what the
+ * messaging pipeline adds around PlaceholderAPI and how often it is called, not the cost of PlaceholderAPI itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageBenchmark {
+
+    private static final String PLAIN_TEXT = "Started the quest Gatherer: collect OAK_LOG 64";
+    private static final String LEGACY_TEXT = "&aStarted the quest &eGatherer&a: &7collect OAK_LOG 64";
+    private static final String HEX_TEXT = "&#ff6961Failed to load quest progress of &#fdfd96Notch&#ff6961, please try again";
+    private static final String PLACEHOLDER_TEXT = "&aWelcome back &e%player_name%&a, you reached level &e%player_level%&a!";
+    private static final String PLACEHOLDER_KEY = "benchmark_placeholders"; // Locale message added for the benchmarks
+    private Player player; // Receiver of the rendered messages, discarding them
+    private MessageTemplate template; // Compiled message with positional arguments
+
+    @Setup
+    public void setup() throws IOException {
+        ServerMock server = MockBukkit.mock();
+        MockPlugin plugin = MockBukkit.createMockPlugin();
+        LocaleManager.init(plugin);
+        // The bundled messages have no placeholders, add one that has
+        File localeFile = new File(plugin.getDataFolder(), "locale/" + LocaleManager.getDefaultLocale() + ".yml");
+        YamlConfiguration locale = YamlConfiguration.loadConfiguration(localeFile);
+        locale.set(PLACEHOLDER_KEY, PLACEHOLDER_TEXT + " Active quest: {0}");
+        locale.save(localeFile);
+        LocaleManager.reloadLocales(plugin).join();
+
+        PlayerMock receiver = new PlayerMock(server, "Notch") {
+            @Override
+            public void sendMessage(String message) {
+                // Discarded, so the benchmarks don't fill the message queue of the mock
+            }
+        };
+        server.addPlayer(receiver);
+        player = receiver;
+        template = LocaleManager.getTemplate(LocaleManager.getDefaultLocale(), "quest_started");
+        Placeholders.init(MessageBenchmark::parsePlaceholders, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public String translatePlain() {
+        return msg.translateColorCodes(PLAIN_TEXT);
+    }
+
+    @Benchmark
+    public String translateLegacy() {
+        return msg.translateColorCodes(LEGACY_TEXT);
+    }
+
+    @Benchmark
+    public String translateHex() {
+        return msg.translateColorCodes(HEX_TEXT);
+    }
+
+    @Benchmark
+    public String getMessage() {
+        return LocaleManager.getMessage("en_US", "quest_started");
+    }
+
+    // Unknown locales fall back to the default locale
+    @Benchmark
+    public String getMessageFallback() {
+        return LocaleManager.getMessage("xx_XX", "quest_started");
+    }
+
+    @Benchmark
+    public String renderTemplate() {
+        return template.render(player, "Gatherer", "collect OAK_LOG 64");
+    }
+
+    // Text without '%' never reaches the placeholder parser
+    @Benchmark
+    public void send() {
+        msg.send(player, LEGACY_TEXT);
+    }
+
+    // Raw text is parsed as a whole on every send, memoization only applies to compiled messages
+    @Benchmark
+    public void sendWithPlaceholders() {
+        msg.send(player, PLACEHOLDER_TEXT);
+    }
+
+    @Benchmark
+    public void sendLocale() {
+        msg.sendLocale(player, "quest_started", "Gatherer", "collect OAK_LOG 64");
+    }
+
+    @Benchmark
+    public void sendLocaleWithPlaceholders(Memoization memoization) {
+        msg.sendLocale(player, PLACEHOLDER_KEY, "Gatherer");
+    }
+
+    /**
+     * Memoizes the placeholder values resolved for compiled messages, or not when the time to live is 0.
+     */
+    @State(Scope.Benchmark)
+    public static class Memoization {
+
+        @Param({"0", "60000"})
+        private long ttlMillis;
+
+        @Setup
+        public void setup(MessageBenchmark benchmark) {
+            Placeholders.init(MessageBenchmark::parsePlaceholders, ttlMillis); // Takes the benchmark state, so it runs after its setup
+        }
+    }
+
+    /**
+     * Stands in for PlaceholderAPI, replacing the placeholders used by the benchmarks.
+     *
+     * @param player The player the placeholders are resolved for.
+     * @param text   The text to parse.
+     * @return The text with its placeholders replaced.
+     */
+    private static String parsePlaceholders(Player player, String text) {
+        return text.replace("%player_name%", player.getName()).replace("%player_level%", Integer.toString(player.getLevel()));
+    }
+}
@@ -1,10 +1,23 @@
 package dev.relismdev.playlegendquests;
 
+import dev.relismdev.playlegendquests.cache.QuestCreationSessions;
+import dev.relismdev.playlegendquests.cache.QuestRegistry;
+import dev.relismdev.playlegendquests.cache.UserCache;
 import dev.relismdev.playlegendquests.commands.CommandManager;
 import dev.relismdev.playlegendquests.commands.subcommands.CreateHandler;
+import dev.relismdev.playlegendquests.listeners.ObjectiveListener;
 import dev.relismdev.playlegendquests.listeners.PlayerJoinListener;
+import dev.relismdev.playlegendquests.listeners.PlayerQuitListener;
+import dev.relismdev.playlegendquests.progress.ProgressTracker;
+import dev.relismdev.playlegendquests.progress.ProgressWriter;
+import dev.relismdev.playlegendquests.progress.RewardService;
+import dev.relismdev.playlegendquests.storage.DatabaseExecutor;
 import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.UserProvisioner;
+import dev.relismdev.playlegendquests.sync.InvalidationBus;
 import dev.relismdev.playlegendquests.utils.LocaleManager;
+import dev.relismdev.playlegendquests.utils.Placeholders;
+import dev.relismdev.playlegendquests.utils.msg;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
@@ -18,21 +31,53 @@ import org.bukkit.plugin.java.JavaPlugin;
  */
 public class Playlegendquests extends JavaPlugin {
     private static Playlegendquests plugin;
+    private boolean started; // Whether the services were started, false if the database could not be set up
 
     @Override
     public void onEnable() {
         plugin = this;
         saveDefaultConfig();
+        Placeholders.init(this);
         LocaleManager.init(this);
-        DatabaseWrapper.init(); // Initialize the Database
+        if (!DatabaseWrapper.init()) { // Initialize the Database
+            // Running against a schema that is not fully migrated could corrupt the stored data
+            msg.log("&#ff6961The database could not be set up, disabling the plugin.");
+            getServer().getPluginManager().disablePlugin(this);
+            return;
+        }
+        started = true;
+        DatabaseExecutor.init(); // Start the off-main-thread database executor
+        InvalidationBus.init(); // Share cache invalidations with the other servers, before the caches are loaded
+        QuestRegistry.load(); // Load the quest catalog into memory
+        UserProvisioner.init(); // Start batching the provisioning of joining players
+        UserCache.init(); // Start writing modified user profiles back in batches
+        QuestCreationSessions.init(); // Start expiring idle quest creation wizards
+        ProgressWriter.init(); // Start writing quest progress in batches
+        ProgressTracker.init(); // Track the quest progress of players already online
+        RewardService.init(); // Pay out the rewards of completed quests
         getCommand("quests").setExecutor(new CommandManager()); // Register the quests "main" command
         Bukkit.getServer().getPluginManager().registerEvents(new CreateHandler(), this);
         getServer().getPluginManager().registerEvents(new PlayerJoinListener(), this);
+        getServer().getPluginManager().registerEvents(new PlayerQuitListener(), this);
+        getServer().getPluginManager().registerEvents(new ObjectiveListener(), this);
         // Plugin startup logic
     }
 
     @Override
     public void onDisable() {
+        if (!started) {
+            DatabaseWrapper.disable(); // Only the connection pool was started
+            return;
+        }
+        started = false;
+        UserProvisioner.shutdown();
+        QuestCreationSessions.shutdown();
+        RewardService.shutdown(); // Hand out or store the queued rewards, before the profiles are written
+        UserCache.shutdown(); // Write back modified user profiles
+        InvalidationBus.shutdown(); // Publish the last changes to the other servers
+        ProgressTracker.shutdown(); // Stop tracking quest progress
+        ProgressWriter.shutdown(); // Write the pending quest progress
+        DatabaseExecutor.shutdown(); // Let pending database tasks finish before closing connections
         DatabaseWrapper.disable();
     }
 
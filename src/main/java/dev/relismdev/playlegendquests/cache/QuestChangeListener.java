@@ -0,0 +1,16 @@
+package dev.relismdev.playlegendquests.cache;
+
+/**
+ * Listener notified whenever this server changes a quest of the {@link QuestRegistry},
+ * meant to let a cross-server transport tell the other servers to invalidate their copy.
+ */
+@FunctionalInterface
+public interface QuestChangeListener {
+
+    /**
+     * Called after a quest was created, updated or deleted on this server.
+     *
+     * @param questId The unique identifier of the changed quest.
+     */
+    void onQuestChanged(int questId);
+}
@@ -0,0 +1,117 @@
+package dev.relismdev.playlegendquests.cache;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.models.QuestCreationSession;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Store of the quest creation wizards in progress, keyed by player UUID.
+ * Sessions are safe to access from the async chat threads, expire after a configurable idle time,
+ * are dropped when their player quits, and their number is bounded.
+ */
+public class QuestCreationSessions {
+
+    private static Playlegendquests main = Playlegendquests.getPlugin();
+    private static final long DEFAULT_TIMEOUT_SECONDS = 300;
+    private static final int DEFAULT_MAX_SESSIONS = 100;
+    private static final long SWEEP_INTERVAL_TICKS = 20 * 30; // 30 seconds
+    private static final Map<UUID, QuestCreationSession> sessions = new ConcurrentHashMap<>();
+    private static BukkitTask sweepTask;
+    private static long timeoutMillis;
+    private static int maxSessions;
+
+    /**
+     * Reads the idle timeout and the session limit from the plugin configuration
+     * and starts the timer expiring idle sessions.
+     */
+    public static void init() {
+        timeoutMillis = Math.max(1, main.getConfig().getLong("quest_creation_timeout_seconds", DEFAULT_TIMEOUT_SECONDS)) * 1000;
+        maxSessions = Math.max(1, main.getConfig().getInt("quest_creation_max_sessions", DEFAULT_MAX_SESSIONS));
+        sweepTask = Bukkit.getScheduler().runTaskTimer(main, QuestCreationSessions::expireIdle, SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+    }
+
+    /**
+     * Starts a new session for a player, replacing the one they may already have.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The new session, or null if the maximum number of sessions is reached.
+     */
+    public static QuestCreationSession start(UUID uuid) {
+        if (!sessions.containsKey(uuid) && sessions.size() >= maxSessions) {
+            return null;
+        }
+        QuestCreationSession session = new QuestCreationSession(uuid);
+        sessions.put(uuid, session);
+        return session;
+    }
+
+    /**
+     * Retrieves the session of a player and records the interaction, postponing its expiry.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The session of the player, or null if they are not creating a quest.
+     */
+    public static QuestCreationSession get(UUID uuid) {
+        QuestCreationSession session = sessions.get(uuid);
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    /**
+     * Ends the session of a player, if it is still the current one.
+     *
+     * @param session The session to end.
+     * @return True if the session was ended by this call; otherwise, false.
+     */
+    public static boolean end(QuestCreationSession session) {
+        return sessions.remove(session.getUuid(), session);
+    }
+
+    /**
+     * Ends the session of a player, whatever its state, typically once they leave.
+     *
+     * @param uuid The unique identifier of the player.
+     */
+    public static void end(UUID uuid) {
+        sessions.remove(uuid);
+    }
+
+    /**
+     * Stops the expiry timer and drops every session.
+     */
+    public static void shutdown() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+        sessions.clear();
+    }
+
+    /**
+     * Ends the sessions idle for longer than the timeout, letting their players know.
+     */
+    private static void expireIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<QuestCreationSession> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            QuestCreationSession session = iterator.next();
+            if (session.isExpired(now, timeoutMillis)) {
+                iterator.remove();
+                Player player = Bukkit.getPlayer(session.getUuid());
+                if (player != null) {
+                    msg.sendLocale(player, "quest_creation_expired");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package dev.relismdev.playlegendquests.cache;
+
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.storage.DatabaseExecutor;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.utils.ItemUtils;
+import dev.relismdev.playlegendquests.utils.msg;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory catalog of every quest, loaded once at startup and kept in sync by the quest write paths.
+ * Quests are indexed by id and by case-insensitive name, so lookups never touch the database.
+ * The registry stores its own snapshots and only hands out copies, so callers are free to modify what they get.
+ */
+public class QuestRegistry {
+
+    private static final Map<Integer, Quest> questsById = new ConcurrentHashMap<>();
+    private static final Map<String, Quest> questsByName = new ConcurrentHashMap<>();
+    private static final List<QuestChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private static final Object writeLock = new Object(); // Keeps both indexes consistent for writers
+
+    /**
+     * Loads the whole quest catalog from the database, replacing the current content of the registry.
+     * This method blocks on the database.
+     *
+     * @return True if the catalog was loaded; otherwise, false.
+     */
+    public static boolean load() {
+        Map<Integer, Quest> loadedById = new HashMap<>();
+        try {
+            DatabaseWrapper.forEachQuest(quest -> loadedById.put(quest.getId(), quest));
+        } catch (SQLException e) {
+            msg.log("&#ff6961Failed to load the quest catalog: &#fdfd96" + e.getMessage());
+            return false;
+        }
+        synchronized (writeLock) {
+            questsById.clear();
+            questsByName.clear();
+            for (Quest quest : loadedById.values()) {
+                questsById.put(quest.getId(), quest);
+                questsByName.put(nameKey(quest.getName()), quest);
+            }
+        }
+        msg.log("Loaded " + loadedById.size() + " quest(s).");
+        return true;
+    }
+
+    /**
+     * Retrieves a copy of the quest with the given name, ignoring case.
+     *
+     * @param name The name of the quest.
+     * @return A copy of the quest, or null if no quest has that name.
+     */
+    public static Quest getQuest(String name) {
+        Quest quest = name == null ? null : questsByName.get(nameKey(name));
+        return quest == null ? null : quest.copy();
+    }
+
+    /**
+     * Retrieves a copy of the quest with the given id.
+     *
+     * @param id The unique identifier of the quest.
+     * @return A copy of the quest, or null if no quest has that id.
+     */
+    public static Quest getQuest(int id) {
+        Quest quest = questsById.get(id);
+        return quest == null ? null : quest.copy();
+    }
+
+    /**
+     * Retrieves the version of the quest with the given id, without copying it.
+     *
+     * @param id The unique identifier of the quest.
+     * @return The version of the quest, or -1 if no quest has that id.
+     */
+    public static long getVersion(int id) {
+        Quest quest = questsById.get(id);
+        return quest == null ? -1 : quest.getVersion();
+    }
+
+    /**
+     * Retrieves copies of every quest of the catalog.
+     *
+     * @return A list containing a copy of every quest.
+     */
+    public static List<Quest> getQuests() {
+        List<Quest> quests = new ArrayList<>(questsById.size());
+        for (Quest quest : questsById.values()) {
+            quests.add(quest.copy());
+        }
+        return quests;
+    }
+
+    /**
+     * Stores a snapshot of a created or updated quest and notifies the change listeners.
+     *
+     * @param quest The stored quest, which must have an id.
+     */
+    public static void put(Quest quest) {
+        store(quest.copy());
+        notifyChange(quest.getId());
+    }
+
+    /**
+     * Removes a deleted quest and notifies the change listeners.
+     *
+     * @param id The unique identifier of the deleted quest.
+     */
+    public static void remove(int id) {
+        evict(id);
+        notifyChange(id);
+    }
+
+    /**
+     * Invalidates a quest changed by another server by reloading it from the database in the background.
+     * The quest is removed from the registry if it no longer exists. Change listeners are not notified,
+     * as the change did not originate from this server.
+     *
+     * @param id The unique identifier of the changed quest.
+     * @return A future completed once the quest is reloaded.
+     */
+    public static CompletableFuture<Void> invalidate(int id) {
+        return DatabaseExecutor.supply(() -> {
+            try {
+                Quest quest = DatabaseWrapper.getQuest(id);
+                if (quest == null) {
+                    evict(id);
+                } else {
+                    store(quest);
+                }
+            } catch (SQLException e) {
+                msg.log("&#ff6961Failed to reload quest " + id + ": &#fdfd96" + e.getMessage());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Invalidates a quest changed by another server, unless the registry already holds that version or a newer one,
+     * such as when the same change is delivered twice.
+     *
+     * @param id      The unique identifier of the changed quest.
+     * @param version The version of the quest after the change, -1 if unknown, such as for a deletion.
+     * @return A future completed once the quest is reloaded, or already completed if it is up to date.
+     */
+    public static CompletableFuture<Void> invalidate(int id, long version) {
+        Quest quest = questsById.get(id);
+        if (quest != null && version >= 0 && quest.getVersion() >= version) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return invalidate(id);
+    }
+
+    /**
+     * Registers a listener notified whenever this server changes a quest.
+     *
+     * @param listener The listener to register.
+     */
+    public static void addChangeListener(QuestChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Stores a snapshot in both indexes, dropping the name entry of the previous version if it was renamed.
+     * A snapshot older than the stored one is dropped, such as a reload that read the quest
+     * before an update of this server was written and stored.
+     *
+     * @param snapshot The snapshot to store; it must not be handed out.
+     */
+    private static void store(Quest snapshot) {
+        synchronized (writeLock) {
+            Quest previous = questsById.get(snapshot.getId());
+            if (previous != null) {
+                if (previous.getVersion() > snapshot.getVersion()) {
+                    return;
+                }
+                questsByName.remove(nameKey(previous.getName()), previous);
+            }
+            questsById.put(snapshot.getId(), snapshot);
+            questsByName.put(nameKey(snapshot.getName()), snapshot);
+        }
+    }
+
+    /**
+     * Removes a quest from both indexes.
+     *
+     * @param id The unique identifier of the quest.
+     */
+    private static void evict(int id) {
+        synchronized (writeLock) {
+            Quest previous = questsById.remove(id);
+            if (previous != null) {
+                questsByName.remove(nameKey(previous.getName()), previous);
+            }
+        }
+        ItemUtils.evictQuestItem(id);
+    }
+
+    /**
+     * Notifies every change listener that a quest was changed on this server.
+     *
+     * @param id The unique identifier of the changed quest.
+     */
+    private static void notifyChange(int id) {
+        for (QuestChangeListener listener : changeListeners) {
+            listener.onQuestChanged(id);
+        }
+    }
+
+    /**
+     * Normalizes a quest name into its case-insensitive index key.
+     *
+     * @param name The quest name.
+     * @return The index key for the name.
+     */
+    private static String nameKey(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,335 @@
+package dev.relismdev.playlegendquests.cache;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.models.User;
+import dev.relismdev.playlegendquests.storage.DatabaseExecutor;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.UserProvisioner;
+import dev.relismdev.playlegendquests.sync.InvalidationBus;
+import dev.relismdev.playlegendquests.utils.Placeholders;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind cache of the User profiles of online players.
+ * Profiles are loaded once when a player logs in, read from memory afterwards,
+ * and modified profiles are written back in batches on a timer, on quit and on shutdown.
+ * Only the change made to a balance since the last write is stored, added to the stored balance,
+ * so writes never overwrite coins credited to the same player elsewhere.
+ * Writes are versioned: when another server updated a profile since it was loaded, the changes it made
+ * are folded into the cached balance on the next write, so caches on every server converge without a global lock.
+ * Written profiles are published on the {@link InvalidationBus}, and profiles changed by other servers are refreshed from the database.
+ * Writes and refreshes are serialized, so a refresh never mistakes a write of this server for a change made elsewhere.
+ * <p>
+ * A player relogging before their previous session quit holds two sessions at once: every session loading a profile
+ * shares it, and the profile is only evicted once the last of them unloaded it.
+ * Evicted profiles wait in the pending writes until they are written: a failed write is retried with every flush
+ * and on shutdown, and a profile still pending when its player logs in again is cached again instead of being read.
+ */
+public class UserCache {
+
+    private static Playlegendquests main = Playlegendquests.getPlugin();
+    private static final long DEFAULT_FLUSH_INTERVAL_TICKS = 600; // 30 seconds
+    private static final Map<UUID, User> users = new ConcurrentHashMap<>();
+    private static final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private static final Map<UUID, Integer> sessions = new HashMap<>(); // Sessions holding each profile, guarded by itself
+    private static final Map<UUID, User> pendingWrites = new ConcurrentHashMap<>(); // Evicted profiles not written yet, changed under the sessions lock
+    private static final Object writeLock = new Object(); // Serializes the writes and refreshes of profiles
+    private static BukkitTask flushTask;
+
+    /**
+     * Starts the timer periodically writing modified profiles back to the database
+     * and loads the profiles of the players already online.
+     */
+    public static void init() {
+        long interval = Math.max(1, main.getConfig().getLong("user_flush_interval_ticks", DEFAULT_FLUSH_INTERVAL_TICKS));
+        flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(main, UserCache::flush, interval, interval);
+        // Players already online after a reload never went through the login events
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            UUID uuid = player.getUniqueId();
+            DatabaseExecutor.supply(() -> load(uuid));
+        }
+    }
+
+    /**
+     * Loads the profile of a player into the cache for a new session, creating it in the database if it doesn't exist yet.
+     * A profile still cached for a previous session is shared instead. Every call must be paired with one call to {@link #unload(UUID)},
+     * even if loading failed. Logins happening at the same time are provisioned together by the {@link UserProvisioner}.
+     * This method blocks on the database and must only be called off the main thread,
+     * typically from the AsyncPlayerPreLoginEvent.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The cached User profile, or null if it could not be loaded.
+     */
+    public static User load(UUID uuid) {
+        synchronized (sessions) {
+            sessions.merge(uuid, 1, Integer::sum);
+            User cached = getOrAdopt(uuid);
+            if (cached != null) {
+                return cached; // Still held by a session that did not quit yet, or not written since the last one
+            }
+        }
+        User user = UserProvisioner.provision(uuid);
+        if (user == null) {
+            return null; // Leave the player uncached rather than caching defaults that would overwrite the stored profile
+        }
+        synchronized (sessions) {
+            if (!sessions.containsKey(uuid)) {
+                return user; // Every session ended while provisioning, nothing would evict it
+            }
+            User cached = getOrAdopt(uuid);
+            if (cached != null) {
+                return cached; // Loaded by a concurrent login, or evicted with a failed write while provisioning
+            }
+            users.put(uuid, user);
+            return user;
+        }
+    }
+
+    /**
+     * Retrieves the cached profile of an online player.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The cached User profile, or null if the player's profile is not loaded.
+     */
+    public static User get(UUID uuid) {
+        return users.get(uuid);
+    }
+
+    /**
+     * Marks the profile of a player as modified, so it is written back on the next flush.
+     * Must be called after every change made to a cached User.
+     *
+     * @param uuid The unique identifier of the player.
+     */
+    public static void markDirty(UUID uuid) {
+        if (users.containsKey(uuid)) {
+            dirty.add(uuid);
+        }
+    }
+
+    /**
+     * Ends a session of a player, once they quit or their login was denied. When no other session holds their profile,
+     * removes it from the cache, writing it back asynchronously if it was modified.
+     *
+     * @param uuid The unique identifier of the player.
+     */
+    public static void unload(UUID uuid) {
+        synchronized (sessions) {
+            Integer count = sessions.get(uuid);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                sessions.put(uuid, count - 1); // A newer session of the player still uses the profile
+                return;
+            }
+            sessions.remove(uuid);
+            User user = users.remove(uuid);
+            if (user == null || !dirty.remove(uuid)) {
+                return;
+            }
+            pendingWrites.put(uuid, user);
+        }
+        DatabaseExecutor.supply(UserCache::flushPendingWrites); // Kept pending if it fails or gets rejected, for the next flush
+    }
+
+    /**
+     * Refreshes the cached profile of a player changed by another server, in the background.
+     * Ignored if the profile is not cached, or already at that version or a newer one.
+     *
+     * @param uuid    The unique identifier of the player.
+     * @param version The version of the profile after the change, -1 if unknown.
+     */
+    public static void invalidate(UUID uuid, long version) {
+        User user = users.get(uuid);
+        if (user == null || (version >= 0 && user.getVersion() >= version)) {
+            return;
+        }
+        DatabaseExecutor.supply(() -> refresh(user));
+    }
+
+    /**
+     * Writes every modified profile and every pending write back to the database in a single batch.
+     * Profiles modified while the batch is running are picked up by the next flush.
+     */
+    public static void flush() {
+        if (dirty.isEmpty() && pendingWrites.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) { // Held until failed changes are restored, so no flush can miss them
+            Map<User, Long> batch = new HashMap<>();
+            for (UUID uuid : dirty) {
+                dirty.remove(uuid); // Clear the flag before reading, so concurrent changes mark it again
+                User user = users.get(uuid);
+                if (user != null) {
+                    batch.merge(user, user.drainBalanceChange(), Long::sum);
+                }
+            }
+            drainPendingWrites(batch);
+            writeOrRestore(batch);
+        }
+    }
+
+    /**
+     * Stops the flush timer and synchronously writes back every modified profile and pending write.
+     * Meant to be called when the plugin is disabled, before the connection pool is closed.
+     */
+    public static void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        flush();
+        int unsaved = dirty.size() + pendingWrites.size();
+        if (unsaved > 0) {
+            msg.log("&#ff6961Could not write " + unsaved + " user profile(s) back, their changes since the last flush are lost.");
+        }
+        synchronized (sessions) {
+            users.clear();
+            dirty.clear();
+            pendingWrites.clear();
+            sessions.clear();
+        }
+    }
+
+    /**
+     * Retrieves the cached profile of a player, caching their pending write again if they have one.
+     * Must be called while holding the sessions lock.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The cached User profile, or null if the player has neither a cached profile nor a pending write.
+     */
+    private static User getOrAdopt(UUID uuid) {
+        User user = users.get(uuid);
+        if (user == null) {
+            user = pendingWrites.remove(uuid);
+            if (user != null) {
+                users.put(uuid, user);
+                dirty.add(uuid); // Still written with the next flush
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Writes the pending writes back to the database in a single batch. Runs on the database executor.
+     *
+     * @return True if the batch was written; otherwise, false.
+     */
+    private static boolean flushPendingWrites() {
+        synchronized (writeLock) {
+            Map<User, Long> batch = new HashMap<>();
+            drainPendingWrites(batch);
+            return writeOrRestore(batch);
+        }
+    }
+
+    /**
+     * Adds the pending writes to a batch, taking their unsaved change.
+     *
+     * @param batch The batch to add the pending writes to.
+     */
+    private static void drainPendingWrites(Map<User, Long> batch) {
+        for (User user : pendingWrites.values()) {
+            batch.merge(user, user.drainBalanceChange(), Long::sum);
+        }
+    }
+
+    /**
+     * Writes a batch of profiles, dropping the written ones from the pending writes.
+     * If the write fails, the changes are restored, to be written with the next flush: profiles still cached
+     * are marked dirty again, and evicted ones are kept in the pending writes. Must be called while holding the write lock.
+     *
+     * @param batch The profiles to write, with the change to add to their stored balance.
+     * @return True if the batch was written; otherwise, false.
+     */
+    private static boolean writeOrRestore(Map<User, Long> batch) {
+        if (write(batch)) {
+            synchronized (sessions) {
+                for (User user : batch.keySet()) {
+                    pendingWrites.remove(user.getUuid(), user);
+                }
+            }
+            return true;
+        }
+        synchronized (sessions) {
+            for (Map.Entry<User, Long> entry : batch.entrySet()) {
+                User user = entry.getKey();
+                user.restoreBalanceChange(entry.getValue());
+                User cached = users.get(user.getUuid());
+                User holder = cached != null ? cached : pendingWrites.putIfAbsent(user.getUuid(), user);
+                if (holder != null && holder != user) {
+                    // Evicted while the batch was running and loaded again since: hand the change over to the newer profile
+                    holder.addBalance(user.drainBalanceChange());
+                }
+                if (cached != null) {
+                    dirty.add(user.getUuid());
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the given profiles to the database.
+     *
+     * @param batch The profiles to write, with the change to add to their stored balance.
+     * @return True if the batch was written; otherwise, false.
+     */
+    private static boolean write(Map<User, Long> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        synchronized (writeLock) {
+            try {
+                DatabaseWrapper.updateUsers(batch);
+                msg.debug("Flushed " + batch.size() + " user profile(s).");
+            } catch (SQLException e) {
+                msg.log("&#ff6961Failed to flush user profiles: &#fdfd96" + e.getMessage());
+                return false;
+            }
+        }
+        for (User user : batch.keySet()) {
+            InvalidationBus.publishUser(user.getUuid(), user.getVersion());
+        }
+        return true;
+    }
+
+    /**
+     * Reads the stored profile of a player again, folding the balance changes made elsewhere into the cached profile
+     * and taking over the stored locale unless a locale set on this server is not written yet. Blocks on the database.
+     *
+     * @param user The cached profile to refresh.
+     * @return True if the profile was refreshed; false if it was up to date, no longer cached or could not be read.
+     */
+    private static boolean refresh(User user) {
+        synchronized (writeLock) {
+            if (users.get(user.getUuid()) != user) {
+                return false; // Unloaded in the meantime
+            }
+            try {
+                User stored = DatabaseWrapper.getUser(user.getUuid());
+                if (stored == null || stored.getVersion() <= user.getVersion()) {
+                    return false;
+                }
+                user.synchronize(stored.getBalance(), 0, stored.getVersion());
+                user.synchronizeLocale(stored.getLocale());
+            } catch (SQLException e) {
+                msg.log("&#ff6961Failed to refresh the profile of " + user.getUuid() + ": &#fdfd96" + e.getMessage());
+                return false;
+            }
+        }
+        Placeholders.invalidate(user.getUuid()); // Balance placeholders resolved before the refresh are stale
+        msg.debug("Refreshed the profile of " + user.getUuid() + " changed by another server.");
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package dev.relismdev.playlegendquests.commands;
 
 import dev.relismdev.playlegendquests.commands.subcommands.CreateCommand;
+import dev.relismdev.playlegendquests.commands.subcommands.StartCommand;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -20,6 +21,7 @@ public class CommandManager implements CommandExecutor {
     // Constructor to initialize the CommandManager
     public CommandManager() {
         subcommands.add(new CreateCommand());
+        subcommands.add(new StartCommand());
     }
 
     /**
@@ -1,6 +1,6 @@
 package dev.relismdev.playlegendquests.commands.subcommands;
 
-import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.cache.QuestCreationSessions;
 import dev.relismdev.playlegendquests.commands.SubCommand;
 import dev.relismdev.playlegendquests.utils.msg;
 import org.bukkit.entity.Player;
@@ -50,11 +50,13 @@ public class CreateCommand extends SubCommand {
      */
     @Override
     public void perform(Player player, String[] args) {
+        // Start a new quest creation session, unless too many quests are being created already
+        if (QuestCreationSessions.start(player.getUniqueId()) == null) {
+            msg.sendLocale(player, "quest_creation_busy");
+            return;
+        }
+
         // Prompt the player to input the Quest name
         msg.sendLocale(player, "input_quest_name");
-
-        // Create a new Quest object and store it for the player's quest creation
-        Quest quest = new Quest(null, null, 0, null);
-        CreateHandler.questCreationData.put(player, quest);
     }
 }
@@ -1,29 +1,37 @@
 package dev.relismdev.playlegendquests.commands.subcommands;
 
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.cache.QuestRegistry;
+import dev.relismdev.playlegendquests.cache.QuestCreationSessions;
+import dev.relismdev.playlegendquests.models.Objective;
 import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.models.QuestCreationSession;
 import dev.relismdev.playlegendquests.storage.DatabaseInterface;
+import dev.relismdev.playlegendquests.utils.TimeUtils;
 import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.HashMap;
-
 /**
  * Listens to player chat events to handle quest creation process through chat messages.
  * Uses {@link org.bukkit.event.player.AsyncPlayerChatEvent} for interaction.
+ * The state of each wizard is kept in the {@link QuestCreationSessions} store.
+ * Creating a quest runs as a staged pipeline so a chat thread is never held on anything but parsing:
+ * the input is parsed on the chat thread, the reward item is read from the player's hand on the main thread,
+ * the quest is stored on the database executor, and the player is informed once it completes.
  */
 public class CreateHandler implements Listener {
 
-    // HashMaps to store data temporarily for quest creation
-    public static HashMap<Player, Quest> questCreationData = new HashMap<>();
-    public static HashMap<Player, Integer> questCreationStep = new HashMap<>();
+    private static Playlegendquests main = Playlegendquests.getPlugin();
 
     /**
      * Listens for chat messages from players engaged in quest creation.
      * Handles the step-by-step process of creating a quest based on the chat interaction.
+     * This runs on a chat thread, so it only parses the input and hands the rest of the work over.
      *
      * @param e The AsyncPlayerChatEvent triggered by the player's chat message.
      */
@@ -31,54 +39,124 @@ public class CreateHandler implements Listener {
     public void onAsyncPlayerChat(AsyncPlayerChatEvent e) {
         Player player = e.getPlayer();
         // Check if the player is in the process of creating a quest
-        if (questCreationData.containsKey(player)) {
-            e.setCancelled(true); // Cancel the chat message
+        QuestCreationSession session = QuestCreationSessions.get(player.getUniqueId());
+        if (session == null) {
+            return;
+        }
+        e.setCancelled(true); // Cancel the chat message
+        String input = e.getMessage().trim();
 
-            // Retrieve the current step of quest creation
-            int step = questCreationStep.getOrDefault(player, 1);
-            Quest quest = questCreationData.get(player);
+        // Messages of the same player may arrive on different chat threads
+        synchronized (session) {
+            Quest quest = session.getQuest();
 
-            switch (step) {
+            switch (session.getStep()) {
                 case 1:
-                    // Set the quest name and proceed to the next step
-                    quest.setName(e.getMessage());
-                    questCreationStep.put(player, 2);
-                    questCreationData.put(player, quest);
+                    // Set the quest name and proceed to the next step, or ask again if the name is taken
+                    if (QuestRegistry.getQuest(input) != null) {
+                        msg.sendLocale(player, "input_quest_name_taken");
+                        break;
+                    }
+                    quest.setName(input);
+                    session.setStep(2);
                     msg.sendLocale(player, "input_quest_description");
                     break;
 
                 case 2:
                     // Set the quest description and proceed
-                    quest.setDescription(e.getMessage());
-                    questCreationStep.put(player, 3);
-                    questCreationData.put(player, quest);
+                    quest.setDescription(input);
+                    session.setStep(3);
                     msg.sendLocale(player, "input_quest_coins");
                     break;
 
                 case 3:
-                    // Set the quest reward coins and proceed
-                    quest.setReward_coins(Integer.parseInt(e.getMessage()));
-                    questCreationStep.put(player, 4);
-                    questCreationData.put(player, quest);
-                    msg.sendLocale(player, "input_quest_item");
+                    // Set the quest reward coins and proceed, or ask again if the input is not a valid amount
+                    long coins;
+                    try {
+                        coins = Long.parseLong(input);
+                    } catch (NumberFormatException ex) {
+                        coins = -1;
+                    }
+                    if (coins < 0) {
+                        msg.sendLocale(player, "input_quest_coins_invalid");
+                        break;
+                    }
+                    quest.setReward_coins(coins);
+                    session.setStep(4);
+                    msg.sendLocale(player, "input_quest_objective");
                     break;
 
                 case 4:
-                    // Determine if the held item should be the reward
-                    Boolean isRewardItem = Boolean.valueOf(e.getMessage());
-                    if (isRewardItem) {
-                        ItemStack itemStack = player.getItemInHand();
-                        if (!itemStack.isEmpty() && !itemStack.getType().isAir()) {
-                            quest.setReward_item(itemStack);
-                        }
+                    // Set the quest objective and proceed, or ask again if the input is not a valid objective
+                    Objective objective = Objective.parse(input);
+                    if (objective == null) {
+                        msg.sendLocale(player, "input_quest_objective_invalid");
+                        break;
+                    }
+                    quest.setObjective(objective);
+                    session.setStep(5);
+                    msg.sendLocale(player, "input_quest_duration");
+                    break;
+
+                case 5:
+                    // Set the time players have to complete the quest and proceed, or ask again if the input is not a valid duration
+                    long duration = TimeUtils.parseDuration(input);
+                    if (duration < 0) {
+                        msg.sendLocale(player, "input_quest_duration_invalid");
+                        break;
                     }
-                    // Cleanup data, create quest in database, and inform the player
-                    questCreationStep.remove(player);
-                    questCreationData.remove(player);
-                    DatabaseInterface.createQuest(quest);
-                    msg.sendLocale(player, "quest_creation_success");
+                    quest.setDurationSeconds(duration);
+                    session.setStep(6);
+                    msg.sendLocale(player, "input_quest_item");
+                    break;
+
+                case 6:
+                    // End the session here, so a second answer can't submit the quest twice
+                    if (!QuestCreationSessions.end(session)) {
+                        return; // Expired or restarted in the meantime
+                    }
+                    boolean useHeldItem = Boolean.parseBoolean(input);
+                    Bukkit.getScheduler().runTask(main, () -> captureRewardItem(player, quest, useHeldItem));
                     break;
             }
         }
     }
+
+    /**
+     * Second stage, on the main thread: sets the item held by the player as the reward if requested,
+     * then hands the quest over to be stored.
+     *
+     * @param player      The player creating the quest.
+     * @param quest       The quest built by the wizard.
+     * @param useHeldItem Whether the item held by the player is the reward.
+     */
+    private static void captureRewardItem(Player player, Quest quest, boolean useHeldItem) {
+        if (useHeldItem && player.isOnline()) {
+            ItemStack itemStack = player.getInventory().getItemInMainHand();
+            if (!itemStack.isEmpty() && !itemStack.getType().isAir()) {
+                quest.setReward_item(itemStack.clone()); // Snapshot, the player keeps using their item
+            }
+        }
+        persist(player, quest);
+    }
+
+    /**
+     * Last stages: stores the quest on the database executor and informs the player
+     * once it completes, back on the main thread.
+     *
+     * @param player The player creating the quest.
+     * @param quest  The quest to store.
+     */
+    private static void persist(Player player, Quest quest) {
+        DatabaseInterface.createQuestAsync(quest).whenComplete((created, error) -> {
+            if (!player.isOnline()) {
+                return;
+            }
+            if (error == null && created) {
+                msg.sendLocale(player, "quest_creation_success");
+            } else {
+                msg.sendLocale(player, "quest_creation_failed");
+            }
+        });
+    }
 }
@@ -0,0 +1,80 @@
+package dev.relismdev.playlegendquests.commands.subcommands;
+
+import dev.relismdev.playlegendquests.cache.QuestRegistry;
+import dev.relismdev.playlegendquests.commands.SubCommand;
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.progress.ProgressTracker;
+import dev.relismdev.playlegendquests.utils.TimeUtils;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+
+/**
+ * Subcommand to start working on a quest.
+ * Extends {@link dev.relismdev.playlegendquests.commands.SubCommand}.
+ */
+public class StartCommand extends SubCommand {
+
+    /**
+     * Retrieves the name of this subcommand.
+     *
+     * @return The name of the subcommand ("start").
+     */
+    @Override
+    public String getName() {
+        return "start";
+    }
+
+    /**
+     * Retrieves the description of this subcommand.
+     *
+     * @return A brief description of the subcommand ("Start a Quest").
+     */
+    @Override
+    public String getDescription() {
+        return "Start a Quest";
+    }
+
+    /**
+     * Retrieves the syntax of this subcommand.
+     *
+     * @return The syntax for using this subcommand.
+     */
+    @Override
+    public String getSyntax() {
+        return "/quests start <name>";
+    }
+
+    /**
+     * Performs the action associated with this subcommand.
+     * Looks the quest up by name in memory and starts tracking the player's progress on its objective.
+     *
+     * @param player The player who initiated the subcommand.
+     * @param args   Arguments passed along with the subcommand.
+     */
+    @Override
+    public void perform(Player player, String[] args) {
+        if (args.length < 2) {
+            player.sendMessage(getSyntax());
+            return;
+        }
+
+        // Quest names may contain spaces
+        String name = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+        Quest quest = QuestRegistry.getQuest(name);
+        if (quest == null) {
+            msg.sendLocale(player, "quest_not_found", name);
+        } else if (quest.getObjective() == null) {
+            msg.sendLocale(player, "quest_no_objective", quest.getName());
+        } else if (ProgressTracker.isActive(player.getUniqueId(), quest.getId())) {
+            msg.sendLocale(player, "quest_already_active", quest.getName());
+        } else if (!ProgressTracker.start(player, quest)) {
+            msg.sendLocale(player, "quest_start_failed", quest.getName());
+        } else if (quest.getDurationSeconds() > 0) {
+            msg.sendLocale(player, "quest_started_timed", quest.getName(), quest.getObjective(), TimeUtils.formatDuration(quest.getDurationSeconds()));
+        } else {
+            msg.sendLocale(player, "quest_started", quest.getName(), quest.getObjective());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package dev.relismdev.playlegendquests.listeners;
+
+import dev.relismdev.playlegendquests.models.ObjectiveType;
+import dev.relismdev.playlegendquests.progress.ProgressTracker;
+import org.bukkit.Location;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.inventory.ItemStack;
+
+public class ObjectiveListener implements Listener {
+
+    // Advance break objectives on the broken block's material
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (ProgressTracker.isTracking(ObjectiveType.BREAK)) {
+            ProgressTracker.handle(event.getPlayer(), ObjectiveType.BREAK, event.getBlock().getType().name(), 1);
+        }
+    }
+
+    // Advance kill objectives of the killer on the killed entity's type
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDeath(EntityDeathEvent event) {
+        if (!ProgressTracker.isTracking(ObjectiveType.KILL)) {
+            return;
+        }
+        LivingEntity entity = event.getEntity();
+        Player killer = entity.getKiller();
+        if (killer != null) {
+            ProgressTracker.handle(killer, ObjectiveType.KILL, entity.getType().name(), 1);
+        }
+    }
+
+    // Advance collect objectives on the picked up item's material, by the size of the stack
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityPickupItem(EntityPickupItemEvent event) {
+        if (!ProgressTracker.isTracking(ObjectiveType.COLLECT) || !(event.getEntity() instanceof Player)) {
+            return;
+        }
+        ItemStack itemStack = event.getItem().getItemStack();
+        ProgressTracker.handle((Player) event.getEntity(), ObjectiveType.COLLECT, itemStack.getType().name(), itemStack.getAmount());
+    }
+
+    // Advance travel objectives by one for every block boundary crossed horizontally
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (!ProgressTracker.isTracking(ObjectiveType.TRAVEL)) {
+            return;
+        }
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        int blocks = Math.abs(to.getBlockX() - from.getBlockX()) + Math.abs(to.getBlockZ() - from.getBlockZ());
+        if (blocks > 0 && to.getWorld() == from.getWorld()) {
+            ProgressTracker.handle(event.getPlayer(), ObjectiveType.TRAVEL, to.getWorld().getName(), blocks);
+        }
+    }
+}
@@ -1,31 +1,47 @@
 package dev.relismdev.playlegendquests.listeners;
 
-import dev.relismdev.playlegendquests.models.User;
-import dev.relismdev.playlegendquests.Playlegendquests;
-import dev.relismdev.playlegendquests.storage.DatabaseInterface;
+import dev.relismdev.playlegendquests.cache.UserCache;
+import dev.relismdev.playlegendquests.progress.ProgressTracker;
+import dev.relismdev.playlegendquests.progress.RewardService;
 import dev.relismdev.playlegendquests.utils.LocaleManager;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
+import dev.relismdev.playlegendquests.utils.msg;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 
 public class PlayerJoinListener implements Listener {
 
-    private final Playlegendquests plugin = Playlegendquests.getPlugin();
+    // Load the user profile and quest progress while the player is still connecting, off the main thread
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        if (UserCache.load(event.getUniqueId()) == null) {
+            // Without a stored profile the progress of the player could never be written, so keep them out until it exists
+            UserCache.unload(event.getUniqueId());
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, msg.translateColorCodes(LocaleManager.getMessage(LocaleManager.getDefaultLocale(), "login_profile_failed")));
+            return;
+        }
+        ProgressTracker.load(event.getUniqueId());
+    }
 
-    public PlayerJoinListener() {
-        Bukkit.getServer().getPluginManager().registerEvents(this, plugin);
+    // Drop the profile again if the login gets denied after it was loaded
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            UserCache.unload(event.getPlayer().getUniqueId());
+            ProgressTracker.discard(event.getPlayer().getUniqueId());
+        }
     }
 
-    // Method to handle PlayerJoinEvent
-    @EventHandler
+    // Start tracking the quest progress loaded at pre-login and hand out the rewards earned while offline
+    @EventHandler(priority = EventPriority.LOWEST)
     public void onPlayerJoin(PlayerJoinEvent event) {
-        Player player = event.getPlayer();
-        User user = DatabaseInterface.getUser(player);
-        if(user == null){
-            User newUser = new User(player, 0, LocaleManager.getDefaultLocale());
-            DatabaseInterface.createUser(newUser);
-        }
+        ProgressTracker.activate(event.getPlayer());
+        RewardService.claim(event.getPlayer());
     }
 }
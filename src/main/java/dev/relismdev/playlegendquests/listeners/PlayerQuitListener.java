@@ -0,0 +1,22 @@
+package dev.relismdev.playlegendquests.listeners;
+
+import dev.relismdev.playlegendquests.cache.QuestCreationSessions;
+import dev.relismdev.playlegendquests.cache.UserCache;
+import dev.relismdev.playlegendquests.progress.ProgressTracker;
+import dev.relismdev.playlegendquests.utils.Placeholders;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+public class PlayerQuitListener implements Listener {
+
+    // Write back and evict the user profile and quest progress, and drop the memoized placeholders and quest creation session once the player leaves
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UserCache.unload(event.getPlayer().getUniqueId());
+        ProgressTracker.unload(event.getPlayer());
+        Placeholders.invalidate(event.getPlayer().getUniqueId());
+        QuestCreationSessions.end(event.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,90 @@
+package dev.relismdev.playlegendquests.models;
+
+/**
+ * Represents a change made to a quest or a user profile by one server, published so the other servers
+ * sharing the database invalidate their cached copy of that entity only.
+ */
+public class EntityChange {
+
+    /**
+     * The kinds of entities whose changes are published.
+     */
+    public enum Type {
+        QUEST, // Keyed by quest id
+        USER // Keyed by player UUID
+    }
+
+    private final long id; // Position in the change log, 0 until it has been stored
+    private final String serverId; // Server that made the change
+    private final Type type; // Kind of the changed entity
+    private final String key; // Quest id or player UUID, in text form
+    private final long version; // Version of the entity after the change, -1 if unknown, such as for a deletion
+
+    /**
+     * Constructs an EntityChange object with the specified details.
+     *
+     * @param id       The position of the change in the change log, 0 if it has not been stored.
+     * @param serverId The identifier of the server that made the change.
+     * @param type     The kind of the changed entity.
+     * @param key      The quest id or player UUID of the changed entity, in text form.
+     * @param version  The version of the entity after the change, -1 if unknown.
+     */
+    public EntityChange(long id, String serverId, Type type, String key, long version) {
+        this.id = id;
+        this.serverId = serverId;
+        this.type = type;
+        this.key = key;
+        this.version = version;
+    }
+
+    /**
+     * Retrieves the position of the change in the change log.
+     *
+     * @return The id of the change, 0 if it has not been stored.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Retrieves the identifier of the server that made the change.
+     *
+     * @return The identifier of the server.
+     */
+    public String getServerId() {
+        return serverId;
+    }
+
+    /**
+     * Retrieves the kind of the changed entity.
+     *
+     * @return The type of the entity.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the key of the changed entity: the quest id or the player UUID, in text form.
+     *
+     * @return The key of the entity.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Retrieves the version of the entity after the change.
+     * Servers whose copy is already at this version or newer have nothing to invalidate.
+     *
+     * @return The version of the entity, -1 if unknown, in which case the copy is always invalidated.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityChange{id=" + id + ", serverId=" + serverId + ", type=" + type + ", key=" + key + ", version=" + version + "}";
+    }
+}
@@ -0,0 +1,106 @@
+package dev.relismdev.playlegendquests.models;
+
+import java.util.Locale;
+
+/**
+ * Represents what a player has to do to complete a quest: an objective type, the target it applies to,
+ * such as a block material or an entity type, and the amount to reach.
+ * Objectives are immutable, so they can be shared between quest copies and progress entries.
+ */
+public class Objective {
+
+    /**
+     * The target matching any material, entity type or world.
+     */
+    public static final String ANY_TARGET = "*";
+
+    private final ObjectiveType type; // Event advancing the objective
+    private final String target; // Upper case material, entity type or world name, or ANY_TARGET
+    private final int amount; // Amount to reach to complete the objective
+
+    /**
+     * Constructs an Objective with the specified details.
+     *
+     * @param type   The type of the objective.
+     * @param target The material, entity type or world name the objective applies to, or {@link #ANY_TARGET}.
+     * @param amount The amount to reach to complete the objective.
+     */
+    public Objective(ObjectiveType type, String target, int amount) {
+        this.type = type;
+        this.target = normalizeTarget(type, target);
+        this.amount = amount;
+    }
+
+    /**
+     * Parses an objective written as {@code <type> <target> <amount>}, such as {@code break stone 64}.
+     *
+     * @param text The text to parse.
+     * @return The parsed objective, or null if the text is not a valid objective.
+     */
+    public static Objective parse(String text) {
+        String[] parts = text.trim().split("\\s+");
+        if (parts.length != 3) {
+            return null;
+        }
+        ObjectiveType type = ObjectiveType.fromName(parts[0]);
+        int amount;
+        try {
+            amount = Integer.parseInt(parts[2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return type == null || amount <= 0 ? null : new Objective(type, parts[1], amount);
+    }
+
+    /**
+     * Retrieves the type of the objective.
+     *
+     * @return The type of the objective.
+     */
+    public ObjectiveType getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the target the objective applies to.
+     *
+     * @return The material, entity type or world name, or {@link #ANY_TARGET}.
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    /**
+     * Retrieves the amount to reach to complete the objective.
+     *
+     * @return The amount to reach.
+     */
+    public int getAmount() {
+        return amount;
+    }
+
+    /**
+     * Normalizes a target into the form objectives are indexed by, so event lookups need no case conversion.
+     * Material and entity type names are upper case; world names are case-sensitive and kept as is.
+     *
+     * @param type   The type of the objective.
+     * @param target The target to normalize.
+     * @return The normalized target.
+     */
+    private static String normalizeTarget(ObjectiveType type, String target) {
+        if (target == null) {
+            return ANY_TARGET;
+        }
+        return type == ObjectiveType.TRAVEL ? target : target.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns a string representation of the objective, as accepted by {@link #parse(String)}.
+     *
+     * @return The objective as text.
+     */
+    @Override
+    public String toString() {
+        return type.name().toLowerCase(Locale.ROOT) + " " + target + " " + amount;
+    }
+}
@@ -0,0 +1,31 @@
+package dev.relismdev.playlegendquests.models;
+
+import java.util.Locale;
+
+/**
+ * The kinds of objectives a quest can have, each advanced by a different game event.
+ */
+public enum ObjectiveType {
+
+    KILL, // Kill entities of the target type
+    BREAK, // Break blocks of the target material
+    COLLECT, // Pick up items of the target material
+    TRAVEL; // Travel the target number of blocks in the target world
+
+    /**
+     * Retrieves the objective type with the given name, ignoring case.
+     *
+     * @param name The name of the objective type.
+     * @return The objective type, or null if no type has that name.
+     */
+    public static ObjectiveType fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package dev.relismdev.playlegendquests.models;
+
+import java.util.UUID;
+
+/**
+ * Represents the change made to the stored progress of a player on a quest since it was last written:
+ * the amount to add, whether the quest got completed, and whether the quest was restarted,
+ * in which case the stored progress is replaced instead of added to, or dropped, in which case it is deleted.
+ */
+public class ProgressDelta {
+
+    private final UUID uuid; // Unique identifier of the player
+    private final int questId; // Unique identifier of the quest
+    private int progress; // Amount to add, or the new progress if reset
+    private boolean completed; // Whether the quest got completed
+    private boolean reset; // Whether the stored progress is replaced instead of added to
+    private boolean dropped; // Whether the stored progress is deleted
+    private long expiresAt; // Deadline written along with a reset, 0 for none
+
+    /**
+     * Constructs an empty ProgressDelta.
+     *
+     * @param uuid    The unique identifier of the player.
+     * @param questId The unique identifier of the quest.
+     */
+    public ProgressDelta(UUID uuid, int questId) {
+        this.uuid = uuid;
+        this.questId = questId;
+    }
+
+    /**
+     * Records progress made on the quest.
+     *
+     * @param amount    The amount added to the progress.
+     * @param completed Whether this completed the quest.
+     */
+    public void add(int amount, boolean completed) {
+        this.progress += amount;
+        this.completed |= completed;
+    }
+
+    /**
+     * Records a restart of the quest, discarding the changes recorded so far.
+     *
+     * @param expiresAt The new deadline in epoch milliseconds, 0 for none.
+     */
+    public void reset(long expiresAt) {
+        this.progress = 0;
+        this.completed = false;
+        this.reset = true;
+        this.dropped = false;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Records that the progress was dropped, such as when the quest expired, discarding the changes recorded so far.
+     */
+    public void drop() {
+        this.progress = 0;
+        this.completed = false;
+        this.reset = false;
+        this.dropped = true;
+    }
+
+    /**
+     * Merges an older delta of the same quest into this one, as if its changes had been recorded first.
+     * Used to put back the changes of a write that failed. A restart or drop recorded in this delta supersedes the older changes.
+     *
+     * @param older The older delta.
+     */
+    public void mergeOlder(ProgressDelta older) {
+        if (reset || dropped) {
+            return;
+        }
+        progress += older.progress;
+        completed |= older.completed;
+        reset = older.reset;
+        dropped = older.dropped;
+        expiresAt = older.expiresAt;
+    }
+
+    /**
+     * Retrieves the unique identifier of the player.
+     *
+     * @return The unique identifier of the player.
+     */
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Retrieves the unique identifier of the quest.
+     *
+     * @return The unique identifier of the quest.
+     */
+    public int getQuestId() {
+        return questId;
+    }
+
+    /**
+     * Retrieves the amount to add to the stored progress, or the new progress if the quest was restarted.
+     *
+     * @return The progress of the delta.
+     */
+    public int getProgress() {
+        return progress;
+    }
+
+    /**
+     * Checks whether the quest got completed.
+     *
+     * @return True if the quest got completed; otherwise, false.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Checks whether the progress was dropped, meaning the stored progress is deleted.
+     *
+     * @return True if the progress was dropped; otherwise, false.
+     */
+    public boolean isDropped() {
+        return dropped;
+    }
+
+    /**
+     * Retrieves the deadline written along with a restart.
+     *
+     * @return The deadline in epoch milliseconds, 0 for none.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Checks whether the quest was restarted, meaning the stored progress is replaced instead of added to.
+     *
+     * @return True if the quest was restarted; otherwise, false.
+     */
+    public boolean isReset() {
+        return reset;
+    }
+}
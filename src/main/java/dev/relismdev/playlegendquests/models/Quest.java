@@ -8,10 +8,14 @@ import org.bukkit.inventory.ItemStack;
  */
 public class Quest {
 
+    private int id; // Unique identifier of the quest, 0 until it has been stored
     private String name; // Name of the quest
     private String description; // Description of the quest
-    private int reward_coins; // Coins rewarded upon completion
+    private long reward_coins; // Coins rewarded upon completion
     private ItemStack reward_item; // Item rewarded upon completion
+    private Objective objective; // What players have to do to complete the quest, null if nothing is tracked
+    private long durationSeconds; // Time players have to complete the quest once started, 0 for no deadline
+    private long version; // Version of the stored row this quest was read from, increased by every update
 
     /**
      * Constructs a Quest object with the specified details.
@@ -21,13 +25,59 @@ public class Quest {
      * @param reward_coins   The amount of coins rewarded for completing the quest.
      * @param reward_item    The ItemStack representing the item rewarded for completing the quest.
      */
-    public Quest(String name, String description, int reward_coins, ItemStack reward_item) {
+    public Quest(String name, String description, long reward_coins, ItemStack reward_item) {
+        this(0, name, description, reward_coins, reward_item);
+    }
+
+    /**
+     * Constructs a Quest object for a stored quest with the specified details.
+     *
+     * @param id             The unique identifier of the quest.
+     * @param name           The name of the quest.
+     * @param description    The description of the quest.
+     * @param reward_coins   The amount of coins rewarded for completing the quest.
+     * @param reward_item    The ItemStack representing the item rewarded for completing the quest.
+     */
+    public Quest(int id, String name, String description, long reward_coins, ItemStack reward_item) {
+        this.id = id;
         this.name = name;
         this.description = description;
         this.reward_coins = reward_coins;
         this.reward_item = reward_item;
     }
 
+    /**
+     * Creates an independent copy of the quest, including a clone of its reward item,
+     * so changes to the copy never affect the original.
+     *
+     * @return A copy of this quest.
+     */
+    public Quest copy() {
+        Quest copy = new Quest(id, name, description, reward_coins, reward_item == null ? null : reward_item.clone());
+        copy.objective = objective; // Immutable, safe to share
+        copy.durationSeconds = durationSeconds;
+        copy.version = version;
+        return copy;
+    }
+
+    /**
+     * Retrieves the unique identifier of the quest.
+     *
+     * @return The unique identifier of the quest, or 0 if it has not been stored yet.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the unique identifier of the quest.
+     *
+     * @param id The unique identifier assigned by the database.
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Retrieves the name of the quest.
      *
@@ -69,7 +119,7 @@ public class Quest {
      *
      * @return The amount of coins rewarded for completing the quest.
      */
-    public int getReward_coins() {
+    public long getReward_coins() {
         return reward_coins;
     }
 
@@ -78,7 +128,7 @@ public class Quest {
      *
      * @param reward_coins The new amount of coins rewarded for completing the quest.
      */
-    public void setReward_coins(int reward_coins) {
+    public void setReward_coins(long reward_coins) {
         this.reward_coins = reward_coins;
     }
 
@@ -99,4 +149,59 @@ public class Quest {
     public void setReward_item(ItemStack reward_item) {
         this.reward_item = reward_item;
     }
+
+    /**
+     * Retrieves the objective of the quest.
+     *
+     * @return The objective of the quest, or null if it has none.
+     */
+    public Objective getObjective() {
+        return objective;
+    }
+
+    /**
+     * Sets the objective of the quest.
+     *
+     * @param objective The new objective of the quest, or null for none.
+     */
+    public void setObjective(Objective objective) {
+        this.objective = objective;
+    }
+
+    /**
+     * Retrieves the time players have to complete the quest once they started it.
+     *
+     * @return The duration in seconds, or 0 if the quest has no deadline.
+     */
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Sets the time players have to complete the quest once they started it.
+     *
+     * @param durationSeconds The new duration in seconds, or 0 for no deadline.
+     */
+    public void setDurationSeconds(long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Retrieves the version of the stored quest this quest was read from.
+     * An update only succeeds if the stored quest is still at this version, so concurrent edits are never silently lost.
+     *
+     * @return The version of the quest, 0 until it has been stored.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the stored quest this quest was read from.
+     *
+     * @param version The version of the quest.
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
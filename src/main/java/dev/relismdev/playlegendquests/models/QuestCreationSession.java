@@ -0,0 +1,80 @@
+package dev.relismdev.playlegendquests.models;
+
+import java.util.UUID;
+
+/**
+ * Represents the state of a player going through the quest creation wizard:
+ * the quest built so far, the step the player is at, and when they last interacted with it.
+ * Chat events of the same player may be handled on different threads, so callers
+ * synchronize on the session while reading and advancing it.
+ */
+public class QuestCreationSession {
+
+    private final UUID uuid; // Unique identifier of the player creating the quest
+    private final Quest quest = new Quest(null, null, 0, null); // The quest built so far
+    private int step = 1; // Current step of the wizard, starting at 1
+    private volatile long lastActivity = System.currentTimeMillis(); // Time of the last interaction, in milliseconds
+
+    /**
+     * Constructs a QuestCreationSession for a player starting the wizard.
+     *
+     * @param uuid The unique identifier of the player.
+     */
+    public QuestCreationSession(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    /**
+     * Retrieves the unique identifier of the player creating the quest.
+     *
+     * @return The unique identifier of the player.
+     */
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Retrieves the quest built so far.
+     *
+     * @return The quest being created.
+     */
+    public Quest getQuest() {
+        return quest;
+    }
+
+    /**
+     * Retrieves the current step of the wizard.
+     *
+     * @return The current step, starting at 1.
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Moves the wizard to the given step.
+     *
+     * @param step The new step.
+     */
+    public void setStep(int step) {
+        this.step = step;
+    }
+
+    /**
+     * Records an interaction with the session, postponing its expiry.
+     */
+    public void touch() {
+        lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks whether the session has not been interacted with for longer than the given timeout.
+     *
+     * @param now           The current time, in milliseconds.
+     * @param timeoutMillis The idle timeout, in milliseconds.
+     * @return True if the session is idle for longer than the timeout; otherwise, false.
+     */
+    public boolean isExpired(long now, long timeoutMillis) {
+        return now - lastActivity > timeoutMillis;
+    }
+}
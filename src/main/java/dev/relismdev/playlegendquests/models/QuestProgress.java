@@ -0,0 +1,118 @@
+package dev.relismdev.playlegendquests.models;
+
+import java.util.UUID;
+
+/**
+ * Represents the progress of a player on a quest they started.
+ * The objective and deadline are captured when the progress is loaded or started, so they stay consistent while the player works on it.
+ * Progress entries are only modified on the main thread, by the progress tracker.
+ */
+public class QuestProgress {
+
+    private final UUID uuid; // Unique identifier of the player
+    private final int questId; // Unique identifier of the quest
+    private final Objective objective; // Objective being worked on
+    private int progress; // Amount reached so far
+    private boolean completed; // Whether the objective was reached
+    private final long expiresAt; // Deadline in epoch milliseconds, 0 if the quest has none
+
+    /**
+     * Constructs a QuestProgress object with the specified details.
+     *
+     * @param uuid      The unique identifier of the player.
+     * @param questId   The unique identifier of the quest.
+     * @param objective The objective of the quest.
+     * @param progress  The amount reached so far.
+     * @param completed Whether the objective was reached.
+     * @param expiresAt The deadline in epoch milliseconds, 0 if the quest has none.
+     */
+    public QuestProgress(UUID uuid, int questId, Objective objective, int progress, boolean completed, long expiresAt) {
+        this.uuid = uuid;
+        this.questId = questId;
+        this.objective = objective;
+        this.progress = progress;
+        this.completed = completed;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Advances the progress, without going past the amount required by the objective.
+     * The quest is marked as completed once the amount is reached.
+     *
+     * @param amount The amount to add.
+     * @return The amount actually added, 0 if the quest was already completed.
+     */
+    public int advance(int amount) {
+        if (completed) {
+            return 0;
+        }
+        int added = Math.max(0, Math.min(amount, objective.getAmount() - progress)); // Stored progress may exceed a lowered amount
+        progress += added;
+        completed = progress >= objective.getAmount();
+        return added;
+    }
+
+    /**
+     * Retrieves the unique identifier of the player.
+     *
+     * @return The unique identifier of the player.
+     */
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Retrieves the unique identifier of the quest.
+     *
+     * @return The unique identifier of the quest.
+     */
+    public int getQuestId() {
+        return questId;
+    }
+
+    /**
+     * Retrieves the objective being worked on.
+     *
+     * @return The objective of the quest.
+     */
+    public Objective getObjective() {
+        return objective;
+    }
+
+    /**
+     * Retrieves the amount reached so far.
+     *
+     * @return The current progress.
+     */
+    public int getProgress() {
+        return progress;
+    }
+
+    /**
+     * Retrieves the deadline of the quest.
+     *
+     * @return The deadline in epoch milliseconds, 0 if the quest has none.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Checks whether the deadline passed before the objective was reached.
+     *
+     * @param now The current time in epoch milliseconds.
+     * @return True if the quest expired; otherwise, false.
+     */
+    public boolean isExpired(long now) {
+        return expiresAt != 0 && !completed && now >= expiresAt;
+    }
+
+    /**
+     * Checks whether the objective was reached.
+     *
+     * @return True if the quest is completed; otherwise, false.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+}
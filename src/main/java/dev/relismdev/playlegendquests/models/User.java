@@ -1,29 +1,65 @@
 package dev.relismdev.playlegendquests.models;
 
+import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 /**
  * Represents an User profile associated with a player, containing information about them.
+ * Each instance belongs to exactly one player and is safe to share between threads:
+ * the balance is updated atomically and the locale is published through a volatile field.
+ * Every change to the balance is also added to the unsaved change, which is what gets written to the database,
+ * so stored balances are only ever adjusted relatively and concurrent credits from elsewhere are never overwritten.
+ * The version of the stored row and the stored balance it was last synchronized with are tracked as well,
+ * so changes written to the same row by other servers are detected and folded into the cached balance.
+ * A locale set on this server is only written if it was changed, so the locale stored by another server is never overwritten
+ * with a stale one, and it is kept over the stored locale until it is written.
+ * It only holds the player's UUID, primitive numbers and an interned locale string,
+ * so caching many of them stays cheap.
  */
 public class User {
 
-    private static OfflinePlayer player; // The associated player
-    private static String uuid;
-    private static int balance; // The player's balance
-    private static String locale;
+    private static final AtomicLongFieldUpdater<User> BALANCE = AtomicLongFieldUpdater.newUpdater(User.class, "balance");
+    private static final AtomicLongFieldUpdater<User> UNSAVED = AtomicLongFieldUpdater.newUpdater(User.class, "unsavedBalance");
+
+    private final UUID uuid; // The unique identifier of the associated player
+    private volatile long balance; // The player's balance, only modified through BALANCE
+    private volatile long unsavedBalance; // Change made to the balance since it was last written, only modified through UNSAVED
+    private volatile String locale; // The player's preferred locale
+    private boolean localeChanged; // Whether the locale was set on this server and not written yet, guarded by this
+    private volatile long version; // Version of the stored row the profile is synchronized with
+    private volatile long storedBalance; // Stored balance as of that version, changes written by this server included
 
     /**
-     * Constructs an User object associated with the specified player and balance.
+     * Constructs an User object associated with the specified player, balance and locale.
      *
-     * @param player   The OfflinePlayer associated with this User model profile.
+     * @param uuid     The unique identifier of the player associated with this User model profile.
      * @param balance  The balance associated with the player's User model.
-     * @param balance  The locale associated with the player's User model.
+     * @param locale   The locale associated with the player's User model.
+     */
+    public User(UUID uuid, long balance, String locale) {
+        this(uuid, balance, locale, 0);
+    }
+
+    /**
+     * Constructs an User object read from the stored row at the specified version.
+     *
+     * @param uuid     The unique identifier of the player associated with this User model profile.
+     * @param balance  The stored balance of the player.
+     * @param locale   The locale associated with the player's User model.
+     * @param version  The version of the stored row.
      */
-    public User(OfflinePlayer player, int balance, String locale) {
-        this.player = player;
-        this.uuid = String.valueOf(player.getUniqueId());
+    public User(UUID uuid, long balance, String locale, long version) {
+        if (uuid == null) {
+            throw new NullPointerException("Provided UUID is null.");
+        }
+        this.uuid = uuid;
         this.balance = balance;
-        this.locale = locale;
+        this.locale = intern(locale);
+        this.version = version;
+        this.storedBalance = balance;
     }
 
     /**
@@ -31,8 +67,17 @@ public class User {
      *
      * @return The OfflinePlayer associated with this User model profile.
      */
-    public static OfflinePlayer getPlayer() {
-        return player;
+    public OfflinePlayer getPlayer() {
+        return Bukkit.getOfflinePlayer(uuid);
+    }
+
+    /**
+     * Retrieves the uuid associated with this player's User model.
+     *
+     * @return The unique identifier of the player.
+     */
+    public UUID getUuid() {
+        return uuid;
     }
 
     /**
@@ -40,44 +85,183 @@ public class User {
      *
      * @return The balance associated with this player's User model.
      */
-    public static int getBalance() {
+    public long getBalance() {
         return balance;
     }
 
     /**
      * Sets the balance associated with this player's User model.
+     * Prefer {@link #addBalance(long)} for relative changes, which cannot lose concurrent updates.
      *
      * @param balance The new balance to set for this player's User model.
      */
-    public static void setBalance(int balance) {
-        User.balance = balance;
+    public void setBalance(long balance) {
+        long previous = BALANCE.getAndSet(this, balance);
+        UNSAVED.addAndGet(this, balance - previous);
     }
 
     /**
-     * Retrieves the preferred locale (language) associated with this player's User model.
+     * Atomically adds the given amount to the balance associated with this player's User model.
      *
-     * @return The balance associated with this player's User model.
+     * @param amount The amount to add; negative to withdraw.
+     * @return The balance after the change.
      */
-    public static String getLocale() {
-        return locale;
+    public long addBalance(long amount) {
+        UNSAVED.addAndGet(this, amount);
+        return BALANCE.addAndGet(this, amount);
     }
 
     /**
-     * Retrieves the uuid associated with this player's User model.
+     * Atomically sets the balance to the given value if it currently equals the expected value.
      *
-     * @return The balance associated with this player's User model.
+     * @param expected The balance the caller expects.
+     * @param balance  The new balance to set.
+     * @return True if the balance was updated; false if it did not equal the expected value.
      */
-    public static String getUuid() {
-        return uuid;
+    public boolean compareAndSetBalance(long expected, long balance) {
+        if (!BALANCE.compareAndSet(this, expected, balance)) {
+            return false;
+        }
+        UNSAVED.addAndGet(this, balance - expected);
+        return true;
+    }
+
+    /**
+     * Atomically takes the change made to the balance since it was last taken, to be written to the database.
+     *
+     * @return The change to add to the stored balance.
+     */
+    public long drainBalanceChange() {
+        return UNSAVED.getAndSet(this, 0);
+    }
+
+    /**
+     * Puts back a change taken by {@link #drainBalanceChange()} that could not be written, so it is written later.
+     *
+     * @param change The change that could not be written.
+     */
+    public void restoreBalanceChange(long change) {
+        UNSAVED.addAndGet(this, change);
+    }
+
+    /**
+     * Retrieves the version of the stored row the profile is synchronized with.
+     * Writes only succeed against this version; a newer stored version means another server wrote the row.
+     *
+     * @return The version of the stored row.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the stored balance the profile is synchronized with, including the changes written by this server.
+     *
+     * @return The stored balance as of {@link #getVersion()}.
+     */
+    public long getStoredBalance() {
+        return storedBalance;
+    }
+
+    /**
+     * Records that a balance change was written to the stored row, which is now at the given version.
+     * The stored balance read before the write tells what other servers wrote since the last synchronization:
+     * that difference is added to the cached balance, without touching the unsaved change.
+     * Calls must be serialized with the other writes and refreshes of the profile.
+     *
+     * @param previousBalance The stored balance right before the write, as read under the row lock;
+     *                        {@link #getStoredBalance()} if the row was not modified elsewhere.
+     * @param change          The balance change that was written.
+     * @param version         The version of the stored row after the write.
+     */
+    public void synchronize(long previousBalance, long change, long version) {
+        long foreign = previousBalance - storedBalance;
+        if (foreign != 0) {
+            BALANCE.addAndGet(this, foreign);
+        }
+        this.storedBalance = previousBalance + change;
+        this.version = version;
+    }
+
+    /**
+     * Retrieves the preferred locale (language) associated with this player's User model.
+     *
+     * @return The locale associated with this player's User model.
+     */
+    public String getLocale() {
+        return locale;
     }
 
     /**
      * sets the preferred locale (language) associated with this player's User model.
+     * The locale is written with the next update of the profile.
      *
      * @param locale The locale to set for this player's User model.
      */
-    public static void setLocale(String locale) {
-        User.locale = locale;
+    public synchronized void setLocale(String locale) {
+        this.locale = intern(locale);
+        this.localeChanged = locale != null;
+    }
+
+    /**
+     * Takes the locale set on this server since it was last taken, to be written to the database.
+     *
+     * @return The locale to write, or null if it was not changed.
+     */
+    public synchronized String drainLocaleChange() {
+        if (!localeChanged) {
+            return null;
+        }
+        localeChanged = false;
+        return locale;
+    }
+
+    /**
+     * Puts back a locale taken by {@link #drainLocaleChange()} that could not be written, so it is written later.
+     * A locale set in the meantime is newer and kept.
+     *
+     * @param change The locale that could not be written, null if none was taken.
+     */
+    public synchronized void restoreLocaleChange(String change) {
+        if (change != null) {
+            localeChanged = true;
+        }
+    }
+
+    /**
+     * Takes over the locale stored in the database, such as one set by another server,
+     * unless a locale set on this server is not written yet.
+     *
+     * @param stored The stored locale.
+     */
+    public synchronized void synchronizeLocale(String stored) {
+        if (!localeChanged) {
+            this.locale = intern(stored);
+        }
+    }
+
+    /**
+     * Interns the locale, so the handful of distinct locale strings are shared by every cached User.
+     *
+     * @param locale The locale to intern, may be null.
+     * @return The canonical locale string, or null.
+     */
+    private static String intern(String locale) {
+        return locale == null ? null : locale.intern();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof User && uuid.equals(((User) other).uuid));
+    }
+
+    @Override
+    public int hashCode() {
+        return uuid.hashCode();
     }
-}
 
+    @Override
+    public String toString() {
+        return "User{uuid=" + uuid + ", balance=" + balance + ", locale=" + locale + ", version=" + version + "}";
+    }
+}
@@ -0,0 +1,21 @@
+package dev.relismdev.playlegendquests.progress;
+
+import dev.relismdev.playlegendquests.models.QuestProgress;
+import org.bukkit.entity.Player;
+
+/**
+ * Listener notified on the main thread whenever a player advances on a quest.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Called after the progress of a player on a quest was advanced.
+     * Use {@link QuestProgress#isCompleted()} to find out whether this completed the quest.
+     *
+     * @param player   The player who advanced.
+     * @param progress The progress entry, already updated.
+     * @param added    The amount added to the progress.
+     */
+    void onProgress(Player player, QuestProgress progress, int added);
+}
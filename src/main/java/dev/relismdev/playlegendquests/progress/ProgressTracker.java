@@ -0,0 +1,380 @@
+package dev.relismdev.playlegendquests.progress;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.cache.QuestRegistry;
+import dev.relismdev.playlegendquests.models.Objective;
+import dev.relismdev.playlegendquests.models.ObjectiveType;
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.models.QuestProgress;
+import dev.relismdev.playlegendquests.storage.DatabaseExecutor;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.utils.TimingWheel;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tracks the progress of online players on the quests they started.
+ * Active objectives are indexed per player by objective type and target, so a game event only touches
+ * the objectives waiting for exactly that event, and events of a type nobody tracks return right away.
+ * Progress is loaded off the main thread while players log in; tracking itself runs on the main thread
+ * and never touches the database, changes are written in batches by the {@link ProgressWriter}.
+ * <p>
+ * Deadlines of timed quests are kept in a {@link TimingWheel} advanced every tick, so expiring quests
+ * costs nothing while no deadline is due, however many timed quests are active.
+ * <p>
+ * A player relogging before their previous session quit has two sessions at once. The progress tracked for the previous session
+ * is newer than the one loaded for the new session, so it is handed over to the new session, whichever of joining and quitting comes first.
+ */
+public class ProgressTracker {
+
+    private static Playlegendquests main = Playlegendquests.getPlugin();
+    private static final Map<UUID, List<QuestProgress>> loaded = new ConcurrentHashMap<>(); // Loaded at pre-login, waiting for the join
+    private static final Map<UUID, PlayerObjectives> players = new HashMap<>(); // Main thread only
+    private static final int[] trackedByType = new int[ObjectiveType.values().length]; // Active objectives of each type, all players together
+    private static final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+    private static final long WHEEL_TICK_MILLIS = 50; // One server tick
+    private static final int WHEEL_SIZE = 64;
+    private static TimingWheel<QuestProgress> deadlines = new TimingWheel<>(WHEEL_TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis()); // Main thread only
+    private static BukkitTask expiryTask;
+
+    /**
+     * Starts expiring timed quests and loads the progress of the players already online,
+     * which never went through the login events.
+     */
+    public static void init() {
+        expiryTask = Bukkit.getScheduler().runTaskTimer(main, () -> deadlines.advance(System.currentTimeMillis(), ProgressTracker::expire), 1, 1);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            UUID uuid = player.getUniqueId();
+            DatabaseExecutor.supply(() -> load(uuid)).thenAccept(success -> {
+                if (success && player.isOnline()) {
+                    activate(player);
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads the progress of a player from the database, to be activated once they join.
+     * This method blocks on the database and must only be called off the main thread,
+     * typically from the AsyncPlayerPreLoginEvent.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return True if the progress was loaded; otherwise, false.
+     */
+    public static boolean load(UUID uuid) {
+        try {
+            loaded.put(uuid, DatabaseWrapper.getPlayerQuests(uuid));
+            return true;
+        } catch (SQLException e) {
+            // Leave the player untracked rather than letting them restart quests over their stored progress
+            msg.log("&#ff6961Failed to load quest progress of " + uuid + ": &#fdfd96" + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Starts tracking the progress loaded for a player. Must be called on the main thread once they joined.
+     *
+     * @param player The player who joined.
+     */
+    public static void activate(Player player) {
+        List<QuestProgress> progressList = loaded.remove(player.getUniqueId());
+        if (progressList == null) {
+            return; // Loading failed, the player stays untracked
+        }
+        PlayerObjectives previous = players.get(player.getUniqueId());
+        if (previous != null) {
+            // Relogged before the previous session quit, its progress is newer than the one loaded
+            previous.clear();
+            progressList = new ArrayList<>(previous.quests.values());
+        }
+        PlayerObjectives objectives = new PlayerObjectives(player);
+        for (QuestProgress progress : progressList) {
+            objectives.add(progress);
+        }
+        players.put(player.getUniqueId(), objectives);
+    }
+
+    /**
+     * Drops the progress loaded for a player whose login was denied.
+     *
+     * @param uuid The unique identifier of the player.
+     */
+    public static void discard(UUID uuid) {
+        loaded.remove(uuid);
+    }
+
+    /**
+     * Stops tracking a player once they leave and writes the pending progress in the background.
+     * If the player already logged in again, their progress is handed over to the new session instead.
+     * Must be called on the main thread.
+     *
+     * @param player The player who left.
+     */
+    public static void unload(Player player) {
+        UUID uuid = player.getUniqueId();
+        PlayerObjectives objectives = players.get(uuid);
+        if (objectives == null || objectives.player != player) {
+            return; // Untracked, or a newer session already took the progress over
+        }
+        players.remove(uuid);
+        objectives.clear();
+        // Replaces the progress loaded for a login waiting to join, read before this session's progress was written
+        loaded.replace(uuid, new ArrayList<>(objectives.quests.values()));
+        ProgressWriter.flush(); // Write their progress now, so it is stored before they can join again
+    }
+
+    /**
+     * Stops tracking every player. Their progress is written by the {@link ProgressWriter}.
+     */
+    public static void shutdown() {
+        if (expiryTask != null) {
+            expiryTask.cancel();
+            expiryTask = null;
+        }
+        for (PlayerObjectives objectives : players.values()) {
+            objectives.clear();
+        }
+        players.clear();
+        loaded.clear();
+        Arrays.fill(trackedByType, 0);
+    }
+
+    /**
+     * Starts a quest for a player, resetting their progress if they completed it before.
+     * Must be called on the main thread; the quest is stored with the next progress write.
+     *
+     * @param player The player starting the quest.
+     * @param quest  The quest to start, which must have an objective.
+     * @return True if the quest was started; false if the player's progress is not loaded or the quest is already active.
+     */
+    public static boolean start(Player player, Quest quest) {
+        PlayerObjectives objectives = players.get(player.getUniqueId());
+        if (objectives == null || quest.getObjective() == null || isActive(player.getUniqueId(), quest.getId())) {
+            return false;
+        }
+        QuestProgress previous = objectives.quests.get(quest.getId());
+        if (previous != null) {
+            objectives.remove(previous);
+        }
+        long expiresAt = quest.getDurationSeconds() > 0 ? System.currentTimeMillis() + quest.getDurationSeconds() * 1000 : 0;
+        objectives.add(new QuestProgress(player.getUniqueId(), quest.getId(), quest.getObjective(), 0, false, expiresAt));
+        ProgressWriter.recordStart(player.getUniqueId(), quest.getId(), expiresAt);
+        return true;
+    }
+
+    /**
+     * Checks whether a player is working on a quest.
+     *
+     * @param uuid    The unique identifier of the player.
+     * @param questId The unique identifier of the quest.
+     * @return True if the player started the quest and did not complete it nor run out of time yet; otherwise, false.
+     */
+    public static boolean isActive(UUID uuid, int questId) {
+        PlayerObjectives objectives = players.get(uuid);
+        QuestProgress progress = objectives == null ? null : objectives.quests.get(questId);
+        return progress != null && !progress.isCompleted() && !progress.isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Retrieves the progress of a player on every quest they started.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The progress entries of the player; an empty collection if they are not tracked.
+     */
+    public static Collection<QuestProgress> getProgress(UUID uuid) {
+        PlayerObjectives objectives = players.get(uuid);
+        return objectives == null ? Collections.emptyList() : Collections.unmodifiableCollection(objectives.quests.values());
+    }
+
+    /**
+     * Checks whether any online player has an active objective of the given type.
+     * Event handlers use it to return before doing any work for events nobody is waiting for.
+     *
+     * @param type The objective type.
+     * @return True if at least one active objective has the type; otherwise, false.
+     */
+    public static boolean isTracking(ObjectiveType type) {
+        return trackedByType[type.ordinal()] > 0;
+    }
+
+    /**
+     * Advances the active objectives of a player matching a game event. Must be called on the main thread.
+     *
+     * @param player The player who triggered the event.
+     * @param type   The objective type advanced by the event.
+     * @param target The material, entity type or world name of the event, as used by {@link Objective}.
+     * @param amount The amount to add to the matching objectives.
+     */
+    public static void handle(Player player, ObjectiveType type, String target, int amount) {
+        if (trackedByType[type.ordinal()] == 0) {
+            return;
+        }
+        PlayerObjectives objectives = players.get(player.getUniqueId());
+        if (objectives == null) {
+            return;
+        }
+        Map<String, List<QuestProgress>> byTarget = objectives.index.get(type);
+        if (byTarget == null) {
+            return;
+        }
+        advance(player, objectives, byTarget.get(target), amount);
+        advance(player, objectives, byTarget.get(Objective.ANY_TARGET), amount);
+    }
+
+    /**
+     * Registers a listener notified whenever a player advances on a quest.
+     *
+     * @param listener The listener to register.
+     */
+    public static void addListener(ProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Advances a list of matching objectives, unindexing the ones completed and congratulating the player.
+     *
+     * @param player     The player who triggered the event.
+     * @param objectives The indexed objectives of the player.
+     * @param matching   The objectives matching the event, or null if none.
+     * @param amount     The amount to add.
+     */
+    private static void advance(Player player, PlayerObjectives objectives, List<QuestProgress> matching, int amount) {
+        if (matching == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Backwards, so completed entries can be unindexed while iterating
+        for (int i = matching.size() - 1; i >= 0; i--) {
+            QuestProgress progress = matching.get(i);
+            if (progress.isExpired(now)) {
+                continue; // Out of time, removed on the next tick of the wheel
+            }
+            int added = progress.advance(amount);
+            if (added == 0) {
+                continue;
+            }
+            ProgressWriter.recordProgress(progress, added);
+            if (progress.isCompleted()) {
+                objectives.unindex(progress);
+                Quest quest = QuestRegistry.getQuest(progress.getQuestId());
+                msg.sendLocale(player, "quest_completed", quest == null ? progress.getQuestId() : quest.getName());
+            }
+            for (ProgressListener listener : listeners) {
+                listener.onProgress(player, progress, added);
+            }
+        }
+    }
+
+    /**
+     * Expires a timed quest whose deadline was reached, dropping its progress. Runs on the main thread, from the wheel.
+     *
+     * @param progress The progress entry that ran out of time.
+     */
+    private static void expire(QuestProgress progress) {
+        PlayerObjectives objectives = players.get(progress.getUuid());
+        if (objectives == null || objectives.quests.get(progress.getQuestId()) != progress) {
+            return; // Player left or restarted the quest in the meantime
+        }
+        objectives.remove(progress);
+        ProgressWriter.recordDrop(progress.getUuid(), progress.getQuestId());
+        Player player = Bukkit.getPlayer(progress.getUuid());
+        if (player != null) {
+            Quest quest = QuestRegistry.getQuest(progress.getQuestId());
+            msg.sendLocale(player, "quest_expired", quest == null ? progress.getQuestId() : quest.getName());
+        }
+    }
+
+    /**
+     * The quests of one player, with the active ones indexed by objective type and target
+     * and the deadlines of the timed ones scheduled in the wheel.
+     */
+    private static final class PlayerObjectives {
+
+        private final Player player; // The session the progress is tracked for
+        private final Map<Integer, QuestProgress> quests = new HashMap<>(); // Every started quest, by quest id
+        private final Map<ObjectiveType, Map<String, List<QuestProgress>>> index = new EnumMap<>(ObjectiveType.class); // Active quests only
+        private final Map<Integer, TimingWheel.Timeout<QuestProgress>> timeouts = new HashMap<>(); // Active timed quests only, by quest id
+
+        private PlayerObjectives(Player player) {
+            this.player = player;
+        }
+
+        /**
+         * Adds a progress entry, indexing it and scheduling its deadline if it is still active.
+         * A deadline that passed while the player was away expires on the next tick.
+         *
+         * @param progress The progress entry.
+         */
+        private void add(QuestProgress progress) {
+            quests.put(progress.getQuestId(), progress);
+            if (progress.isCompleted()) {
+                return;
+            }
+            if (progress.getExpiresAt() != 0) {
+                timeouts.put(progress.getQuestId(), deadlines.schedule(progress, progress.getExpiresAt()));
+            }
+            Objective objective = progress.getObjective();
+            index.computeIfAbsent(objective.getType(), type -> new HashMap<>())
+                    .computeIfAbsent(objective.getTarget(), target -> new ArrayList<>(2))
+                    .add(progress);
+            trackedByType[objective.getType().ordinal()]++;
+        }
+
+        /**
+         * Removes a progress entry entirely.
+         *
+         * @param progress The progress entry.
+         */
+        private void remove(QuestProgress progress) {
+            quests.remove(progress.getQuestId());
+            unindex(progress);
+        }
+
+        /**
+         * Removes a progress entry from the index and cancels its deadline, keeping it in the started quests.
+         *
+         * @param progress The progress entry.
+         */
+        private void unindex(QuestProgress progress) {
+            TimingWheel.Timeout<QuestProgress> timeout = timeouts.remove(progress.getQuestId());
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            Objective objective = progress.getObjective();
+            Map<String, List<QuestProgress>> byTarget = index.get(objective.getType());
+            List<QuestProgress> matching = byTarget == null ? null : byTarget.get(objective.getTarget());
+            if (matching == null || !matching.remove(progress)) {
+                return;
+            }
+            trackedByType[objective.getType().ordinal()]--;
+            if (matching.isEmpty()) {
+                byTarget.remove(objective.getTarget());
+            }
+        }
+
+        /**
+         * Unindexes every active entry, keeping the started quests so they can still be stored.
+         */
+        private void clear() {
+            for (QuestProgress progress : new ArrayList<>(quests.values())) {
+                unindex(progress);
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package dev.relismdev.playlegendquests.progress;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.models.ProgressDelta;
+import dev.relismdev.playlegendquests.models.QuestProgress;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer of quest progress.
+ * Every change made by the {@link ProgressTracker} is accumulated in memory as a delta per player and quest,
+ * and all deltas are written on a fixed interval as one batch of upserts, so the database sees one batch
+ * per interval no matter how many events advanced the quests.
+ * <p>
+ * Deltas are recorded and swapped out on the main thread, then written in order by a single writer thread.
+ * A batch that fails is merged into the next one by the writer thread, so it is retried without breaking
+ * the order of the writes, and the remaining deltas are written
+ * when the plugin is disabled. If the server crashes, the progress made during the last interval is lost;
+ * since deltas are added to the stored values, what was written before stays consistent and is never rolled back.
+ * A batch is written in one transaction, so a failed batch is never partially applied.
+ * Deltas violating a constraint of the database, such as progress on a quest deleted before it was written, are dropped.
+ */
+public class ProgressWriter {
+
+    private static Playlegendquests main = Playlegendquests.getPlugin();
+    private static final long DEFAULT_FLUSH_INTERVAL_TICKS = 20; // 1 second
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 10000; // 10 seconds
+    private static Map<UUID, Map<Integer, ProgressDelta>> pending = new HashMap<>(); // Main thread only
+    private static Map<UUID, Map<Integer, ProgressDelta>> failed; // Writer thread only, retried with the next batch
+    private static ExecutorService writer;
+    private static BukkitTask flushTask;
+    private static long shutdownTimeoutMillis = DEFAULT_SHUTDOWN_TIMEOUT_MILLIS; // How long shutdown waits for the last batch
+
+    /**
+     * Starts the writer thread and the timer flushing the deltas, using the interval from the plugin configuration.
+     */
+    public static void init() {
+        long interval = Math.max(1, main.getConfig().getLong("progress_flush_interval_ticks", DEFAULT_FLUSH_INTERVAL_TICKS));
+        initWriter();
+        flushTask = Bukkit.getScheduler().runTaskTimer(main, ProgressWriter::flush, interval, interval);
+    }
+
+    /**
+     * Starts the writer thread without the flush timer, used to run the writer outside of a server, such as in the tests.
+     * Deltas are then only handed over by {@link #flush()} and {@link #shutdown()}.
+     */
+    public static void initWriter() {
+        initWriter(DEFAULT_SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Starts the writer thread without the flush timer, with the given shutdown timeout,
+     * used to run the writer outside of a server, such as in the tests, without waiting for the default timeout.
+     *
+     * @param shutdownTimeoutMillis How long {@link #shutdown()} waits for the last batch, in milliseconds.
+     */
+    public static void initWriter(long shutdownTimeoutMillis) {
+        ProgressWriter.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PlaylegendQuests-ProgressWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Records that a player started or restarted a quest. Must be called on the main thread.
+     *
+     * @param uuid      The unique identifier of the player.
+     * @param questId   The unique identifier of the quest.
+     * @param expiresAt The deadline of the quest in epoch milliseconds, 0 for none.
+     */
+    public static void recordStart(UUID uuid, int questId, long expiresAt) {
+        delta(pending, uuid, questId).reset(expiresAt);
+    }
+
+    /**
+     * Records that the progress of a player on a quest was dropped, such as when it expired. Must be called on the main thread.
+     *
+     * @param uuid    The unique identifier of the player.
+     * @param questId The unique identifier of the quest.
+     */
+    public static void recordDrop(UUID uuid, int questId) {
+        delta(pending, uuid, questId).drop();
+    }
+
+    /**
+     * Records progress made by a player on a quest. Must be called on the main thread.
+     *
+     * @param progress The progress entry, already advanced.
+     * @param added    The amount added to the progress.
+     */
+    public static void recordProgress(QuestProgress progress, int added) {
+        delta(pending, progress.getUuid(), progress.getQuestId()).add(added, progress.isCompleted());
+    }
+
+    /**
+     * Hands every recorded delta over to the writer thread. Must be called on the main thread.
+     * Runs on the flush timer, and can be called to write the deltas earlier, such as when a player leaves.
+     */
+    public static void flush() {
+        if (pending.isEmpty() || writer == null) {
+            return;
+        }
+        Map<UUID, Map<Integer, ProgressDelta>> batch = pending;
+        pending = new HashMap<>();
+        writer.execute(() -> writeBatch(batch));
+    }
+
+    /**
+     * Stops the flush timer and writes the remaining deltas, after the batches being written.
+     * The last batch is written by the writer thread too, which owns the deltas of failed batches,
+     * and this method waits for it. Blocks on the database. Must be called on the main thread.
+     */
+    public static void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        Map<UUID, Map<Integer, ProgressDelta>> batch = pending;
+        pending = new HashMap<>();
+        if (writer == null) {
+            if (!batch.isEmpty() || failed != null) {
+                writeBatch(batch); // Never started, so no other thread touches the failed deltas
+            }
+            return;
+        }
+        writer.execute(() -> {
+            writeBatch(batch);
+            if (failed != null) {
+                msg.log("&#ff6961Could not write the quest progress of " + failed.size() + " player(s), it is lost.");
+            }
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                msg.log("&#ff6961Quest progress writer did not finish in time, the latest progress may be lost.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    /**
+     * Retrieves the delta of a player and quest from a set of deltas, creating it if needed.
+     *
+     * @param deltas  The deltas, by player and quest.
+     * @param uuid    The unique identifier of the player.
+     * @param questId The unique identifier of the quest.
+     * @return The delta of the player and quest.
+     */
+    private static ProgressDelta delta(Map<UUID, Map<Integer, ProgressDelta>> deltas, UUID uuid, int questId) {
+        Map<Integer, ProgressDelta> quests = deltas.get(uuid);
+        if (quests == null) {
+            quests = new HashMap<>(4);
+            deltas.put(uuid, quests);
+        }
+        ProgressDelta delta = quests.get(questId);
+        if (delta == null) {
+            delta = new ProgressDelta(uuid, questId);
+            quests.put(questId, delta);
+        }
+        return delta;
+    }
+
+    /**
+     * Writes a batch of deltas along with the deltas of the previously failed batch, if any.
+     * If the write fails, the deltas that could not be written are kept to be retried with the next batch. Blocks on the database.
+     * Must be called on the writer thread, or once it is terminated.
+     *
+     * @param batch The deltas to write.
+     */
+    private static void writeBatch(Map<UUID, Map<Integer, ProgressDelta>> batch) {
+        if (failed != null) {
+            // The failed changes happened first, merge them in before the newer ones
+            for (Map<Integer, ProgressDelta> quests : failed.values()) {
+                for (ProgressDelta older : quests.values()) {
+                    delta(batch, older.getUuid(), older.getQuestId()).mergeOlder(older);
+                }
+            }
+        }
+        failed = write(batch);
+    }
+
+    /**
+     * Writes a batch of deltas, logging failures. Blocks on the database.
+     * If the batch violates a constraint of the database, such as progress on a quest deleted in the meantime,
+     * the deltas are written one by one instead, so only the offending ones are dropped.
+     *
+     * @param batch The deltas to write.
+     * @return The deltas that could not be written and are to be retried, or null if every delta was written or dropped.
+     */
+    private static Map<UUID, Map<Integer, ProgressDelta>> write(Map<UUID, Map<Integer, ProgressDelta>> batch) {
+        List<ProgressDelta> deltas = new ArrayList<>();
+        for (Map<Integer, ProgressDelta> quests : batch.values()) {
+            deltas.addAll(quests.values());
+        }
+        try {
+            DatabaseWrapper.writeProgressDeltas(deltas);
+            return null;
+        } catch (SQLException e) {
+            if (!isConstraintViolation(e)) {
+                msg.log("&#ff6961Failed to write quest progress of " + batch.size() + " player(s): &#fdfd96" + e.getMessage());
+                return batch;
+            }
+        }
+        Map<UUID, Map<Integer, ProgressDelta>> retry = null;
+        for (ProgressDelta delta : deltas) {
+            try {
+                DatabaseWrapper.writeProgressDeltas(Collections.singletonList(delta));
+            } catch (SQLException e) {
+                if (isConstraintViolation(e)) {
+                    msg.log("&#ff6961Dropping the quest progress of " + delta.getUuid() + " on quest " + delta.getQuestId() + ": &#fdfd96" + e.getMessage());
+                    continue;
+                }
+                msg.log("&#ff6961Failed to write quest progress of " + delta.getUuid() + ": &#fdfd96" + e.getMessage());
+                if (retry == null) {
+                    retry = new HashMap<>();
+                }
+                retry.computeIfAbsent(delta.getUuid(), uuid -> new HashMap<>(4)).put(delta.getQuestId(), delta);
+            }
+        }
+        return retry;
+    }
+
+    /**
+     * Checks whether an exception, or one of the exceptions chained to it, reports a violated constraint,
+     * such as a foreign key, which writing the same data again cannot fix.
+     *
+     * @param e The exception to check.
+     * @return True if a constraint was violated; otherwise, false.
+     */
+    private static boolean isConstraintViolation(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("23")) { // Integrity constraint violation class
+                    return true;
+                }
+                SQLException next = ((SQLException) cause).getNextException();
+                if (next != null && next != cause.getCause() && isConstraintViolation(next)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,250 @@
+package dev.relismdev.playlegendquests.progress;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.cache.QuestRegistry;
+import dev.relismdev.playlegendquests.cache.UserCache;
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.models.QuestProgress;
+import dev.relismdev.playlegendquests.models.User;
+import dev.relismdev.playlegendquests.storage.DatabaseExecutor;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.sync.InvalidationBus;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pays out the rewards of completed quests.
+ * Coins are credited atomically: to the cached profile of the player when it is loaded, written by the {@link UserCache},
+ * or otherwise accumulated per player and added to the stored balances with one batch of relative updates.
+ * Balances are never read and written back, so simultaneous completions cannot lose coins.
+ * <p>
+ * Reward items are queued on the main thread and handed out a bounded number per tick, so hundreds of players
+ * completing a quest at once don't stall a single tick. Items of players who are offline by the time their turn
+ * comes are stored, and delivered the next time they join.
+ */
+public class RewardService implements ProgressListener {
+
+    private static Playlegendquests main = Playlegendquests.getPlugin();
+    private static final long DEFAULT_FLUSH_INTERVAL_TICKS = 100; // 5 seconds
+    private static final int DEFAULT_ITEMS_PER_TICK = 50;
+    private static final Map<UUID, Long> credits = new ConcurrentHashMap<>(); // Coins owed to players whose profile is not cached
+    private static final Deque<Delivery> deliveries = new ArrayDeque<>(); // Main thread only
+    private static int itemsPerTick;
+    private static BukkitTask flushTask;
+    private static BukkitTask deliveryTask;
+
+    /**
+     * Starts paying out the rewards of completed quests, using the intervals from the plugin configuration.
+     */
+    public static void init() {
+        long interval = Math.max(1, main.getConfig().getLong("reward_flush_interval_ticks", DEFAULT_FLUSH_INTERVAL_TICKS));
+        itemsPerTick = Math.max(1, main.getConfig().getInt("reward_items_per_tick", DEFAULT_ITEMS_PER_TICK));
+        flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(main, RewardService::flush, interval, interval);
+        deliveryTask = Bukkit.getScheduler().runTaskTimer(main, RewardService::deliverQueued, 1, 1);
+        ProgressTracker.addListener(new RewardService());
+    }
+
+    /**
+     * Grants the rewards of a quest once it is completed.
+     *
+     * @param player   The player who advanced on the quest.
+     * @param progress The progress entry of the quest.
+     * @param added    The amount added to the progress.
+     */
+    @Override
+    public void onProgress(Player player, QuestProgress progress, int added) {
+        if (!progress.isCompleted()) {
+            return;
+        }
+        Quest quest = QuestRegistry.getQuest(progress.getQuestId());
+        if (quest != null) {
+            grant(player.getUniqueId(), quest);
+        }
+    }
+
+    /**
+     * Grants the coins and item rewarded by a quest to a player, whether they are online or not.
+     * Must be called on the main thread.
+     *
+     * @param uuid  The unique identifier of the player.
+     * @param quest The quest whose rewards are granted.
+     */
+    public static void grant(UUID uuid, Quest quest) {
+        credit(uuid, quest.getReward_coins());
+        ItemStack itemStack = quest.getReward_item();
+        if (itemStack != null && !itemStack.getType().isAir()) {
+            deliveries.add(new Delivery(uuid, itemStack.clone()));
+        }
+    }
+
+    /**
+     * Adds coins to the balance of a player, whether they are online or not.
+     * Must be called on the main thread, so the profile cannot be unloaded while it is credited.
+     *
+     * @param uuid   The unique identifier of the player.
+     * @param amount The amount of coins to add.
+     */
+    public static void credit(UUID uuid, long amount) {
+        if (amount == 0) {
+            return;
+        }
+        User user = UserCache.get(uuid);
+        if (user != null) {
+            user.addBalance(amount);
+            UserCache.markDirty(uuid);
+        } else {
+            credits.merge(uuid, amount, Long::sum);
+        }
+    }
+
+    /**
+     * Takes the reward items stored for a player while they were offline and queues them for delivery.
+     * Must be called on the main thread, once the player joined.
+     *
+     * @param player The player who joined.
+     */
+    public static void claim(Player player) {
+        UUID uuid = player.getUniqueId();
+        DatabaseExecutor.supply(() -> {
+            try {
+                return DatabaseWrapper.claimPendingRewards(uuid);
+            } catch (SQLException e) {
+                msg.log("&#ff6961Failed to claim the pending rewards of " + uuid + ": &#fdfd96" + e.getMessage());
+                return Collections.<ItemStack>emptyList();
+            }
+        }).thenAccept(items -> {
+            for (ItemStack itemStack : items) {
+                deliveries.add(new Delivery(uuid, itemStack)); // Stored again if the player left in the meantime
+            }
+        });
+    }
+
+    /**
+     * Writes the coins owed to players whose profile is not cached, with one batch of relative updates.
+     * Credits that could not be written are put back, to be retried on the next flush.
+     */
+    public static void flush() {
+        if (credits.isEmpty()) {
+            return;
+        }
+        Map<UUID, Long> batch = new HashMap<>();
+        for (UUID uuid : credits.keySet()) {
+            Long amount = credits.remove(uuid); // Atomic, concurrent credits start a new entry
+            if (amount != null) {
+                batch.put(uuid, amount);
+            }
+        }
+        try {
+            DatabaseWrapper.creditBalances(batch);
+            msg.debug("Credited coins to " + batch.size() + " offline player(s).");
+            for (UUID uuid : batch.keySet()) {
+                InvalidationBus.publishUser(uuid, -1); // The player may be online on another server
+            }
+        } catch (SQLException e) {
+            msg.log("&#ff6961Failed to credit coins to " + batch.size() + " player(s): &#fdfd96" + e.getMessage());
+            for (Map.Entry<UUID, Long> entry : batch.entrySet()) {
+                credits.merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Stops the timers, hands out or stores every queued item and writes the coins owed.
+     * Blocks on the database. Must be called on the main thread, before the user profiles are written.
+     */
+    public static void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (deliveryTask != null) {
+            deliveryTask.cancel();
+            deliveryTask = null;
+        }
+        Map<UUID, List<ItemStack>> offline = deliver(Integer.MAX_VALUE);
+        if (!offline.isEmpty()) {
+            store(offline);
+        }
+        flush();
+    }
+
+    /**
+     * Hands out the items queued for this tick, storing the items of players who are offline in the background.
+     */
+    private static void deliverQueued() {
+        Map<UUID, List<ItemStack>> offline = deliver(itemsPerTick);
+        if (!offline.isEmpty()) {
+            DatabaseExecutor.supply(() -> store(offline));
+        }
+    }
+
+    /**
+     * Hands queued items out to their players, collecting the items of players who are offline.
+     *
+     * @param limit The maximum number of items to hand out.
+     * @return The items of the players who were offline, by player.
+     */
+    private static Map<UUID, List<ItemStack>> deliver(int limit) {
+        Map<UUID, List<ItemStack>> offline = new HashMap<>();
+        for (int i = 0; i < limit && !deliveries.isEmpty(); i++) {
+            Delivery delivery = deliveries.poll();
+            Player player = Bukkit.getPlayer(delivery.uuid);
+            if (player == null) {
+                offline.computeIfAbsent(delivery.uuid, uuid -> new ArrayList<>(1)).add(delivery.itemStack);
+                continue;
+            }
+            Map<Integer, ItemStack> leftovers = player.getInventory().addItem(delivery.itemStack);
+            if (!leftovers.isEmpty()) {
+                for (ItemStack leftover : leftovers.values()) {
+                    player.getWorld().dropItemNaturally(player.getLocation(), leftover);
+                }
+                msg.sendLocale(player, "quest_reward_dropped");
+            }
+        }
+        return offline;
+    }
+
+    /**
+     * Stores reward items for players who are offline. Blocks on the database.
+     *
+     * @param rewards The items to store, by player.
+     * @return True if the items were stored; otherwise, false.
+     */
+    private static boolean store(Map<UUID, List<ItemStack>> rewards) {
+        try {
+            DatabaseWrapper.addPendingRewards(rewards);
+            return true;
+        } catch (SQLException e) {
+            msg.log("&#ff6961Failed to store the reward items of " + rewards.size() + " offline player(s), they are lost: &#fdfd96" + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * A reward item waiting to be handed out to a player.
+     */
+    private static final class Delivery {
+
+        private final UUID uuid; // Unique identifier of the player
+        private final ItemStack itemStack; // Item to hand out, owned by the delivery
+
+        private Delivery(UUID uuid, ItemStack itemStack) {
+            this.uuid = uuid;
+            this.itemStack = itemStack;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dev.relismdev.playlegendquests.storage;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated, bounded executor running every blocking database call off the server main thread.
+ * Results are handed back to the main thread through the Bukkit scheduler, so callbacks attached
+ * to the returned futures can safely use the Bukkit API.
+ */
+public class DatabaseExecutor {
+
+    private static Playlegendquests main = Playlegendquests.getPlugin();
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 10000; // 10 seconds
+    private static ThreadPoolExecutor executor;
+    private static long shutdownTimeoutMillis = DEFAULT_SHUTDOWN_TIMEOUT_MILLIS; // How long shutdown waits for the queued tasks
+
+    /**
+     * Initializes the executor using the pool size and queue capacity from the plugin configuration.
+     */
+    public static void init() {
+        init(main.getConfig().getInt("db_executor_threads", DEFAULT_THREADS),
+                main.getConfig().getInt("db_executor_queue_size", DEFAULT_QUEUE_SIZE));
+    }
+
+    /**
+     * Initializes the executor with the given pool size and queue capacity, used to run the storage layer outside of a server.
+     * When the queue is full, tasks are rejected and their futures completed exceptionally, so blocking database calls
+     * never end up running on the submitting thread, which usually is the main thread.
+     *
+     * @param threads   The number of threads running database tasks.
+     * @param queueSize The number of tasks that can wait for a thread.
+     */
+    public static void init(int threads, int queueSize) {
+        init(threads, queueSize, DEFAULT_SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Initializes the executor with the given pool size, queue capacity and shutdown timeout,
+     * used to run the storage layer outside of a server, such as in the tests, without waiting for the default timeout.
+     *
+     * @param threads               The number of threads running database tasks.
+     * @param queueSize             The number of tasks that can wait for a thread.
+     * @param shutdownTimeoutMillis How long {@link #shutdown()} waits for the queued tasks, in milliseconds.
+     */
+    public static void init(int threads, int queueSize, long shutdownTimeoutMillis) {
+        DatabaseExecutor.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        int size = Math.max(1, threads);
+        executor = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                newThreadFactory(), (task, pool) -> ((DatabaseTask<?>) task).reject(pool.isShutdown() ? "the executor is shut down" : "the queue is full"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs a database task on the executor and completes the returned future on the server main thread.
+     * Never call {@code join()} or {@code get()} on the returned future from the main thread, as the
+     * completion itself is scheduled there.
+     *
+     * @param task The blocking database task to run.
+     * @param <T>  The type of the task result.
+     * @return A future completed on the main thread with the task result, or exceptionally if the task failed
+     * or was rejected, with a {@link RejectedExecutionException}.
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> task) {
+        DatabaseTask<T> databaseTask = new DatabaseTask<>(task);
+        ThreadPoolExecutor current = executor;
+        if (current == null) {
+            databaseTask.reject("the executor is not started");
+        } else {
+            current.execute(databaseTask);
+        }
+        return databaseTask.result;
+    }
+
+    /**
+     * Runs the given task on the server main thread.
+     * Runs it inline when already on the main thread, when the plugin is disabled, since the scheduler
+     * rejects tasks from disabled plugins, or when running outside of a server.
+     *
+     * @param task The task to run on the main thread.
+     */
+    public static void runSync(Runnable task) {
+        if (main == null || Bukkit.isPrimaryThread() || !main.isEnabled()) {
+            task.run();
+        } else {
+            Bukkit.getScheduler().runTask(main, task);
+        }
+    }
+
+    /**
+     * Stops accepting new tasks and waits for the queued ones to finish,
+     * so pending writes reach the database before the connection pool is closed.
+     * Tasks submitted afterwards, and tasks still queued when the timeout expires, are rejected.
+     */
+    public static void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                List<Runnable> dropped = executor.shutdownNow();
+                msg.log("&#ff6961Database executor did not finish pending tasks in time, dropping " + dropped.size() + " task(s).");
+                reject(dropped);
+            }
+        } catch (InterruptedException e) {
+            reject(executor.shutdownNow());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Rejects the tasks dropped by the executor while shutting down.
+     *
+     * @param dropped The tasks that never ran.
+     */
+    private static void reject(List<Runnable> dropped) {
+        for (Runnable task : dropped) {
+            ((DatabaseTask<?>) task).reject("the executor was shut down before it ran");
+        }
+    }
+
+    /**
+     * Creates the thread factory naming the executor threads, which makes them easy to spot in thread dumps.
+     *
+     * @return The thread factory for the database executor.
+     */
+    private static ThreadFactory newThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "PlaylegendQuests-DB-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A database task queued on the executor, along with the future handed to the caller.
+     *
+     * @param <T> The type of the task result.
+     */
+    private static class DatabaseTask<T> implements Runnable {
+
+        private final Supplier<T> task;
+        private final CompletableFuture<T> result = new CompletableFuture<>(); // Completed on the main thread
+
+        private DatabaseTask(Supplier<T> task) {
+            this.task = task;
+        }
+
+        /**
+         * Runs the task on an executor thread and hands its result back to the main thread.
+         */
+        @Override
+        public void run() {
+            T value;
+            try {
+                value = task.get();
+            } catch (Throwable e) {
+                runSync(() -> {
+                    msg.log("&#ff6961Database task failed: &#fdfd96" + e.getMessage());
+                    result.completeExceptionally(e);
+                });
+                return;
+            }
+            runSync(() -> result.complete(value));
+        }
+
+        /**
+         * Fails the task without running it.
+         *
+         * @param reason Why the task was not run.
+         */
+        private void reject(String reason) {
+            runSync(() -> {
+                msg.log("&#ff6961Database task rejected, " + reason + ".");
+                result.completeExceptionally(new RejectedExecutionException("Database task rejected, " + reason));
+            });
+        }
+    }
+}
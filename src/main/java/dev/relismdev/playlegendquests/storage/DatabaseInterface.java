@@ -1,24 +1,31 @@
 package dev.relismdev.playlegendquests.storage;
 
+import dev.relismdev.playlegendquests.cache.QuestRegistry;
 import dev.relismdev.playlegendquests.models.Quest;
 import dev.relismdev.playlegendquests.models.User;
 import dev.relismdev.playlegendquests.utils.msg;
-import org.bukkit.OfflinePlayer;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class DatabaseInterface {
 
     /**
-     * Attempts to create a new quest in the database.
+     * Attempts to create a new quest in the database and adds it to the {@link QuestRegistry}.
      *
      * @param quest The Quest object to be created in the database.
      * @return True if the creation is successful; otherwise, false.
      */
     public static boolean createQuest(Quest quest){
         try {
-            return DatabaseWrapper.createQuest(quest);
+            boolean created = DatabaseWrapper.createQuest(quest);
+            if (created) {
+                QuestRegistry.put(quest);
+            }
+            return created;
         } catch (SQLException e) {
             errorHandle(e);
             return false;
@@ -26,29 +33,41 @@ public class DatabaseInterface {
     }
 
     /**
-     * Retrieves a Quest object from the database based on the provided ID.
+     * Retrieves a Quest object based on the provided name, ignoring case.
+     * Served from the in-memory {@link QuestRegistry} without querying the database.
      *
      * @param name The name of the quest to retrieve.
-     * @return A Quest object containing the details of the requested quest if found; otherwise, null.
+     * @return A copy of the requested quest if found; otherwise, null.
      */
     public static Quest getQuest(String name){
-        try {
-            return DatabaseWrapper.getQuest(name);
-        } catch (SQLException e) {
-            errorHandle(e);
-            return null;
-        }
+        return QuestRegistry.getQuest(name);
     }
 
     /**
-     * Updates an existing quest in the database.
+     * Retrieves a Quest object based on the provided ID.
+     * Served from the in-memory {@link QuestRegistry} without querying the database.
+     *
+     * @param id The unique identifier of the quest to retrieve.
+     * @return A copy of the requested quest if found; otherwise, null.
+     */
+    public static Quest getQuest(int id){
+        return QuestRegistry.getQuest(id);
+    }
+
+    /**
+     * Updates an existing quest in the database and in the {@link QuestRegistry}.
+     * Fails if the quest was modified since it was read, see {@link #updateQuest(int, Consumer)} to retry on such conflicts.
      *
      * @param quest The modified Quest object to be updated in the database.
      * @return True if the update is successful; otherwise, false.
      */
     public static boolean updateQuest(Quest quest){
         try {
-            return DatabaseWrapper.updateQuest(quest);
+            boolean updated = DatabaseWrapper.updateQuest(quest);
+            if (updated) {
+                QuestRegistry.put(quest);
+            }
+            return updated;
         } catch (SQLException e) {
             errorHandle(e);
             return false;
@@ -56,14 +75,39 @@ public class DatabaseInterface {
     }
 
     /**
-     * Deletes a quest from the database based on the provided ID.
+     * Applies a change to the latest stored version of a quest, retrying if another server updates it in between,
+     * and puts the result in the {@link QuestRegistry}.
+     *
+     * @param id     The unique identifier of the quest to update.
+     * @param change The change to apply, possibly more than once, each time on a fresh copy of the quest.
+     * @return The updated quest; null if the quest doesn't exist or the update failed.
+     */
+    public static Quest updateQuest(int id, Consumer<Quest> change){
+        try {
+            Quest updated = DatabaseWrapper.updateQuest(id, change);
+            if (updated != null) {
+                QuestRegistry.put(updated);
+            }
+            return updated;
+        } catch (SQLException e) {
+            errorHandle(e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a quest from the database and from the {@link QuestRegistry} based on the provided ID.
      *
      * @param id The unique identifier of the quest to be deleted.
      * @return True if the deletion is successful; otherwise, false.
      */
-    public static boolean deleteQuest(String id){
+    public static boolean deleteQuest(int id){
         try {
-            return DatabaseWrapper.deleteQuest(id);
+            boolean deleted = DatabaseWrapper.deleteQuest(id);
+            if (deleted) {
+                QuestRegistry.remove(id);
+            }
+            return deleted;
         } catch (SQLException e) {
             errorHandle(e);
             return false;
@@ -71,13 +115,25 @@ public class DatabaseInterface {
     }
 
     /**
-     * Retrieves a list of Quest objects from the database.
+     * Retrieves a list of every Quest object.
+     * Served from the in-memory {@link QuestRegistry} without querying the database.
      *
-     * @return A List containing Quest objects; returns null in case of an error.
+     * @return A List containing a copy of every quest.
      */
     public static List<Quest> getQuests(){
+        return QuestRegistry.getQuests();
+    }
+
+    /**
+     * Retrieves a page of quests ordered by id, starting right after the given id.
+     *
+     * @param afterId The id after which the page starts; 0 for the first page.
+     * @param limit   The maximum number of quests in the page.
+     * @return A List containing the quests of the page; returns null in case of an error.
+     */
+    public static List<Quest> getQuestsPage(int afterId, int limit){
         try {
-            return DatabaseWrapper.getQuests();
+            return DatabaseWrapper.getQuestsPage(afterId, limit);
         } catch (SQLException e) {
             errorHandle(e);
             return null;
@@ -87,7 +143,7 @@ public class DatabaseInterface {
     /**
      * Attempts to create a new user in the database.
      *
-     * @param user The Quest object to be created in the database.
+     * @param user The User object to be created in the database.
      * @return True if the creation is successful; otherwise, false.
      */
     public static boolean createUser(User user){
@@ -100,14 +156,14 @@ public class DatabaseInterface {
     }
 
     /**
-     * Retrieves an User object for the specified OfflinePlayer from the database.
+     * Retrieves an User object for the specified player from the database.
      *
-     * @param player The OfflinePlayer to retrieve the User object for.
+     * @param uuid The unique identifier of the player to retrieve the User object for.
      * @return The User object associated with the player; null if not found or an error occurs.
      */
-    public static User getUser(OfflinePlayer player){
+    public static User getUser(UUID uuid){
         try {
-            return DatabaseWrapper.getUser(player);
+            return DatabaseWrapper.getUser(uuid);
         } catch (SQLException e){
             errorHandle(e);
             return null;
@@ -129,6 +185,109 @@ public class DatabaseInterface {
         }
     }
 
+    /**
+     * Asynchronously creates a new quest in the database on the {@link DatabaseExecutor}.
+     *
+     * @param quest The Quest object to be created in the database.
+     * @return A future completed on the main thread with true if the creation is successful; otherwise, false.
+     */
+    public static CompletableFuture<Boolean> createQuestAsync(Quest quest){
+        return DatabaseExecutor.supply(() -> createQuest(quest));
+    }
+
+    /**
+     * Retrieves a Quest object based on the provided name as an already completed future.
+     * Kept for callers of the async API, the lookup is served from memory.
+     *
+     * @param name The name of the quest to retrieve.
+     * @return A completed future with a copy of the requested quest if found; otherwise, null.
+     */
+    public static CompletableFuture<Quest> getQuestAsync(String name){
+        return CompletableFuture.completedFuture(getQuest(name));
+    }
+
+    /**
+     * Asynchronously updates an existing quest in the database.
+     *
+     * @param quest The modified Quest object to be updated in the database.
+     * @return A future completed on the main thread with true if the update is successful; otherwise, false.
+     */
+    public static CompletableFuture<Boolean> updateQuestAsync(Quest quest){
+        return DatabaseExecutor.supply(() -> updateQuest(quest));
+    }
+
+    /**
+     * Applies a change to the latest stored version of a quest on the database executor, retrying on concurrent updates.
+     *
+     * @param id     The unique identifier of the quest to update.
+     * @param change The change to apply, possibly more than once, each time on a fresh copy of the quest.
+     * @return A future completed on the main thread with the updated quest, or null if it doesn't exist or the update failed.
+     */
+    public static CompletableFuture<Quest> updateQuestAsync(int id, Consumer<Quest> change){
+        return DatabaseExecutor.supply(() -> updateQuest(id, change));
+    }
+
+    /**
+     * Asynchronously deletes a quest from the database based on the provided ID.
+     *
+     * @param id The unique identifier of the quest to be deleted.
+     * @return A future completed on the main thread with true if the deletion is successful; otherwise, false.
+     */
+    public static CompletableFuture<Boolean> deleteQuestAsync(int id){
+        return DatabaseExecutor.supply(() -> deleteQuest(id));
+    }
+
+    /**
+     * Retrieves a list of every Quest object as an already completed future.
+     * Kept for callers of the async API, the list is served from memory.
+     *
+     * @return A completed future with a copy of every quest.
+     */
+    public static CompletableFuture<List<Quest>> getQuestsAsync(){
+        return CompletableFuture.completedFuture(getQuests());
+    }
+
+    /**
+     * Asynchronously retrieves a page of quests ordered by id, starting right after the given id.
+     *
+     * @param afterId The id after which the page starts; 0 for the first page.
+     * @param limit   The maximum number of quests in the page.
+     * @return A future completed on the main thread with the quests of the page; null in case of an error.
+     */
+    public static CompletableFuture<List<Quest>> getQuestsPageAsync(int afterId, int limit){
+        return DatabaseExecutor.supply(() -> getQuestsPage(afterId, limit));
+    }
+
+    /**
+     * Asynchronously creates a new user in the database.
+     *
+     * @param user The User object to be created in the database.
+     * @return A future completed on the main thread with true if the creation is successful; otherwise, false.
+     */
+    public static CompletableFuture<Boolean> createUserAsync(User user){
+        return DatabaseExecutor.supply(() -> createUser(user));
+    }
+
+    /**
+     * Asynchronously retrieves the User object for the specified player from the database.
+     *
+     * @param uuid The unique identifier of the player to retrieve the User object for.
+     * @return A future completed on the main thread with the User object; null if not found or an error occurs.
+     */
+    public static CompletableFuture<User> getUserAsync(UUID uuid){
+        return DatabaseExecutor.supply(() -> getUser(uuid));
+    }
+
+    /**
+     * Asynchronously updates an existing user in the database.
+     *
+     * @param user The modified User object to be updated in the database.
+     * @return A future completed on the main thread with true if the update is successful; otherwise, false.
+     */
+    public static CompletableFuture<Boolean> updateUserAsync(User user){
+        return DatabaseExecutor.supply(() -> updateUser(user));
+    }
+
     /**
      * Handles SQL Exceptions by logging them.
      *
@@ -1,85 +1,191 @@
 package dev.relismdev.playlegendquests.storage;
 
+import dev.relismdev.playlegendquests.models.EntityChange;
+import dev.relismdev.playlegendquests.models.Objective;
+import dev.relismdev.playlegendquests.models.ObjectiveType;
+import dev.relismdev.playlegendquests.models.ProgressDelta;
 import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.models.QuestProgress;
 import dev.relismdev.playlegendquests.models.User;
 import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import dev.relismdev.playlegendquests.storage.backend.MySqlBackend;
+import dev.relismdev.playlegendquests.storage.backend.StorageBackend;
+import dev.relismdev.playlegendquests.storage.migration.MigrationRunner;
+import dev.relismdev.playlegendquests.utils.ItemUtils;
+import dev.relismdev.playlegendquests.utils.UuidUtils;
 import dev.relismdev.playlegendquests.utils.msg;
-import org.bukkit.OfflinePlayer;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.File;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+import static dev.relismdev.playlegendquests.utils.ItemUtils.decodeItemStack;
+import static dev.relismdev.playlegendquests.utils.ItemUtils.decodeQuestItem;
 import static dev.relismdev.playlegendquests.utils.ItemUtils.deserializeItemStack;
-import static dev.relismdev.playlegendquests.utils.ItemUtils.serializeItemStack;
+import static dev.relismdev.playlegendquests.utils.ItemUtils.encodeItemStack;
+import static dev.relismdev.playlegendquests.utils.ItemUtils.encodeQuestItem;
 
 public class DatabaseWrapper {
 
     private static Playlegendquests main = Playlegendquests.getPlugin();
-    private static String DB_URL;
-    private static String DB_USER;
-    private static String DB_PASSWORD;
-    private static String DB_NAME; // Added field for the database name
-    private static int MAX_CONNECTIONS = 10;
-    private static BlockingQueue<Connection> connectionPool;
+    private static StorageBackend backend; // Database the data is stored in
+    private static HikariDataSource dataSource;
+    private static final String SELECT_QUESTS = "SELECT id, name, description, reward_coins, reward_item, reward_item_data, objective_type, objective_target, objective_amount, duration_seconds, version FROM quests";
+    private static final int QUEST_FETCH_SIZE = 500;
+    private static final int MAX_UPDATE_ATTEMPTS = 5; // Read-modify-write attempts before giving up on a contended row
+
+    // Pool metrics not exposed by the pool itself
+    private static final LongAdder acquisitions = new LongAdder();
+    private static final LongAdder acquireTimeouts = new LongAdder();
+    private static final LongAdder totalWaitNanos = new LongAdder();
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
+    private static final LongAdder versionConflicts = new LongAdder(); // Writes rejected because the row was updated first elsewhere
 
     /**
-     * Initializes the database connection settings, creates connection pool,
+     * Initializes the storage backend selected in the plugin configuration, creates connection pool,
      * and sets up required database tables for quests and Users.
      * Retrieves database connection settings directly from the plugin configuration.
+     *
+     * @return True if the database schema is up to date; false if it could not be migrated, in which case the plugin must not start.
      */
-    public static void init() {
-        DB_URL = main.getConfig().getString("db_url");
-        DB_USER = main.getConfig().getString("db_username");
-        DB_PASSWORD = main.getConfig().getString("db_password");
-        DB_NAME = main.getConfig().getString("db_name");
+    public static boolean init() {
+        if (!ItemUtils.setCodec(main.getConfig().getString("item_codec", "paper"))) {
+            msg.log("Unknown item_codec in config.yml, using the default codec.");
+        }
+        backend = createBackend();
         initializeConnectionPool();
-        createQuestsTable();
-        createUsersTable();
+        return createTables();
     }
 
     /**
-     * Initializes the connection pool by creating database connections and adding them to the pool.
-     * This method attempts to create the maximum allowed number of connections.
-     * Any failed connection attempts will be logged.
+     * Initializes the given storage backend with the default pool settings, without reading
+     * the plugin configuration, and sets up the required tables.
+     * Used to run the storage layer outside of a server, such as against an embedded database in the benchmarks.
+     *
+     * @param storageBackend The backend to store the data in.
+     * @return True if the database schema is up to date; false if it could not be migrated.
      */
-    public static void initializeConnectionPool() {
-        boolean connectionEstablished = false; // Track if at least one connection was established
-        connectionPool = new LinkedBlockingQueue<>(MAX_CONNECTIONS);
-        for (int i = 0; i < MAX_CONNECTIONS; i++) {
-            try {
-                Connection connection = DriverManager.getConnection(getFullDBURL(), DB_USER, DB_PASSWORD);
-                connectionPool.offer(connection);
-                connectionEstablished = true;
-            } catch (SQLException e) {
-                msg.log("Failed to establish database connection: " + e.getMessage());
+    public static boolean init(StorageBackend storageBackend) {
+        backend = storageBackend;
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("PlaylegendQuests-Pool");
+        backend.configure(config);
+        startPool(config);
+        return createTables();
+    }
+
+    /**
+     * Creates the storage backend selected by {@code storage_type} in the plugin configuration.
+     * Falls back to MySQL if the type is unknown.
+     *
+     * @return The selected backend.
+     */
+    private static StorageBackend createBackend() {
+        String type = main.getConfig().getString("storage_type", MySqlBackend.NAME);
+        if (H2Backend.NAME.equalsIgnoreCase(type)) {
+            File file = new File(main.getConfig().getString("h2_file", "quests"));
+            if (!file.isAbsolute()) {
+                file = new File(main.getDataFolder(), file.getPath()); // Relative to the plugin folder
             }
+            return H2Backend.file(file, main.getConfig().getBoolean("h2_auto_server", false));
         }
+        if (!MySqlBackend.NAME.equalsIgnoreCase(type)) {
+            msg.log("Unknown storage_type in config.yml, using " + MySqlBackend.NAME + ".");
+        }
+        return new MySqlBackend(main.getConfig().getString("db_url"), main.getConfig().getString("db_name"),
+                main.getConfig().getString("db_username"), main.getConfig().getString("db_password"));
+    }
+
+    /**
+     * Retrieves the backend the data is stored in.
+     *
+     * @return The storage backend, or null before the database is initialized.
+     */
+    public static StorageBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Creates the required tables and migrates the schema and data stored by older versions, see {@link MigrationRunner}.
+     *
+     * @return True if the schema is up to date; false if a migration failed.
+     */
+    private static boolean createTables() {
+        return MigrationRunner.migrate(backend);
+    }
+
+    /**
+     * Initializes the connection pool of the storage backend using the pool settings from the plugin configuration.
+     * Connections are validated with {@link Connection#isValid(int)} when borrowed after being idle,
+     * idle connections above the minimum are evicted, and connections are retired before MySQL's
+     * {@code wait_timeout} closes them, so dead connections are replaced instead of handed out.
+     * The pool starts even if the database is unreachable and reconnects once it comes back.
+     */
+    public static void initializeConnectionPool() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("PlaylegendQuests-Pool");
+        backend.configure(config);
+        config.setMinimumIdle(main.getConfig().getInt("db_pool_min_idle", 2));
+        config.setMaximumPoolSize(main.getConfig().getInt("db_pool_max_size", 10));
+        config.setConnectionTimeout(main.getConfig().getLong("db_pool_acquire_timeout_ms", 5000));
+        config.setValidationTimeout(main.getConfig().getLong("db_pool_validation_timeout_ms", 3000));
+        config.setIdleTimeout(main.getConfig().getLong("db_pool_idle_timeout_ms", 600000));
+        config.setMaxLifetime(main.getConfig().getLong("db_pool_max_lifetime_ms", 1800000));
+        config.setKeepaliveTime(main.getConfig().getLong("db_pool_keepalive_ms", 300000));
+        config.setInitializationFailTimeout(-1); // Start even if the database is down, connections are created once it is reachable
+        startPool(config);
+    }
 
-        if (connectionEstablished) {
-            msg.log("Database connection established.");
+    /**
+     * Starts the connection pool with the given settings, logging failures.
+     *
+     * @param config The pool settings.
+     */
+    private static void startPool(HikariConfig config) {
+        try {
+            dataSource = new HikariDataSource(config);
+            msg.log("Database connection pool started (" + backend.getName() + ").");
+        } catch (RuntimeException e) {
+            msg.log("Failed to start database connection pool: " + e.getMessage());
         }
     }
 
     /**
      * Retrieves a database connection from the connection pool.
-     * This method acquires an available database connection from the pool, if present.
-     * If a connection is available, it is retrieved and logged as obtained from the pool.
-     * If no connection is immediately available, this method waits until one becomes available.
+     * The pool validates the connection before handing it out and replaces it if it is dead.
+     * If no connection becomes available within the configured acquire timeout, an exception is thrown
+     * instead of blocking the calling thread forever.
      *
-     * @return A database connection object retrieved from the pool if available; otherwise, null.
+     * @return A valid database connection retrieved from the pool.
+     * @throws SQLException If the pool is not running or no connection became available in time.
      */
-    public static Connection getConnection() {
+    public static Connection getConnection() throws SQLException {
+        if (dataSource == null || dataSource.isClosed()) {
+            throw new SQLException("Database connection pool is not running.");
+        }
+        long start = System.nanoTime();
         try {
-            Connection connection = connectionPool.take();
-            msg.log("Database connection retrieved from pool.");
+            Connection connection = dataSource.getConnection();
+            recordWait(System.nanoTime() - start);
+            msg.debug("Database connection retrieved from pool.");
             return connection;
-        } catch (InterruptedException e) {
-            msg.log("Interrupted while getting a database connection: " + e.getMessage());
-            return null;
+        } catch (SQLTransientConnectionException e) {
+            acquireTimeouts.increment();
+            throw e;
         }
     }
 
@@ -96,9 +202,9 @@ public class DatabaseWrapper {
     public static void releaseConnection(Connection connection) {
         if (connection != null) {
             try {
-                connectionPool.offer(connection);
-                msg.log("Database connection released back to pool.");
-            } catch (Exception e) {
+                connection.close(); // Closing a pooled connection hands it back to the pool
+                msg.debug("Database connection released back to pool.");
+            } catch (SQLException e) {
                 msg.log("Failed to release database connection: " + e.getMessage());
             }
         }
@@ -106,154 +212,236 @@ public class DatabaseWrapper {
 
 
     /**
-     * Closes all the database connections currently present in the connection pool.
-     * It iterates through the connection pool, attempts to close each connection,
-     * and logs the outcome of the closure operation.
-     *
+     * Closes the connection pool and every database connection it holds.
      */
     public static void closeConnections() {
-        for (Connection connection : connectionPool) {
-            try {
-                connection.close();
-                msg.log("Database connection closed.");
-            } catch (SQLException e) {
-                msg.log("Failed to close database connection: " + e.getMessage());
-            }
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+            msg.log("Database connections closed.");
         }
     }
 
-
     /**
-     * Creates the 'quests' table in the connected database if it doesn't already exist.
-     * The table includes columns for quest details: ID, name, description, reward coins, and reward item.
-     * If the table creation fails or an SQL exception occurs during execution, it logs an error.
+     * Retrieves a snapshot of the connection pool metrics.
      *
-     * @throws SQLException If an SQL exception occurs during table creation or execution.
+     * @return The current pool metrics; all zeros if the pool is not running.
      */
-    private static void createQuestsTable() {
-        try (Connection connection = getConnection();
-             Statement statement = connection.createStatement()) {
-
-            String initializeQuestsTableQuery = "CREATE TABLE IF NOT EXISTS quests (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), description TEXT, reward_coins BIGINT, reward_item TEXT)";
-            statement.execute(initializeQuestsTableQuery);
-
-            releaseConnection(connection);
-        } catch (SQLException e) {
-            // Log error if table creation fails
-            msg.log("Failed to create 'quests' table: " + e.getMessage());
+    public static PoolStats getPoolStats() {
+        long acquired = acquisitions.sum();
+        double averageWait = acquired == 0 ? 0 : totalWaitNanos.sum() / (double) acquired / 1_000_000d;
+        double maxWait = maxWaitNanos.get() / 1_000_000d;
+        HikariPoolMXBean pool = dataSource == null ? null : dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return new PoolStats(0, 0, 0, 0, acquired, acquireTimeouts.sum(), averageWait, maxWait);
         }
+        return new PoolStats(pool.getActiveConnections(), pool.getIdleConnections(), pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection(), acquired, acquireTimeouts.sum(), averageWait, maxWait);
     }
 
     /**
-     * Creates the 'users' table in the connected database if it doesn't already exist.
-     * The table includes columns for player UUID as primary key, balance and preferred locale (language).
-     * If the table creation fails or an SQL exception occurs during execution, it logs an error.
+     * Retrieves the number of quest and user writes rejected since startup because the row was updated first
+     * by someone else, such as another server sharing the database.
      *
-     * @throws SQLException If an SQL exception occurs during table creation or execution.
+     * @return The number of version conflicts.
      */
-    private static void createUsersTable() {
-        try (Connection connection = getConnection();
-             Statement statement = connection.createStatement()) {
+    public static long getVersionConflicts() {
+        return versionConflicts.sum();
+    }
+
+    /**
+     * Records the time a thread spent waiting for a connection.
+     *
+     * @param waitNanos The wait time in nanoseconds.
+     */
+    private static void recordWait(long waitNanos) {
+        acquisitions.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
 
-            String initializeUsersTableQuery = "CREATE TABLE IF NOT EXISTS users (uuid VARCHAR(36) PRIMARY KEY, balance BIGINT, locale VARCHAR(5))";
-            statement.execute(initializeUsersTableQuery);
 
+    /**
+     * Borrows a connection from the pool, runs the given work on it and always hands the connection back,
+     * whether the work returns normally, returns early or throws.
+     * Statements and result sets opened by the work must be closed by it, ideally with try-with-resources.
+     * <p>
+     * Prepared statements are not cached here: each call prepares its statements again, and reusing them is left
+     * to the backend. The MySQL backend has the driver cache them per connection, so preparing a known query is
+     * a local lookup; H2 only keeps its own small cache of parsed queries per session.
+     *
+     * @param work The database work to run.
+     * @param <T>  The type of the result produced by the work.
+     * @return The result of the work.
+     * @throws SQLException If no connection could be borrowed or the work failed.
+     */
+    public static <T> T withConnection(SqlFunction<T> work) throws SQLException {
+        Connection connection = getConnection();
+        try {
+            return work.apply(connection);
+        } finally {
             releaseConnection(connection);
-        } catch (SQLException e) {
-            // Log error if table creation fails
-            msg.log("Failed to create 'users' table: " + e.getMessage());
         }
     }
 
     /**
-     * Retrieves a Quest object from the database based on the provided ID.
-     * This method executes a database query to fetch quest details associated with the given ID.
+     * Retrieves a Quest object from the database based on the provided name.
+     * This method executes a database query to fetch quest details associated with the given name.
      * If found, it constructs and returns a Quest object encapsulating the retrieved data.
-     * If not found or if an error occurs during the database query, it returns null.
      *
      * @param name The name of the quest to retrieve.
      * @return A Quest object containing the details of the requested quest if found; otherwise, null.
+     * @throws SQLException If an SQL exception occurs during the retrieval process.
      */
     public static Quest getQuest(String name) throws SQLException {
-        String query = "SELECT * FROM quests WHERE name = ?";
-        Connection connection = getConnection();
-        PreparedStatement statement = connection.prepareStatement(query);
-        statement.setString(1, name);
-        ResultSet resultSet = statement.executeQuery();
-
-        if (resultSet.next()) {
-            String questId = resultSet.getString("id");
-            String description = resultSet.getString("description");
-            int rewardCoins = resultSet.getInt("reward_coins");
-            String serializedItem = resultSet.getString("reward_item"); // Assuming reward_item is stored as a serialized string
-
-            ItemStack rewardItem = deserializeItemStack(serializedItem);
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_QUESTS + " WHERE name = ?")) {
+                statement.setString(1, name);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? readQuest(resultSet) : null;
+                }
+            }
+        });
+    }
 
-            return new Quest(name, description, rewardCoins, rewardItem);
-        }
-        releaseConnection(connection);
-        return null;
+    /**
+     * Retrieves a Quest object from the database based on the provided ID.
+     *
+     * @param id The unique identifier of the quest to retrieve.
+     * @return A Quest object containing the details of the requested quest if found; otherwise, null.
+     * @throws SQLException If an SQL exception occurs during the retrieval process.
+     */
+    public static Quest getQuest(int id) throws SQLException {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_QUESTS + " WHERE id = ?")) {
+                statement.setInt(1, id);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? readQuest(resultSet) : null;
+                }
+            }
+        });
     }
 
     /**
      * Inserts a new Quest object into the quests database table.
      *
      * This method constructs an INSERT query and executes it to add a new Quest object into the 'quests' table
-     * of the connected database. It serializes the reward_item ItemStack to store it as a base64 encoded string in the database.
+     * of the connected database. It encodes the reward_item ItemStack with the configured codec to store it in binary form.
+     * On success, the id assigned by the database is set on the provided Quest object.
      *
      * @param quest The Quest object to be inserted into the database.
      * @return True if the insertion is successful; otherwise, false.
-     * @throws NullPointerException If the provided Quest object is null.
-     * @throws IllegalStateException If there's a SQL exception during the insertion process.
+     * @throws SQLException If an SQL exception occurs during the insertion process, or the reward item could not be encoded.
      */
     public static boolean createQuest(Quest quest) throws SQLException {
-        String query = "INSERT INTO quests (name, description, reward_coins, reward_item) VALUES (?, ?, ?, ?)";
-        Connection connection = null;
-        PreparedStatement statement = null;
+        byte[] rewardItemData = encodeRewardItem(quest, false);
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO quests (name, description, reward_coins, reward_item_data, objective_type, objective_target, objective_amount, duration_seconds) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                statement.setString(1, quest.getName());
+                statement.setString(2, quest.getDescription());
+                statement.setLong(3, quest.getReward_coins());
+                statement.setBytes(4, rewardItemData);
+                setObjective(statement, 5, quest.getObjective());
+                statement.setLong(8, quest.getDurationSeconds());
 
-        connection = getConnection();
-        statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
-
-        statement.setString(1, quest.getName());
-        statement.setString(2, quest.getDescription());
-        statement.setInt(3, quest.getReward_coins());
-        statement.setString(4, serializeItemStack(quest.getReward_item()));
-
-        int rowsInserted = statement.executeUpdate();
-
-        releaseConnection(connection);
-        return rowsInserted > 0;
+                if (statement.executeUpdate() == 0) {
+                    return false;
+                }
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        quest.setId(generatedKeys.getInt(1)); // Hand the assigned id back to the caller
+                    }
+                }
+                quest.setVersion(0);
+                return true;
+            }
+        });
     }
 
     /**
-     * Updates an existing quest in the quests table.
+     * Updates an existing quest in the quests table, identified by its id so it can also be renamed.
+     * The update only applies if the stored quest is still at the version of the given quest, so an edit made
+     * in the meantime, such as by another server, is never overwritten. On success, the version of the quest is increased.
      *
      * @param quest The modified Quest object to be updated in the database.
-     * @return True if the update is successful; otherwise, false.
-     * @throws NullPointerException     If the provided Quest object is null.
-     * @throws IllegalStateException    If there's a SQL exception during the update process.
+     * @return True if the update is successful; false if the quest no longer exists or was modified since it was read.
+     * @throws NullPointerException If the provided Quest object is null.
+     * @throws SQLException         If an SQL exception occurs during the update process, or the reward item could not be encoded.
      */
     public static boolean updateQuest(Quest quest) throws SQLException {
         if (quest == null) {
             throw new NullPointerException("Provided Quest object is null.");
         }
 
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        connection = getConnection();
-        statement = connection.prepareStatement("UPDATE quests SET name = ?, description = ?, reward_coins = ?, reward_item = ? WHERE name = ?");
+        byte[] rewardItemData = encodeRewardItem(quest, true);
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE quests SET name = ?, description = ?, reward_coins = ?, reward_item = NULL, reward_item_data = ?, objective_type = ?, objective_target = ?, objective_amount = ?, duration_seconds = ?, version = version + 1 WHERE id = ? AND version = ?")) {
+                statement.setString(1, quest.getName());
+                statement.setString(2, quest.getDescription());
+                statement.setLong(3, quest.getReward_coins());
+                statement.setBytes(4, rewardItemData);
+                setObjective(statement, 5, quest.getObjective());
+                statement.setLong(8, quest.getDurationSeconds());
+                statement.setInt(9, quest.getId());
+                statement.setLong(10, quest.getVersion());
 
-        statement.setString(1, quest.getName());
-        statement.setString(2, quest.getDescription());
-        statement.setInt(3, quest.getReward_coins());
-        statement.setString(4, serializeItemStack(quest.getReward_item()));
-        statement.setString(5, quest.getName());
+                if (statement.executeUpdate() > 0) {
+                    quest.setVersion(quest.getVersion() + 1);
+                    return true;
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement("SELECT 1 FROM quests WHERE id = ?")) {
+                statement.setInt(1, quest.getId());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        versionConflicts.increment(); // Still there, so another update won
+                    }
+                }
+            }
+            return false;
+        });
+    }
 
-        int rowsAffected = statement.executeUpdate();
+    /**
+     * Encodes the reward item of a quest to be stored, failing rather than storing an item that could not be encoded as no item.
+     *
+     * @param quest  The quest whose reward item to encode.
+     * @param stored True if the quest is already stored, so the encoded data cached for it can be reused.
+     * @return The encoded reward item, or null if the quest has none.
+     * @throws SQLException If the reward item could not be encoded.
+     */
+    private static byte[] encodeRewardItem(Quest quest, boolean stored) throws SQLException {
+        if (quest.getReward_item() == null) {
+            return null;
+        }
+        byte[] data = stored ? encodeQuestItem(quest.getId(), quest.getReward_item()) : encodeItemStack(quest.getReward_item());
+        if (data == null) {
+            throw new SQLException("Failed to encode the reward item of the quest " + quest.getName() + ".");
+        }
+        return data;
+    }
 
-        releaseConnection(connection);
-        return rowsAffected > 0; // Returns true if at least one row was affected (updated)
+    /**
+     * Applies a change to the latest stored version of a quest and writes it back, reading the quest again
+     * and reapplying the change whenever another update gets in between, up to a bounded number of attempts.
+     * The change may therefore run more than once, each time on a fresh copy of the quest.
+     *
+     * @param id     The unique identifier of the quest to update.
+     * @param change The change to apply to the quest.
+     * @return The updated quest, or null if the quest doesn't exist.
+     * @throws SQLException If an SQL exception occurs during the update process, or every attempt conflicted.
+     */
+    public static Quest updateQuest(int id, Consumer<Quest> change) throws SQLException {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Quest quest = getQuest(id);
+            if (quest == null) {
+                return null;
+            }
+            change.accept(quest);
+            if (updateQuest(quest)) {
+                return quest;
+            }
+        }
+        throw new SQLException("Quest " + id + " kept being modified concurrently, gave up after " + MAX_UPDATE_ATTEMPTS + " attempts.");
     }
 
     /**
@@ -263,43 +451,231 @@ public class DatabaseWrapper {
      * @return True if the quest deletion is successful (at least one row affected); otherwise, false.
      * @throws SQLException If an SQL exception occurs during the deletion process.
      */
-    public static boolean deleteQuest(String id) throws SQLException {
-        Connection connection = getConnection();
-        PreparedStatement statement = connection.prepareStatement("DELETE FROM quests WHERE id = ?");
-        statement.setString(1, id);
+    public static boolean deleteQuest(int id) throws SQLException {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM quests WHERE id = ?")) {
+                statement.setInt(1, id);
 
-        int rowsAffected = statement.executeUpdate();
-        releaseConnection(connection);
-
-        return rowsAffected > 0;
+                return statement.executeUpdate() > 0;
+            }
+        });
     }
 
     /**
      * Retrieves a list of all quests available from the 'quests' table in the database.
-     * Executes an SQL SELECT query to obtain all quest IDs, then fetches each individual quest
-     * using the 'getQuest' method and constructs a list of Quest objects.
+     * All quests are read with a single query, see {@link #forEachQuest(Consumer)}.
      *
      * @return A List containing all available quests from the 'quests' table; an empty list if no quests are found.
      * @throws SQLException If an SQL exception occurs during the retrieval process.
      */
     public static List<Quest> getQuests() throws SQLException {
         List<Quest> questList = new ArrayList<>();
-        Connection connection = getConnection();
-        PreparedStatement statement = connection.prepareStatement("SELECT id FROM quests");
-
-        ResultSet resultSet = statement.executeQuery();
-        while (resultSet.next()) {
-            String questId = resultSet.getString("id");
-            Quest quest = getQuest(questId);
-            if (quest != null) {
-                questList.add(quest);
-            } else {
-                // Handling might be necessary here for cases where a quest is not retrieved
-                // or for any exceptional situations.
+        forEachQuest(questList::add);
+        return questList;
+    }
+
+    /**
+     * Streams every quest of the 'quests' table to the given consumer using a single forward-only query.
+     * Rows are fetched from the server in fixed-size chunks instead of being buffered all at once,
+     * so large catalogs are read with one connection and bounded memory.
+     *
+     * @param consumer The consumer receiving each quest, in id order.
+     * @throws SQLException If an SQL exception occurs during the retrieval process.
+     */
+    public static void forEachQuest(Consumer<Quest> consumer) throws SQLException {
+        withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_QUESTS + " ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(QUEST_FETCH_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(readQuest(resultSet));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves a page of quests ordered by id, starting right after the given id.
+     * Uses keyset pagination, so every page costs the same regardless of how deep into the catalog it is:
+     * pass 0 for the first page, then the id of the last quest of the previous page.
+     *
+     * @param afterId The id after which the page starts; 0 for the first page.
+     * @param limit   The maximum number of quests in the page.
+     * @return The quests of the page; an empty list once the end of the catalog is reached.
+     * @throws SQLException If an SQL exception occurs during the retrieval process.
+     */
+    public static List<Quest> getQuestsPage(int afterId, int limit) throws SQLException {
+        return withConnection(connection -> {
+            List<Quest> page = new ArrayList<>(Math.min(limit, QUEST_FETCH_SIZE));
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_QUESTS + " WHERE id > ? ORDER BY id LIMIT ?")) {
+                statement.setInt(1, afterId);
+                statement.setInt(2, limit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        page.add(readQuest(resultSet));
+                    }
+                }
             }
+            return page;
+        });
+    }
+
+    /**
+     * Builds a Quest object from the current row of a result set selected with {@link #SELECT_QUESTS}.
+     *
+     * @param resultSet The result set positioned on a quest row.
+     * @return The Quest object for the row.
+     * @throws SQLException If a column cannot be read.
+     */
+    private static Quest readQuest(ResultSet resultSet) throws SQLException {
+        int id = resultSet.getInt("id");
+        String name = resultSet.getString("name");
+        String description = resultSet.getString("description");
+        long rewardCoins = resultSet.getLong("reward_coins");
+        byte[] itemData = resultSet.getBytes("reward_item_data");
+        String legacyItem = resultSet.getString("reward_item"); // Only set on rows not migrated yet
+
+        ItemStack rewardItem = null;
+        if (itemData != null) {
+            rewardItem = decodeQuestItem(id, itemData);
+        } else if (legacyItem != null) {
+            rewardItem = deserializeItemStack(legacyItem);
         }
-        releaseConnection(connection);
-        return questList;
+
+        Quest quest = new Quest(id, name, description, rewardCoins, rewardItem);
+        quest.setObjective(readObjective(resultSet));
+        quest.setDurationSeconds(resultSet.getLong("duration_seconds"));
+        quest.setVersion(resultSet.getLong("version"));
+        return quest;
+    }
+
+    /**
+     * Builds the Objective of a quest from the objective columns of the current row of a result set.
+     *
+     * @param resultSet The result set positioned on a row holding the objective columns.
+     * @return The Objective for the row, or null if the quest has none or its type is unknown.
+     * @throws SQLException If a column cannot be read.
+     */
+    private static Objective readObjective(ResultSet resultSet) throws SQLException {
+        ObjectiveType type = ObjectiveType.fromName(resultSet.getString("objective_type"));
+        int amount = resultSet.getInt("objective_amount");
+        if (type == null || amount <= 0) {
+            return null;
+        }
+        return new Objective(type, resultSet.getString("objective_target"), amount);
+    }
+
+    /**
+     * Sets the three objective parameters of a statement, starting at the given index: type, target and amount.
+     *
+     * @param statement The statement to set the parameters of.
+     * @param index     The index of the objective type parameter.
+     * @param objective The objective, or null if the quest has none.
+     * @throws SQLException If a parameter cannot be set.
+     */
+    private static void setObjective(PreparedStatement statement, int index, Objective objective) throws SQLException {
+        if (objective == null) {
+            statement.setNull(index, Types.VARCHAR);
+            statement.setNull(index + 1, Types.VARCHAR);
+            statement.setNull(index + 2, Types.INTEGER);
+        } else {
+            statement.setString(index, objective.getType().name());
+            statement.setString(index + 1, objective.getTarget());
+            statement.setInt(index + 2, objective.getAmount());
+        }
+    }
+
+    /**
+     * Retrieves the progress of a player on every quest they started, along with the objective of each quest.
+     * Rows of quests that no longer exist or have no objective are skipped.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The progress entries of the player; an empty list if they never started a quest.
+     * @throws SQLException If an SQL exception occurs during the retrieval process.
+     */
+    public static List<QuestProgress> getPlayerQuests(UUID uuid) throws SQLException {
+        return withConnection(connection -> {
+            List<QuestProgress> progressList = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pq.quest_id, pq.progress, pq.completed, pq.expires_at, q.objective_type, q.objective_target, q.objective_amount FROM player_quests pq JOIN quests q ON q.id = pq.quest_id WHERE pq.uuid = ?")) {
+                statement.setBytes(1, UuidUtils.toBytes(uuid));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Objective objective = readObjective(resultSet);
+                        if (objective != null) {
+                            progressList.add(new QuestProgress(uuid, resultSet.getInt("quest_id"), objective, resultSet.getInt("progress"), resultSet.getBoolean("completed"), resultSet.getLong("expires_at")));
+                        }
+                    }
+                }
+            }
+            return progressList;
+        });
+    }
+
+    /**
+     * Writes changes made to the progress of players on their quests, in a single transaction.
+     * Restarted quests replace the stored progress and deadline, dropped ones are deleted, and other changes
+     * are added to the stored progress, so writing a delta never overwrites progress stored by an earlier write.
+     * Each kind is sent as one JDBC batch.
+     *
+     * @param deltas The progress changes to write.
+     * @throws SQLException If an SQL exception occurs during the write process, in which case nothing is written.
+     */
+    public static void writeProgressDeltas(Collection<ProgressDelta> deltas) throws SQLException {
+        withConnection(connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement resets = connection.prepareStatement("INSERT INTO player_quests (uuid, quest_id, progress, completed, expires_at) VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE progress = VALUES(progress), completed = VALUES(completed), expires_at = VALUES(expires_at)");
+                 PreparedStatement increments = connection.prepareStatement("INSERT INTO player_quests (uuid, quest_id, progress, completed) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE progress = progress + VALUES(progress), completed = completed OR VALUES(completed)");
+                 PreparedStatement drops = connection.prepareStatement("DELETE FROM player_quests WHERE uuid = ? AND quest_id = ?")) {
+                int resetCount = 0;
+                int incrementCount = 0;
+                int dropCount = 0;
+                for (ProgressDelta delta : deltas) {
+                    if (delta.isDropped()) {
+                        drops.setBytes(1, UuidUtils.toBytes(delta.getUuid()));
+                        drops.setInt(2, delta.getQuestId());
+                        drops.addBatch();
+                        dropCount++;
+                        continue;
+                    }
+                    PreparedStatement statement = delta.isReset() ? resets : increments;
+                    statement.setBytes(1, UuidUtils.toBytes(delta.getUuid()));
+                    statement.setInt(2, delta.getQuestId());
+                    statement.setInt(3, delta.getProgress());
+                    statement.setBoolean(4, delta.isCompleted());
+                    if (delta.isReset()) {
+                        if (delta.getExpiresAt() == 0) {
+                            statement.setNull(5, Types.BIGINT);
+                        } else {
+                            statement.setLong(5, delta.getExpiresAt());
+                        }
+                        resetCount++;
+                    } else {
+                        incrementCount++;
+                    }
+                    statement.addBatch();
+                }
+                if (resetCount > 0) {
+                    resets.executeBatch();
+                }
+                if (incrementCount > 0) {
+                    increments.executeBatch();
+                }
+                if (dropCount > 0) {
+                    drops.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
     }
 
     /**
@@ -308,93 +684,414 @@ public class DatabaseWrapper {
      * This method constructs an INSERT query and executes it to add a new User object into the 'users' table
      * of the connected database.
      *
-     * @param user The Quest object to be inserted into the database.
+     * @param user The User object to be inserted into the database.
      * @return True if the insertion is successful; otherwise, false.
-     * @throws NullPointerException If the provided User object is null.
-     * @throws IllegalStateException If there's a SQL exception during the insertion process.
+     * @throws SQLException If an SQL exception occurs during the insertion process.
      */
     public static boolean createUser(User user) throws SQLException {
-        String query = "INSERT INTO users (uuid, balance, locale) VALUES (?, ?, ?)";
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        connection = getConnection();
-        statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO users (uuid, balance, locale) VALUES (?, ?, ?)")) {
+                statement.setBytes(1, UuidUtils.toBytes(user.getUuid()));
+                statement.setLong(2, user.getBalance());
+                statement.setString(3, user.getLocale());
 
-        statement.setString(1, user.getUuid());
-        statement.setInt(2, user.getBalance());
-        statement.setString(3, user.getLocale());
+                return statement.executeUpdate() > 0;
+            }
+        });
+    }
 
-        int rowsInserted = statement.executeUpdate();
+    /**
+     * Retrieves the User rows of several players, creating the missing ones with a zero balance and the given locale.
+     * Runs one batched {@code INSERT ... ON DUPLICATE KEY UPDATE}, sent by the driver as a single multi-row statement,
+     * followed by one {@code SELECT ... WHERE uuid IN (...)}, whatever the number of players.
+     * Existing rows are left untouched, and concurrent provisioning from other servers cannot create duplicates.
+     *
+     * @param uuids         The unique identifiers of the players.
+     * @param defaultLocale The locale given to newly created users.
+     * @return The User objects of the players, keyed by their unique identifier.
+     * @throws SQLException If an SQL exception occurs during the provisioning process.
+     */
+    public static Map<UUID, User> provisionUsers(List<UUID> uuids, String defaultLocale) throws SQLException {
+        Map<UUID, User> users = new HashMap<>();
+        if (uuids.isEmpty()) {
+            return users;
+        }
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO users (uuid, balance, locale) VALUES (?, 0, ?) ON DUPLICATE KEY UPDATE uuid = uuid")) {
+                for (UUID uuid : uuids) {
+                    statement.setBytes(1, UuidUtils.toBytes(uuid));
+                    statement.setString(2, defaultLocale);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
 
-        releaseConnection(connection);
-        return rowsInserted > 0;
+            StringBuilder query = new StringBuilder("SELECT uuid, balance, locale, version FROM users WHERE uuid IN (");
+            for (int i = 0; i < uuids.size(); i++) {
+                query.append(i == 0 ? "?" : ", ?");
+            }
+            try (PreparedStatement statement = connection.prepareStatement(query.append(')').toString())) {
+                for (int i = 0; i < uuids.size(); i++) {
+                    statement.setBytes(i + 1, UuidUtils.toBytes(uuids.get(i)));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        UUID uuid = UuidUtils.fromBytes(resultSet.getBytes("uuid"));
+                        users.put(uuid, new User(uuid, resultSet.getLong("balance"), resultSet.getString("locale"), resultSet.getLong("version")));
+                    }
+                }
+            }
+            return users;
+        });
     }
 
     /**
-     * Updates an existing User in the users table.
+     * Updates an existing User in the users table, see {@link #updateUsers(Map)}.
+     * The unsaved balance change of the user is added to the stored balance, and put back if the update fails.
      *
      * @param user The modified User object to be updated in the database.
      * @return True if the update is successful; otherwise, false.
-     * @throws NullPointerException     If the provided User object is null.
-     * @throws IllegalStateException    If there's a SQL exception during the update process.
+     * @throws NullPointerException If the provided User object is null.
+     * @throws SQLException         If an SQL exception occurs during the update process.
      */
     public static boolean updateUser(User user) throws SQLException {
         if (user == null) {
             throw new NullPointerException("Provided User object is null.");
         }
 
-        Connection connection = null;
-        PreparedStatement statement = null;
+        long change = user.drainBalanceChange();
+        try {
+            return updateUsers(Collections.singletonMap(user, change)) > 0; // Returns true if at least one row was affected (updated)
+        } catch (SQLException e) {
+            user.restoreBalanceChange(change);
+            throw e;
+        }
+    }
+
+    /**
+     * Updates several existing Users in the users table with a single JDBC batch, in one transaction.
+     * Balances are adjusted by the given changes rather than overwritten, so credits written by others are kept.
+     * Each row is only updated if it is still at the version the user was synchronized with. Rows updated in the meantime,
+     * such as by another server, are locked and read again, the changes made elsewhere are folded into
+     * the cached balance, and the update is applied on top of the fresh version.
+     * The locale is only written if it was set on this server since it was last written; otherwise the stored locale is kept,
+     * and taken over by the cached profile when the row was updated elsewhere.
+     *
+     * @param changes The modified User objects to be updated in the database, with the change to add to their stored balance.
+     * @return The number of rows updated.
+     * @throws SQLException If an SQL exception occurs during the update process, in which case nothing is written
+     *                      and the locale changes are kept to be written later.
+     */
+    public static int updateUsers(Map<User, Long> changes) throws SQLException {
+        Map<User, String> locales = new HashMap<>(); // Locales set on this server, to write
+        for (User user : changes.keySet()) {
+            String locale = user.drainLocaleChange();
+            if (locale != null) {
+                locales.put(user, locale);
+            }
+        }
+        try {
+            return updateUsers(changes, locales);
+        } catch (SQLException e) {
+            for (Map.Entry<User, String> entry : locales.entrySet()) {
+                entry.getKey().restoreLocaleChange(entry.getValue());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Updates several existing Users in the users table, see {@link #updateUsers(Map)}.
+     *
+     * @param changes The modified User objects to be updated in the database, with the change to add to their stored balance.
+     * @param locales The locales to write, for the users whose locale was changed.
+     * @return The number of rows updated.
+     * @throws SQLException If an SQL exception occurs during the update process, in which case nothing is written.
+     */
+    private static int updateUsers(Map<User, Long> changes, Map<User, String> locales) throws SQLException {
+        return withConnection(connection -> {
+            List<User> batched = new ArrayList<>(changes.size());
+            Map<User, long[]> written = new HashMap<>(); // Stored balance before the write and version after it
+            Map<User, String> storedLocales = new HashMap<>(); // Locales of the rows updated elsewhere, kept by the write
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE users SET balance = balance + ?, locale = COALESCE(?, locale), version = version + 1 WHERE uuid = ? AND version = ?");
+                 PreparedStatement select = connection.prepareStatement("SELECT balance, locale, version FROM users WHERE uuid = ? FOR UPDATE")) {
+                for (Map.Entry<User, Long> entry : changes.entrySet()) {
+                    setUserUpdate(statement, entry.getKey(), entry.getValue(), locales.get(entry.getKey()), entry.getKey().getVersion());
+                    statement.addBatch();
+                    batched.add(entry.getKey());
+                }
 
-        connection = getConnection();
-        statement = connection.prepareStatement("UPDATE users SET balance = ?, locale = ? WHERE uuid = ?");
+                List<User> conflicts = new ArrayList<>();
+                int[] counts = statement.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    User user = batched.get(i);
+                    if (counts[i] == 0) {
+                        conflicts.add(user);
+                    } else {
+                        written.put(user, new long[]{user.getStoredBalance(), user.getVersion() + 1});
+                    }
+                }
 
-        statement.setInt(1, user.getBalance());
-        statement.setString(2, user.getLocale());
-        statement.setString(3, user.getUuid());
+                for (User user : conflicts) {
+                    select.setBytes(1, UuidUtils.toBytes(user.getUuid()));
+                    long storedBalance;
+                    long version;
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        if (!resultSet.next()) {
+                            continue; // The row doesn't exist, nothing to update
+                        }
+                        storedBalance = resultSet.getLong("balance");
+                        version = resultSet.getLong("version");
+                        if (!locales.containsKey(user)) {
+                            storedLocales.put(user, resultSet.getString("locale"));
+                        }
+                    }
+                    versionConflicts.increment();
+                    setUserUpdate(statement, user, changes.get(user), locales.get(user), version);
+                    if (statement.executeUpdate() == 0) { // Cannot happen while the row is locked
+                        throw new SQLException("User " + user.getUuid() + " was modified concurrently.");
+                    }
+                    written.put(user, new long[]{storedBalance, version + 1});
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
 
-        int rowsAffected = statement.executeUpdate();
+            for (Map.Entry<User, long[]> entry : written.entrySet()) {
+                entry.getKey().synchronize(entry.getValue()[0], changes.get(entry.getKey()), entry.getValue()[1]);
+            }
+            for (Map.Entry<User, String> entry : storedLocales.entrySet()) {
+                entry.getKey().synchronizeLocale(entry.getValue());
+            }
+            return written.size();
+        });
+    }
+
+    /**
+     * Sets the parameters of a versioned user update: balance change, locale, UUID and expected version.
+     *
+     * @param statement The update statement.
+     * @param user      The user to update.
+     * @param change    The change to add to the stored balance.
+     * @param locale    The locale to write, or null to keep the stored one.
+     * @param version   The version the stored row is expected to be at.
+     * @throws SQLException If a parameter cannot be set.
+     */
+    private static void setUserUpdate(PreparedStatement statement, User user, long change, String locale, long version) throws SQLException {
+        statement.setLong(1, change);
+        statement.setString(2, locale);
+        statement.setBytes(3, UuidUtils.toBytes(user.getUuid()));
+        statement.setLong(4, version);
+    }
+
+    /**
+     * Adds coins to the stored balance of several players with a single JDBC batch.
+     * Used for players whose profile is not cached, so the credits never race with a cached balance.
+     *
+     * @param credits The amount to add to the balance of each player.
+     * @throws SQLException If an SQL exception occurs during the update process.
+     */
+    public static void creditBalances(Map<UUID, Long> credits) throws SQLException {
+        withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE users SET balance = balance + ?, version = version + 1 WHERE uuid = ?")) {
+                for (Map.Entry<UUID, Long> entry : credits.entrySet()) {
+                    statement.setLong(1, entry.getValue());
+                    statement.setBytes(2, UuidUtils.toBytes(entry.getKey()));
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Stores reward items for players who were offline when they earned them, with a single JDBC batch.
+     *
+     * @param rewards The items to store, by player.
+     * @throws SQLException If an SQL exception occurs during the insertion process.
+     */
+    public static void addPendingRewards(Map<UUID, List<ItemStack>> rewards) throws SQLException {
+        withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO pending_rewards (uuid, item_data) VALUES (?, ?)")) {
+                for (Map.Entry<UUID, List<ItemStack>> entry : rewards.entrySet()) {
+                    for (ItemStack itemStack : entry.getValue()) {
+                        byte[] data = encodeItemStack(itemStack);
+                        if (data == null) {
+                            msg.log("&#ff6961Failed to encode a reward item of " + entry.getKey() + ", it is lost.");
+                            continue;
+                        }
+                        statement.setBytes(1, UuidUtils.toBytes(entry.getKey()));
+                        statement.setBytes(2, data);
+                        statement.addBatch();
+                    }
+                }
+                return statement.executeBatch();
+            }
+        });
+    }
 
-        releaseConnection(connection);
-        return rowsAffected > 0; // Returns true if at least one row was affected (updated)
+    /**
+     * Takes the reward items stored for a player, deleting them in the same transaction so they are delivered only once.
+     * Items that cannot be decoded are logged and kept, so they can still be recovered.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The reward items of the player; an empty list if there are none.
+     * @throws SQLException If an SQL exception occurs during the retrieval process.
+     */
+    public static List<ItemStack> claimPendingRewards(UUID uuid) throws SQLException {
+        return withConnection(connection -> {
+            List<Long> ids = new ArrayList<>();
+            List<ItemStack> items = new ArrayList<>();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement("SELECT id, item_data FROM pending_rewards WHERE uuid = ? FOR UPDATE");
+                 PreparedStatement delete = connection.prepareStatement("DELETE FROM pending_rewards WHERE id = ?")) {
+                select.setBytes(1, UuidUtils.toBytes(uuid));
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        long id = resultSet.getLong("id");
+                        ItemStack itemStack = decodeItemStack(resultSet.getBytes("item_data"));
+                        if (itemStack == null) {
+                            msg.log("&#ff6961Could not decode pending reward " + id + " of " + uuid + ", keeping it.");
+                            continue;
+                        }
+                        ids.add(id);
+                        items.add(itemStack);
+                    }
+                }
+                if (!ids.isEmpty()) {
+                    for (long id : ids) {
+                        delete.setLong(1, id);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
+                }
+                connection.commit();
+                return items;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
     }
 
     /**
      * Retrieves the User model details for the provided player from the 'users' table in the database.
      * Constructs a User model object encapsulating the player's User model details if found.
      *
-     * @param player The OfflinePlayer object for whom the User model details are to be retrieved.
+     * @param uuid The unique identifier of the player whose User model details are to be retrieved.
      * @return A User object containing the User model details of the specified player if found; otherwise, null.
      * @throws SQLException If an SQL exception occurs during the retrieval process.
      */
-    public static User getUser(OfflinePlayer player) throws SQLException {
-        String query = "SELECT * FROM users WHERE uuid = ?";
-        Connection connection = getConnection();
-        PreparedStatement statement = connection.prepareStatement(query);
-        statement.setString(1, player.getUniqueId().toString());
-        ResultSet resultSet = statement.executeQuery();
-
-        if (resultSet.next()) {
-            int balance = resultSet.getInt("balance");
-            String locale = resultSet.getString("locale");
-            return new User(player, balance, locale);
-        }
+    public static User getUser(UUID uuid) throws SQLException {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT balance, locale, version FROM users WHERE uuid = ?")) {
+                statement.setBytes(1, UuidUtils.toBytes(uuid));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    long balance = resultSet.getLong("balance");
+                    String locale = resultSet.getString("locale");
+                    return new User(uuid, balance, locale, resultSet.getLong("version"));
+                }
+            }
+        });
+    }
 
-        releaseConnection(connection);
-        return null;
+    /**
+     * Appends changes to the 'change_log' table with a single JDBC batch, so the other servers read them.
+     *
+     * @param changes The changes to append.
+     * @throws SQLException If an SQL exception occurs during the insertion process.
+     */
+    public static void appendChanges(List<EntityChange> changes) throws SQLException {
+        withConnection(connection -> {
+            long now = System.currentTimeMillis();
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO change_log (server_id, entity_type, entity_key, version, created_at) VALUES (?, ?, ?, ?, ?)")) {
+                for (EntityChange change : changes) {
+                    statement.setString(1, change.getServerId());
+                    statement.setString(2, change.getType().name());
+                    statement.setString(3, change.getKey());
+                    statement.setLong(4, change.getVersion());
+                    statement.setLong(5, now);
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
     }
 
+    /**
+     * Retrieves the changes appended to the 'change_log' table after the given position, in order.
+     * Rows of an unknown entity type are skipped.
+     *
+     * @param afterId The position after which to read.
+     * @param limit   The maximum number of changes to read.
+     * @return The changes, ordered by position; an empty list if there are none.
+     * @throws SQLException If an SQL exception occurs during the retrieval process.
+     */
+    public static List<EntityChange> getChanges(long afterId, int limit) throws SQLException {
+        return withConnection(connection -> {
+            List<EntityChange> changes = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT id, server_id, entity_type, entity_key, version FROM change_log WHERE id > ? ORDER BY id LIMIT ?")) {
+                statement.setLong(1, afterId);
+                statement.setInt(2, limit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        EntityChange.Type type;
+                        try {
+                            type = EntityChange.Type.valueOf(resultSet.getString("entity_type"));
+                        } catch (IllegalArgumentException e) {
+                            continue; // Written by a newer version of the plugin
+                        }
+                        changes.add(new EntityChange(resultSet.getLong("id"), resultSet.getString("server_id"), type,
+                                resultSet.getString("entity_key"), resultSet.getLong("version")));
+                    }
+                }
+            }
+            return changes;
+        });
+    }
 
     /**
-     * Generates the complete database URL for establishing a connection.
+     * Retrieves the position of the latest change of the 'change_log' table.
      *
-     * @return The complete JDBC URL for the database connection with SSL disabled.
+     * @return The id of the latest change, 0 if the log is empty.
+     * @throws SQLException If an SQL exception occurs during the retrieval process.
      */
-    private static String getFullDBURL() {
-        return "jdbc:mysql://" + DB_URL + "/" + DB_NAME + "?useSSL=false"; // Adjust useSSL as needed
+    public static long getLatestChangeId() throws SQLException {
+        return withConnection(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT MAX(id) FROM change_log")) {
+                return resultSet.next() ? resultSet.getLong(1) : 0; // MAX of no rows is NULL, read as 0
+            }
+        });
     }
 
+    /**
+     * Deletes the changes appended to the 'change_log' table before the given time, which every server has read by then.
+     *
+     * @param before The time in epoch milliseconds before which changes are deleted.
+     * @return The number of changes deleted.
+     * @throws SQLException If an SQL exception occurs during the deletion process.
+     */
+    public static int pruneChanges(long before) throws SQLException {
+        return withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM change_log WHERE created_at < ?")) {
+                statement.setLong(1, before);
+                return statement.executeUpdate();
+            }
+        });
+    }
 
     /**
      * Disables the database wrapper by closing all active connections.
@@ -404,6 +1101,8 @@ public class DatabaseWrapper {
      * database interaction is no longer required to prevent resource leaks.
      */
     public static void disable() {
+        msg.debug("Database connection pool stats: " + getPoolStats());
+        msg.debug("Optimistic update conflicts: " + getVersionConflicts());
         closeConnections();
     }
 }
@@ -0,0 +1,119 @@
+package dev.relismdev.playlegendquests.storage;
+
+/**
+ * Immutable snapshot of the database connection pool metrics.
+ */
+public class PoolStats {
+
+    private final int activeConnections; // Connections currently borrowed
+    private final int idleConnections; // Connections waiting in the pool
+    private final int totalConnections; // Active plus idle connections
+    private final int awaitingThreads; // Threads blocked waiting for a connection
+    private final long acquisitions; // Connections handed out since startup
+    private final long acquireTimeouts; // Borrow attempts that timed out
+    private final double averageWaitMillis; // Average time spent waiting for a connection
+    private final double maxWaitMillis; // Longest time spent waiting for a connection
+
+    /**
+     * Constructs a PoolStats snapshot with the specified values.
+     *
+     * @param activeConnections The number of connections currently borrowed.
+     * @param idleConnections   The number of idle connections in the pool.
+     * @param totalConnections  The total number of connections in the pool.
+     * @param awaitingThreads   The number of threads waiting for a connection.
+     * @param acquisitions      The number of connections handed out since startup.
+     * @param acquireTimeouts   The number of borrow attempts that timed out.
+     * @param averageWaitMillis The average time spent waiting for a connection, in milliseconds.
+     * @param maxWaitMillis     The longest time spent waiting for a connection, in milliseconds.
+     */
+    public PoolStats(int activeConnections, int idleConnections, int totalConnections, int awaitingThreads,
+                     long acquisitions, long acquireTimeouts, double averageWaitMillis, double maxWaitMillis) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.totalConnections = totalConnections;
+        this.awaitingThreads = awaitingThreads;
+        this.acquisitions = acquisitions;
+        this.acquireTimeouts = acquireTimeouts;
+        this.averageWaitMillis = averageWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Retrieves the number of connections currently borrowed from the pool.
+     *
+     * @return The number of active connections.
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * Retrieves the number of idle connections waiting in the pool.
+     *
+     * @return The number of idle connections.
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * Retrieves the total number of connections held by the pool.
+     *
+     * @return The number of active and idle connections.
+     */
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * Retrieves the number of threads currently waiting for a connection.
+     *
+     * @return The number of waiting threads.
+     */
+    public int getAwaitingThreads() {
+        return awaitingThreads;
+    }
+
+    /**
+     * Retrieves the number of connections handed out since startup.
+     *
+     * @return The number of successful acquisitions.
+     */
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    /**
+     * Retrieves the number of borrow attempts that timed out.
+     *
+     * @return The number of acquire timeouts.
+     */
+    public long getAcquireTimeouts() {
+        return acquireTimeouts;
+    }
+
+    /**
+     * Retrieves the average time spent waiting for a connection.
+     *
+     * @return The average wait time in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        return averageWaitMillis;
+    }
+
+    /**
+     * Retrieves the longest time spent waiting for a connection.
+     *
+     * @return The maximum wait time in milliseconds.
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d total=%d waiting=%d acquired=%d timeouts=%d avgWait=%.2fms maxWait=%.2fms",
+                activeConnections, idleConnections, totalConnections, awaitingThreads,
+                acquisitions, acquireTimeouts, averageWaitMillis, maxWaitMillis);
+    }
+}
@@ -0,0 +1,22 @@
+package dev.relismdev.playlegendquests.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of database work executed against a borrowed connection.
+ *
+ * @param <T> The type of the result produced by the work.
+ */
+@FunctionalInterface
+public interface SqlFunction<T> {
+
+    /**
+     * Runs the database work on the given connection.
+     *
+     * @param connection The connection borrowed from the pool; it must not be closed or kept by the work.
+     * @return The result of the work.
+     * @throws SQLException If an SQL exception occurs while running the work.
+     */
+    T apply(Connection connection) throws SQLException;
+}
@@ -0,0 +1,136 @@
+package dev.relismdev.playlegendquests.storage;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.models.User;
+import dev.relismdev.playlegendquests.utils.LocaleManager;
+import dev.relismdev.playlegendquests.utils.msg;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Provisions the User profiles of joining players, creating the ones that don't exist yet.
+ * Requests arriving within the same short window are coalesced into a single batch,
+ * so a reconnect storm of hundreds of players costs one upsert and one select instead of two queries per player.
+ */
+public class UserProvisioner {
+
+    private static Playlegendquests main = Playlegendquests.getPlugin();
+    private static final long DEFAULT_WINDOW_MILLIS = 50;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 200;
+    private static final long PROVISION_TIMEOUT_SECONDS = 10;
+    private static final Object lock = new Object();
+    private static Map<UUID, CompletableFuture<User>> pending = new LinkedHashMap<>(); // Guarded by lock
+    private static ScheduledExecutorService scheduler;
+    private static long windowMillis;
+    private static int maxBatchSize;
+
+    /**
+     * Starts the thread running the provisioning batches, using the window and batch size from the plugin configuration.
+     */
+    public static void init() {
+        init(main.getConfig().getLong("user_provision_window_ms", DEFAULT_WINDOW_MILLIS),
+                main.getConfig().getInt("user_provision_max_batch", DEFAULT_MAX_BATCH_SIZE));
+    }
+
+    /**
+     * Starts the thread running the provisioning batches with the given window and batch size,
+     * used to run the storage layer outside of a server.
+     *
+     * @param window    How long a batch waits for more logins, in milliseconds.
+     * @param batchSize The number of logins flushing a batch before its window ends.
+     */
+    public static void init(long window, int batchSize) {
+        windowMillis = Math.max(0, window);
+        maxBatchSize = Math.max(1, batchSize);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PlaylegendQuests-UserProvisioner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Retrieves the profile of a player, creating it with the default balance and locale if it doesn't exist.
+     * The request joins the current batch and this method blocks until the batch completes,
+     * so it must only be called off the main thread, typically from the AsyncPlayerPreLoginEvent.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The User profile of the player, or null if it could not be provisioned.
+     */
+    public static User provision(UUID uuid) {
+        CompletableFuture<User> future;
+        synchronized (lock) {
+            future = pending.get(uuid);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pending.put(uuid, future);
+                if (pending.size() >= maxBatchSize) {
+                    scheduler.execute(UserProvisioner::flush); // The batch is full, don't wait for the window to end
+                } else if (pending.size() == 1) {
+                    scheduler.schedule(UserProvisioner::flush, windowMillis, TimeUnit.MILLISECONDS); // First request opens the window
+                }
+            }
+        }
+        try {
+            return future.get(PROVISION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            msg.log("&#ff6961Failed to provision user " + uuid + ": &#fdfd96" + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stops the provisioning thread, failing the requests still waiting for a batch.
+     */
+    public static void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        synchronized (lock) {
+            for (CompletableFuture<User> future : pending.values()) {
+                future.completeExceptionally(new IllegalStateException("Plugin is shutting down."));
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Provisions every pending request with a single batch and completes their futures.
+     */
+    private static void flush() {
+        Map<UUID, CompletableFuture<User>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return; // Already flushed because the batch filled up
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        try {
+            List<UUID> uuids = new ArrayList<>(batch.keySet());
+            Map<UUID, User> users = DatabaseWrapper.provisionUsers(uuids, LocaleManager.getDefaultLocale());
+            for (Map.Entry<UUID, CompletableFuture<User>> entry : batch.entrySet()) {
+                entry.getValue().complete(users.get(entry.getKey()));
+            }
+            msg.debug("Provisioned " + uuids.size() + " user(s) in one batch.");
+        } catch (SQLException | RuntimeException e) {
+            for (CompletableFuture<User> future : batch.values()) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
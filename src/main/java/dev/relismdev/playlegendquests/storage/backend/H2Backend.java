@@ -0,0 +1,73 @@
+package dev.relismdev.playlegendquests.storage.backend;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import java.io.File;
+import java.sql.Connection;
+
+/**
+ * Backend storing the data in an embedded H2 database, running inside the server process.
+ * Suited to single servers that don't want to run a database server, and to running the plugin's storage in-process.
+ * In auto server mode, several servers on the same machine can share it, such as to try out a network locally.
+ * The database runs in MySQL compatibility mode, so it accepts the same queries as the MySQL backend.
+ */
+public class H2Backend implements StorageBackend {
+
+    public static final String NAME = "h2";
+    private static final String SETTINGS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE"; // MySQL dialect, lower case identifiers like MySQL
+    private final String jdbcUrl; // URL of the database, settings included
+
+    /**
+     * Constructs an H2Backend for the specified database.
+     *
+     * @param jdbcUrl The JDBC URL of the database, such as {@code jdbc:h2:mem:quests}, without the MySQL mode settings.
+     */
+    public H2Backend(String jdbcUrl) {
+        this.jdbcUrl = jdbcUrl + SETTINGS;
+    }
+
+    /**
+     * Creates an H2Backend storing the database in a file.
+     *
+     * @param file The database file, without the extension added by H2.
+     * @return The backend.
+     */
+    public static H2Backend file(File file) {
+        return file(file, false);
+    }
+
+    /**
+     * Creates an H2Backend storing the database in a file, optionally shared with other processes.
+     * In auto server mode, the first process opening the file serves it over a local TCP port
+     * and the others connect to it, so several servers on one machine can share the database.
+     *
+     * @param file       The database file, without the extension added by H2.
+     * @param autoServer Whether other processes may open the database at the same time.
+     * @return The backend.
+     */
+    public static H2Backend file(File file, boolean autoServer) {
+        return new H2Backend("jdbc:h2:file:" + file.getAbsolutePath() + (autoServer ? ";AUTO_SERVER=TRUE" : ""));
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void configure(HikariConfig config) {
+        config.setDriverClassName("org.h2.Driver"); // Bundled in the plugin jar
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername("sa");
+        config.setPassword("");
+    }
+
+    @Override
+    public void lockMigrations(Connection connection) {
+        // H2 has no named locks; in auto server mode, servers sharing the file should start one at a time after an update
+    }
+
+    @Override
+    public void unlockMigrations(Connection connection) {
+    }
+}
@@ -0,0 +1,78 @@
+package dev.relismdev.playlegendquests.storage.backend;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Backend storing the data on a MySQL server, shared by every server connected to it.
+ */
+public class MySqlBackend implements StorageBackend {
+
+    public static final String NAME = "mysql";
+    private static final String MIGRATION_LOCK = "playlegendquests_migrations"; // Named lock shared by every server of the database
+    private static final int MIGRATION_LOCK_TIMEOUT_SECONDS = 60;
+    private final String address; // Host and port of the server
+    private final String database; // Name of the database
+    private final String user;
+    private final String password;
+
+    /**
+     * Constructs a MySqlBackend connecting to the specified database.
+     *
+     * @param address  The host and port of the server, such as {@code localhost:3306}.
+     * @param database The name of the database.
+     * @param user     The user to connect as.
+     * @param password The password of the user.
+     */
+    public MySqlBackend(String address, String database, String user, String password) {
+        this.address = address;
+        this.database = database;
+        this.user = user;
+        this.password = password;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void configure(HikariConfig config) {
+        config.setJdbcUrl("jdbc:mysql://" + address + "/" + database + "?useSSL=false"); // Adjust useSSL as needed
+        config.setUsername(user);
+        config.setPassword(password);
+
+        // Let the driver cache prepared statements per connection, so re-preparing a query is a local lookup
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true"); // Send JDBC batches as multi-row statements
+        config.addDataSourceProperty("useCursorFetch", "true"); // Honor setFetchSize instead of buffering whole result sets
+    }
+
+    @Override
+    public void lockMigrations(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, MIGRATION_LOCK);
+            statement.setInt(2, MIGRATION_LOCK_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another server to finish migrating the database.");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void unlockMigrations(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, MIGRATION_LOCK);
+            statement.executeQuery().close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package dev.relismdev.playlegendquests.storage.backend;
+
+import com.zaxxer.hikari.HikariConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Database the plugin stores its data in, selected with {@code storage_type} in the configuration.
+ * A backend only decides where and how connections are opened, and how servers sharing it take turns migrating the schema:
+ * every backend accepts the MySQL dialect used by {@code DatabaseWrapper}, so they all run the same batched queries
+ * through the same connection pool and database executor, and behave the same way for the rest of the plugin.
+ *
+ * @see dev.relismdev.playlegendquests.storage.DatabaseWrapper
+ */
+public interface StorageBackend {
+
+    /**
+     * Retrieves the name used to select this backend in the configuration.
+     *
+     * @return The name of the backend.
+     */
+    String getName();
+
+    /**
+     * Sets where and how the connection pool connects: the JDBC URL, the credentials and the driver settings.
+     * Pool sizes and timeouts are set by the caller.
+     *
+     * @param config The settings of the connection pool.
+     */
+    void configure(HikariConfig config);
+
+    /**
+     * Takes the lock ensuring a single server migrates the schema at a time, waiting for it if another server holds it.
+     * The lock is held by the given connection until {@link #unlockMigrations(Connection)} is called on it.
+     *
+     * @param connection The connection running the migrations.
+     * @throws SQLException If the lock could not be taken.
+     */
+    void lockMigrations(Connection connection) throws SQLException;
+
+    /**
+     * Releases the lock taken by {@link #lockMigrations(Connection)}.
+     *
+     * @param connection The connection running the migrations.
+     * @throws SQLException If an SQL exception occurs while releasing the lock.
+     */
+    void unlockMigrations(Connection connection) throws SQLException;
+}
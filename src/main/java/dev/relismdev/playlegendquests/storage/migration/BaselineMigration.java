@@ -0,0 +1,97 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.inventory.ItemStack;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static dev.relismdev.playlegendquests.utils.ItemUtils.deserializeItemStack;
+import static dev.relismdev.playlegendquests.utils.ItemUtils.encodeItemStack;
+
+/**
+ * Version 1: the schema as it was before migrations were versioned.
+ * Creates the tables, adds the columns missing from tables created by older versions,
+ * and converts the reward items stored in the legacy Base64 format, so every existing database reaches the same starting point.
+ */
+class BaselineMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Baseline schema";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        createQuestsTable(connection);
+        Schema.execute(connection, "CREATE TABLE IF NOT EXISTS users (uuid VARCHAR(36) PRIMARY KEY, balance BIGINT, locale VARCHAR(5))");
+        Schema.execute(connection, "CREATE TABLE IF NOT EXISTS player_quests (uuid VARCHAR(36) NOT NULL, quest_id INT NOT NULL, progress INT NOT NULL DEFAULT 0, completed BOOLEAN NOT NULL DEFAULT FALSE, expires_at BIGINT, PRIMARY KEY (uuid, quest_id))");
+        Schema.addColumnIfMissing(connection, "player_quests", "expires_at", "BIGINT");
+        Schema.execute(connection, "CREATE TABLE IF NOT EXISTS pending_rewards (id BIGINT AUTO_INCREMENT PRIMARY KEY, uuid VARCHAR(36) NOT NULL, item_data MEDIUMBLOB NOT NULL, INDEX idx_pending_rewards_uuid (uuid))");
+        migrateRewardItems(connection);
+    }
+
+    /**
+     * Creates the 'quests' table, holding the quest details: ID, name, description, reward coins, reward item, objective and duration.
+     * The reward item is stored in binary form in 'reward_item_data', which is added to tables created by older versions;
+     * the legacy Base64 'reward_item' column is only kept to migrate existing rows.
+     * The objective and duration columns are added to tables created by older versions as well.
+     *
+     * @param connection The connection to use.
+     * @throws SQLException If an SQL exception occurs while creating or altering the table.
+     */
+    private static void createQuestsTable(Connection connection) throws SQLException {
+        Schema.execute(connection, "CREATE TABLE IF NOT EXISTS quests (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), description TEXT, reward_coins BIGINT, reward_item TEXT, reward_item_data MEDIUMBLOB, objective_type VARCHAR(16), objective_target VARCHAR(64), objective_amount INT, duration_seconds BIGINT NOT NULL DEFAULT 0)");
+        Schema.addColumnIfMissing(connection, "quests", "reward_item_data", "MEDIUMBLOB");
+        Schema.addColumnIfMissing(connection, "quests", "objective_type", "VARCHAR(16)");
+        Schema.addColumnIfMissing(connection, "quests", "objective_target", "VARCHAR(64)");
+        Schema.addColumnIfMissing(connection, "quests", "objective_amount", "INT");
+        Schema.addColumnIfMissing(connection, "quests", "duration_seconds", "BIGINT NOT NULL DEFAULT 0");
+    }
+
+    /**
+     * Converts the reward items stored Base64-encoded in the legacy 'reward_item' column into the binary
+     * 'reward_item_data' column using the configured codec, then clears the legacy value.
+     * Rows already migrated are skipped. Rows that cannot be decoded are left untouched and logged.
+     *
+     * @param connection The connection to use.
+     * @throws SQLException If an SQL exception occurs while reading or updating the quests.
+     */
+    private static void migrateRewardItems(Connection connection) throws SQLException {
+        Map<Integer, byte[]> converted = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, reward_item FROM quests WHERE reward_item IS NOT NULL AND reward_item_data IS NULL");
+             ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                int id = resultSet.getInt("id");
+                ItemStack itemStack = deserializeItemStack(resultSet.getString("reward_item"));
+                byte[] data = itemStack == null ? null : encodeItemStack(itemStack);
+                if (data == null) {
+                    msg.log("Could not migrate the reward item of quest " + id + ", leaving it as is.");
+                    continue;
+                }
+                converted.put(id, data);
+            }
+        }
+        if (converted.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement update = connection.prepareStatement("UPDATE quests SET reward_item_data = ?, reward_item = NULL WHERE id = ?")) {
+            for (Map.Entry<Integer, byte[]> entry : converted.entrySet()) {
+                update.setBytes(1, entry.getValue());
+                update.setInt(2, entry.getKey());
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+        msg.log("Migrated " + converted.size() + " quest reward item(s) to the binary format.");
+    }
+}
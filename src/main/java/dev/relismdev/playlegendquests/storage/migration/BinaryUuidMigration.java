@@ -0,0 +1,143 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import dev.relismdev.playlegendquests.utils.UuidUtils;
+import dev.relismdev.playlegendquests.utils.msg;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Version 3: stores player UUIDs as {@code BINARY(16)} instead of their 36 character text form,
+ * less than half the size in every row and in every index keyed by player.
+ * Each table is copied into a new table with the binary type, then swapped in, since converting a column
+ * in place is not portable across storage backends. Rows whose UUID cannot be parsed are logged and left out.
+ * A table already converted is skipped, and the copy of a table interrupted halfway is started over.
+ */
+class BinaryUuidMigration implements Migration {
+
+    private static final int COPY_BATCH_SIZE = 1000;
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Binary player UUIDs";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        convert(connection, "users", "uuid, balance, locale",
+                "CREATE TABLE users_new (uuid BINARY(16) PRIMARY KEY, balance BIGINT, locale VARCHAR(5))");
+        convert(connection, "player_quests", "uuid, quest_id, progress, completed, expires_at",
+                "CREATE TABLE player_quests_new (uuid BINARY(16) NOT NULL, quest_id INT NOT NULL, progress INT NOT NULL DEFAULT 0, completed BOOLEAN NOT NULL DEFAULT FALSE, expires_at BIGINT, PRIMARY KEY (uuid, quest_id))");
+        convert(connection, "pending_rewards", "uuid, item_data",
+                "CREATE TABLE pending_rewards_new (id BIGINT AUTO_INCREMENT PRIMARY KEY, uuid BINARY(16) NOT NULL, item_data MEDIUMBLOB NOT NULL)");
+        if (!Schema.hasIndex(connection, "pending_rewards", "idx_pending_rewards_uuid")) {
+            // Created once the old table and its index are gone, index names are unique per schema on some backends
+            Schema.execute(connection, "CREATE INDEX idx_pending_rewards_uuid ON pending_rewards (uuid)");
+        }
+    }
+
+    /**
+     * Converts the 'uuid' column of a table to {@code BINARY(16)}, unless it already is.
+     * The rows are copied in batches into '{table}_new', then the old table is dropped and the new one renamed.
+     *
+     * @param connection The connection to use.
+     * @param table      The name of the table.
+     * @param columns    The columns to copy, 'uuid' first. Auto-increment keys are left out and generated again.
+     * @param createNew  The statement creating '{table}_new' with the binary type.
+     * @throws SQLException If an SQL exception occurs while copying or swapping the tables.
+     */
+    private static void convert(Connection connection, String table, String columns, String createNew) throws SQLException {
+        String newTable = table + "_new";
+        if (!Schema.hasTable(connection, table)) {
+            if (Schema.hasTable(connection, newTable)) {
+                // Interrupted between dropping the old table and renaming the new one
+                Schema.execute(connection, "ALTER TABLE " + newTable + " RENAME TO " + table);
+            }
+            return;
+        }
+        if (Schema.isBinaryColumn(connection, table, "uuid")) {
+            return;
+        }
+        Schema.execute(connection, "DROP TABLE IF EXISTS " + newTable);
+        Schema.execute(connection, createNew);
+        int copied = copy(connection, table, newTable, columns);
+        Schema.execute(connection, "DROP TABLE " + table);
+        Schema.execute(connection, "ALTER TABLE " + newTable + " RENAME TO " + table);
+        if (copied > 0) {
+            msg.log("Converted the player UUIDs of " + copied + " row(s) of table '" + table + "' to the binary format.");
+        }
+    }
+
+    /**
+     * Copies the rows of a table into another, converting the text UUID of the first column into its bytes.
+     *
+     * @param connection The connection to use.
+     * @param from       The table to read.
+     * @param to         The table to write.
+     * @param columns    The columns to copy, 'uuid' first.
+     * @return The number of rows copied.
+     * @throws SQLException If an SQL exception occurs while reading or writing the rows.
+     */
+    private static int copy(Connection connection, String from, String to, String columns) throws SQLException {
+        int columnCount = columns.split(",").length;
+        StringBuilder insert = new StringBuilder("INSERT INTO ").append(to).append(" (").append(columns).append(") VALUES (?");
+        for (int i = 1; i < columnCount; i++) {
+            insert.append(", ?");
+        }
+        int copied = 0;
+        try (PreparedStatement select = connection.prepareStatement("SELECT " + columns + " FROM " + from);
+             PreparedStatement statement = connection.prepareStatement(insert.append(')').toString())) {
+            select.setFetchSize(COPY_BATCH_SIZE);
+            try (ResultSet resultSet = select.executeQuery()) {
+                int batched = 0;
+                while (resultSet.next()) {
+                    String text = resultSet.getString(1);
+                    UUID uuid = parse(text);
+                    if (uuid == null) {
+                        msg.log("Skipping a row of table '" + from + "' with the invalid player UUID '" + text + "'.");
+                        continue;
+                    }
+                    statement.setBytes(1, UuidUtils.toBytes(uuid));
+                    for (int i = 2; i <= columnCount; i++) {
+                        statement.setObject(i, resultSet.getObject(i));
+                    }
+                    statement.addBatch();
+                    if (++batched == COPY_BATCH_SIZE) {
+                        statement.executeBatch();
+                        batched = 0;
+                    }
+                    copied++;
+                }
+                if (batched > 0) {
+                    statement.executeBatch();
+                }
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Parses a UUID stored in text form.
+     *
+     * @param text The text to parse.
+     * @return The UUID, or null if the text is not a valid UUID.
+     */
+    private static UUID parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(text.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Version 6: adds the 'change_log' table, through which servers sharing the database publish the quests and users they change,
+ * so the others invalidate their cached copies. Rows are read in id order and pruned once they are old.
+ */
+class ChangeLogMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 6;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Change log for cross-server cache invalidation";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        Schema.execute(connection, "CREATE TABLE IF NOT EXISTS change_log (id BIGINT AUTO_INCREMENT PRIMARY KEY, server_id VARCHAR(64) NOT NULL, entity_type VARCHAR(16) NOT NULL, entity_key VARCHAR(36) NOT NULL, version BIGINT NOT NULL, created_at BIGINT NOT NULL)");
+        if (!Schema.hasIndex(connection, "change_log", "idx_change_log_created_at")) {
+            Schema.execute(connection, "CREATE INDEX idx_change_log_created_at ON change_log (created_at)");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import dev.relismdev.playlegendquests.utils.LocaleManager;
+import dev.relismdev.playlegendquests.utils.msg;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Version 4: adds foreign keys from the progress and pending reward tables to the quests and users they belong to,
+ * so the database itself keeps them consistent: deleting a quest or a user deletes its rows in the other tables.
+ * Rows that would violate the keys are fixed first: users missing for stored rows are created with an empty balance
+ * and the default locale,
+ * and progress on quests that no longer exist is deleted.
+ */
+class ForeignKeyMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 4;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Foreign keys on player tables";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        int users = 0;
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO users (uuid, balance, locale) SELECT DISTINCT pq.uuid, 0, ? FROM player_quests pq LEFT JOIN users u ON u.uuid = pq.uuid WHERE u.uuid IS NULL");
+             PreparedStatement rewards = connection.prepareStatement("INSERT INTO users (uuid, balance, locale) SELECT DISTINCT pr.uuid, 0, ? FROM pending_rewards pr LEFT JOIN users u ON u.uuid = pr.uuid WHERE u.uuid IS NULL")) {
+            // Same default locale as the users provisioned on login
+            statement.setString(1, LocaleManager.getDefaultLocale());
+            users += statement.executeUpdate();
+            rewards.setString(1, LocaleManager.getDefaultLocale());
+            users += rewards.executeUpdate();
+        }
+        try (Statement statement = connection.createStatement()) {
+            int progress = statement.executeUpdate("DELETE FROM player_quests WHERE quest_id NOT IN (SELECT id FROM quests)");
+            if (users > 0 || progress > 0) {
+                msg.log("Created " + users + " missing user(s) and deleted the progress on " + progress + " deleted quest(s) before adding foreign keys.");
+            }
+        }
+        addForeignKey(connection, "player_quests", "fk_player_quests_quest", "quest_id", "quests (id)");
+        addForeignKey(connection, "player_quests", "fk_player_quests_user", "uuid", "users (uuid)");
+        addForeignKey(connection, "pending_rewards", "fk_pending_rewards_user", "uuid", "users (uuid)");
+    }
+
+    /**
+     * Adds a foreign key deleting the rows of a table along with the row they reference, unless the key already exists.
+     *
+     * @param connection The connection to use.
+     * @param table      The name of the table holding the key.
+     * @param name       The name of the key.
+     * @param column     The column of the table referencing the other table.
+     * @param references The referenced table and column, such as {@code quests (id)}.
+     * @throws SQLException If an SQL exception occurs while inspecting or altering the table.
+     */
+    private static void addForeignKey(Connection connection, String table, String name, String column, String references) throws SQLException {
+        if (Schema.hasForeignKey(connection, table, name)) {
+            return;
+        }
+        Schema.execute(connection, "ALTER TABLE " + table + " ADD CONSTRAINT " + name + " FOREIGN KEY (" + column + ") REFERENCES " + references + " ON DELETE CASCADE");
+    }
+}
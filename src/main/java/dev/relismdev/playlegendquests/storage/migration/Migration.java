@@ -0,0 +1,35 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A versioned change to the database schema, applied once by the {@link MigrationRunner}.
+ * Schema changes are not transactional on MySQL, so a migration interrupted halfway is run again from the start:
+ * every step must check whether it was already applied, and skip it if so.
+ */
+public interface Migration {
+
+    /**
+     * Retrieves the version the schema is at once this migration is applied.
+     * Versions start at 1 and increase by one per migration.
+     *
+     * @return The version of the migration.
+     */
+    int getVersion();
+
+    /**
+     * Retrieves a short description of the change, recorded in the 'schema_version' table.
+     *
+     * @return The description of the migration.
+     */
+    String getDescription();
+
+    /**
+     * Applies the change to the database.
+     *
+     * @param connection The connection to use, in auto-commit mode.
+     * @throws SQLException If an SQL exception occurs while applying the change.
+     */
+    void migrate(Connection connection) throws SQLException;
+}
@@ -0,0 +1,134 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.backend.StorageBackend;
+import dev.relismdev.playlegendquests.utils.msg;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Brings the database schema up to date when the plugin starts.
+ * The version of the schema is recorded in the 'schema_version' table, one row per applied migration,
+ * and every migration newer than it is applied in order. Servers sharing a database take turns through
+ * the lock of the storage backend, so a schema is never migrated twice at once.
+ * A migration that fails stops the run; it is applied again on the next start, from where the schema was left.
+ */
+public class MigrationRunner {
+
+    private static final Migration[] MIGRATIONS = { // In version order
+            new BaselineMigration(),
+            new QuestNameIndexMigration(),
+            new BinaryUuidMigration(),
+            new ForeignKeyMigration(),
+            new VersionColumnsMigration(),
+            new ChangeLogMigration()
+    };
+
+    /**
+     * Applies the migrations the database is missing.
+     *
+     * @param backend The backend the database is stored in.
+     * @return True if the schema is up to date; otherwise, false.
+     */
+    public static boolean migrate(StorageBackend backend) {
+        try {
+            return DatabaseWrapper.withConnection(connection -> {
+                createVersionTable(connection);
+                backend.lockMigrations(connection);
+                try {
+                    return migrate(connection);
+                } finally {
+                    backend.unlockMigrations(connection);
+                }
+            });
+        } catch (SQLException e) {
+            msg.log("&#ff6961Failed to migrate the database schema: &#fdfd96" + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the latest schema version known to this version of the plugin.
+     *
+     * @return The latest schema version.
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS[MIGRATIONS.length - 1].getVersion();
+    }
+
+    /**
+     * Applies the migrations newer than the version of the schema, recording each one once applied.
+     * Must be called while holding the migration lock.
+     *
+     * @param connection The connection to use.
+     * @return True if the schema is up to date; false if a migration failed.
+     * @throws SQLException If an SQL exception occurs while reading or recording the version.
+     */
+    private static boolean migrate(Connection connection) throws SQLException {
+        int version = getVersion(connection);
+        if (version > getLatestVersion()) {
+            msg.log("&#ff6961The database schema is at version " + version + ", newer than the version " + getLatestVersion() + " supported by this version of the plugin.");
+            return true;
+        }
+        for (Migration migration : MIGRATIONS) {
+            if (migration.getVersion() <= version) {
+                continue;
+            }
+            msg.log("Migrating the database schema to version " + migration.getVersion() + ": " + migration.getDescription() + ".");
+            try {
+                migration.migrate(connection);
+            } catch (SQLException e) {
+                msg.log("&#ff6961Failed to migrate the database schema to version " + migration.getVersion() + ": &#fdfd96" + e.getMessage());
+                return false;
+            }
+            recordVersion(connection, migration);
+        }
+        return true;
+    }
+
+    /**
+     * Creates the 'schema_version' table if it doesn't already exist.
+     *
+     * @param connection The connection to use.
+     * @throws SQLException If an SQL exception occurs while creating the table.
+     */
+    private static void createVersionTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_version (version INT PRIMARY KEY, description VARCHAR(255) NOT NULL, installed_at BIGINT NOT NULL)");
+        }
+    }
+
+    /**
+     * Retrieves the version of the schema, the highest version recorded.
+     *
+     * @param connection The connection to use.
+     * @return The version of the schema, 0 if no migration was applied yet.
+     * @throws SQLException If an SQL exception occurs while reading the version.
+     */
+    private static int getVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0; // MAX of no rows is NULL, read as 0
+        }
+    }
+
+    /**
+     * Records that a migration was applied.
+     *
+     * @param connection The connection to use.
+     * @param migration  The applied migration.
+     * @throws SQLException If an SQL exception occurs while recording the version.
+     */
+    private static void recordVersion(Connection connection, Migration migration) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO schema_version (version, description, installed_at) VALUES (?, ?, ?)")) {
+            statement.setInt(1, migration.getVersion());
+            statement.setString(2, migration.getDescription());
+            statement.setLong(3, System.currentTimeMillis());
+            statement.executeUpdate();
+        }
+    }
+}
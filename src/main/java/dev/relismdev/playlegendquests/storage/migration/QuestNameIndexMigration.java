@@ -0,0 +1,95 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import dev.relismdev.playlegendquests.utils.msg;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Version 2: adds a unique index on the quest names, so looking a quest up by name is an index lookup instead of a table scan,
+ * and two quests can no longer share a name.
+ * Names already used by several quests are made unique first: the oldest quest keeps the name,
+ * the others get their ID appended. Names are compared ignoring case, like the quest registry and MySQL's default collation do.
+ */
+class QuestNameIndexMigration implements Migration {
+
+    private static final int NAME_LENGTH = 255; // Length of the 'name' column
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Unique index on quest names";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        if (Schema.hasIndex(connection, "quests", "idx_quests_name")) {
+            return;
+        }
+        renameDuplicates(connection);
+        Schema.execute(connection, "CREATE UNIQUE INDEX idx_quests_name ON quests (name)");
+    }
+
+    /**
+     * Renames the quests whose name is already used by an older quest, appending their ID to the name.
+     *
+     * @param connection The connection to use.
+     * @throws SQLException If an SQL exception occurs while reading or updating the quests.
+     */
+    private static void renameDuplicates(Connection connection) throws SQLException {
+        Set<String> taken = new HashSet<>();
+        Map<Integer, String> duplicates = new LinkedHashMap<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, name FROM quests WHERE name IS NOT NULL ORDER BY id");
+             ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                String name = resultSet.getString("name");
+                if (!taken.add(name.toLowerCase(Locale.ROOT))) {
+                    duplicates.put(resultSet.getInt("id"), name);
+                }
+            }
+        }
+        if (duplicates.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement update = connection.prepareStatement("UPDATE quests SET name = ? WHERE id = ?")) {
+            for (Map.Entry<Integer, String> entry : duplicates.entrySet()) {
+                String name = uniqueName(entry.getValue(), entry.getKey(), taken);
+                msg.log("Quest " + entry.getKey() + " shares its name '" + entry.getValue() + "' with an older quest, renaming it to '" + name + "'.");
+                update.setString(1, name);
+                update.setInt(2, entry.getKey());
+                update.addBatch();
+            }
+            update.executeBatch();
+        }
+    }
+
+    /**
+     * Builds a name not taken yet by appending the ID of the quest to its name, and marks it as taken.
+     *
+     * @param name  The duplicate name.
+     * @param id    The unique identifier of the quest.
+     * @param taken The names taken so far, in lower case.
+     * @return The new name of the quest.
+     */
+    private static String uniqueName(String name, int id, Set<String> taken) {
+        String suffix = " (" + id + ")";
+        String candidate;
+        int attempt = 1;
+        do {
+            candidate = name.substring(0, Math.min(name.length(), NAME_LENGTH - suffix.length())) + suffix;
+            suffix = " (" + id + "-" + ++attempt + ")"; // Only used if the name with the ID is taken as well
+        } while (!taken.add(candidate.toLowerCase(Locale.ROOT)));
+        return candidate;
+    }
+}
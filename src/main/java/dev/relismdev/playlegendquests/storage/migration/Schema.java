@@ -0,0 +1,143 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import dev.relismdev.playlegendquests.utils.msg;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Inspects the schema through the JDBC metadata, so migrations can check whether a step was already applied
+ * the same way on every storage backend. Names are compared case-insensitively.
+ */
+class Schema {
+
+    /**
+     * Checks whether a table exists.
+     *
+     * @param connection The connection to use.
+     * @param table      The name of the table.
+     * @return True if the table exists; otherwise, false.
+     * @throws SQLException If an SQL exception occurs while reading the metadata.
+     */
+    static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, table, null)) {
+            while (tables.next()) {
+                if (table.equalsIgnoreCase(tables.getString("TABLE_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a table has a column.
+     *
+     * @param connection The connection to use.
+     * @param table      The name of the table.
+     * @param column     The name of the column.
+     * @return True if the column exists; otherwise, false.
+     * @throws SQLException If an SQL exception occurs while reading the metadata.
+     */
+    static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            return columns.next();
+        }
+    }
+
+    /**
+     * Checks whether a column stores raw bytes, such as a {@code BINARY(16)} UUID.
+     *
+     * @param connection The connection to use.
+     * @param table      The name of the table.
+     * @param column     The name of the column.
+     * @return True if the column is a binary column; false if it is not or doesn't exist.
+     * @throws SQLException If an SQL exception occurs while reading the metadata.
+     */
+    static boolean isBinaryColumn(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            if (!columns.next()) {
+                return false;
+            }
+            int type = columns.getInt("DATA_TYPE");
+            return type == Types.BINARY || type == Types.VARBINARY;
+        }
+    }
+
+    /**
+     * Checks whether a table has an index.
+     *
+     * @param connection The connection to use.
+     * @param table      The name of the table.
+     * @param index      The name of the index.
+     * @return True if the index exists; otherwise, false.
+     * @throws SQLException If an SQL exception occurs while reading the metadata.
+     */
+    static boolean hasIndex(Connection connection, String table, String index) throws SQLException {
+        try (ResultSet indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, false)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a table has a foreign key.
+     *
+     * @param connection The connection to use.
+     * @param table      The name of the table holding the foreign key.
+     * @param foreignKey The name of the foreign key.
+     * @return True if the foreign key exists; otherwise, false.
+     * @throws SQLException If an SQL exception occurs while reading the metadata.
+     */
+    static boolean hasForeignKey(Connection connection, String table, String foreignKey) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet keys = metaData.getImportedKeys(connection.getCatalog(), null, table)) {
+            while (keys.next()) {
+                if (foreignKey.equalsIgnoreCase(keys.getString("FK_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a column to a table unless the table already has it.
+     *
+     * @param connection The connection to use.
+     * @param table      The name of the table.
+     * @param column     The name of the column.
+     * @param definition The SQL definition of the column, such as its type.
+     * @return True if the column was added; false if it already existed.
+     * @throws SQLException If an SQL exception occurs while inspecting or altering the table.
+     */
+    static boolean addColumnIfMissing(Connection connection, String table, String column, String definition) throws SQLException {
+        if (hasColumn(connection, table, column)) {
+            return false;
+        }
+        execute(connection, "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        msg.log("Added column '" + column + "' to table '" + table + "'.");
+        return true;
+    }
+
+    /**
+     * Executes a statement that returns no rows, such as a schema change.
+     *
+     * @param connection The connection to use.
+     * @param sql        The statement to execute.
+     * @throws SQLException If an SQL exception occurs while executing the statement.
+     */
+    static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
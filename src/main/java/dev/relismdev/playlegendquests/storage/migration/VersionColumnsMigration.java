@@ -0,0 +1,27 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Version 5: adds a version to the quests and users, increased by every update,
+ * so servers sharing the database update rows with compare-and-set writes instead of overwriting each other.
+ */
+class VersionColumnsMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 5;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Row versions for optimistic updates";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        Schema.addColumnIfMissing(connection, "quests", "version", "BIGINT NOT NULL DEFAULT 0");
+        Schema.addColumnIfMissing(connection, "users", "version", "BIGINT NOT NULL DEFAULT 0");
+    }
+}
@@ -0,0 +1,151 @@
+package dev.relismdev.playlegendquests.sync;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.models.EntityChange;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Broadcasts changes to the other servers of a BungeeCord or Velocity network with the 'Forward' plugin message,
+ * so they are invalidated without waiting for the next poll of the change log.
+ * Plugin messages travel through a player connection: when no player is online, changes are only delivered by the change log,
+ * which remains the source of truth.
+ */
+class BungeeTransport implements PluginMessageListener {
+
+    private static final String CHANNEL = "BungeeCord";
+    private static final String SUBCHANNEL = "PlaylegendQuests";
+    private static final int MAX_CHANGES_PER_MESSAGE = 200; // Keeps every message well under the 32 KB limit
+    private final Playlegendquests main = Playlegendquests.getPlugin();
+
+    /**
+     * Registers the plugin channels used to send and receive changes.
+     */
+    void register() {
+        Bukkit.getMessenger().registerOutgoingPluginChannel(main, CHANNEL);
+        Bukkit.getMessenger().registerIncomingPluginChannel(main, CHANNEL, this);
+    }
+
+    /**
+     * Unregisters the plugin channels used to send and receive changes.
+     */
+    void unregister() {
+        Bukkit.getMessenger().unregisterOutgoingPluginChannel(main, CHANNEL);
+        Bukkit.getMessenger().unregisterIncomingPluginChannel(main, CHANNEL, this);
+    }
+
+    /**
+     * Broadcasts changes to every other server of the network, from the main thread.
+     *
+     * @param changes The changes to broadcast.
+     */
+    void send(List<EntityChange> changes) {
+        List<byte[]> messages = new ArrayList<>();
+        try {
+            for (int from = 0; from < changes.size(); from += MAX_CHANGES_PER_MESSAGE) {
+                messages.add(encode(changes.subList(from, Math.min(changes.size(), from + MAX_CHANGES_PER_MESSAGE))));
+            }
+        } catch (IOException e) {
+            msg.log("&#ff6961Failed to encode changes for BungeeCord: &#fdfd96" + e.getMessage());
+            return;
+        }
+        Bukkit.getScheduler().runTask(main, () -> {
+            Iterator<? extends Player> players = Bukkit.getOnlinePlayers().iterator();
+            if (!players.hasNext()) {
+                return;
+            }
+            Player carrier = players.next();
+            for (byte[] message : messages) {
+                carrier.sendPluginMessage(main, CHANNEL, message);
+            }
+        });
+    }
+
+    /**
+     * Handles a plugin message, applying the changes it carries if it was forwarded by this plugin on another server.
+     *
+     * @param channel The channel the message was received on.
+     * @param player  The player connection the message was received through.
+     * @param message The content of the message.
+     */
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (!CHANNEL.equals(channel)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (!SUBCHANNEL.equals(in.readUTF())) {
+                return;
+            }
+            byte[] data = new byte[in.readUnsignedShort()];
+            in.readFully(data);
+            for (EntityChange change : decode(data)) {
+                InvalidationBus.receive(change);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            msg.debug("Ignoring a malformed BungeeCord message: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes changes into a 'Forward' message to every other server.
+     *
+     * @param changes The changes to encode.
+     * @return The content of the plugin message.
+     * @throws IOException If the changes could not be written.
+     */
+    private static byte[] encode(List<EntityChange> changes) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(data)) {
+            out.writeInt(changes.size());
+            for (EntityChange change : changes) {
+                out.writeUTF(change.getServerId());
+                out.writeUTF(change.getType().name());
+                out.writeUTF(change.getKey());
+                out.writeLong(change.getVersion());
+            }
+        }
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(message)) {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(data.size());
+            data.writeTo(out);
+        }
+        return message.toByteArray();
+    }
+
+    /**
+     * Decodes the changes written by {@link #encode(List)}.
+     *
+     * @param data The forwarded data.
+     * @return The decoded changes.
+     * @throws IOException              If the data is truncated.
+     * @throws IllegalArgumentException If the data holds an unknown entity type.
+     */
+    private static List<EntityChange> decode(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int count = in.readInt();
+            List<EntityChange> changes = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String serverId = in.readUTF();
+                EntityChange.Type type = EntityChange.Type.valueOf(in.readUTF());
+                String key = in.readUTF();
+                changes.add(new EntityChange(0, serverId, type, key, in.readLong()));
+            }
+            return changes;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package dev.relismdev.playlegendquests.sync;
+
+import dev.relismdev.playlegendquests.Playlegendquests;
+import dev.relismdev.playlegendquests.cache.QuestChangeListener;
+import dev.relismdev.playlegendquests.cache.QuestRegistry;
+import dev.relismdev.playlegendquests.cache.UserCache;
+import dev.relismdev.playlegendquests.models.EntityChange;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.utils.msg;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the caches of the servers sharing a database consistent.
+ * Quests and user profiles changed by this server are published as {@link EntityChange}s, appended to the 'change_log' table
+ * and optionally broadcast through the {@link BungeeTransport}. Every server polls the table by id and invalidates only
+ * the affected entries of its {@link QuestRegistry} and {@link UserCache}. Entries already at the published version are skipped,
+ * so a change delivered by both transports is only applied once.
+ * <p>
+ * Changes are queued from any thread and appended with the next poll, in one batch. Ids are assigned when a change is inserted
+ * but become visible when it commits, so a change committing after a later one leaves a temporary gap in the log:
+ * the poller handles what it sees, keeps its position before the gap, and only skips it once it has stayed open for a while.
+ */
+public class InvalidationBus implements QuestChangeListener {
+
+    private static Playlegendquests main = Playlegendquests.getPlugin();
+    private static final long DEFAULT_POLL_INTERVAL_TICKS = 20; // 1 second
+    private static final long DEFAULT_RETENTION_MINUTES = 10;
+    private static final int POLL_LIMIT = 500;
+    private static final long GAP_TIMEOUT_MS = 5000; // Longer than any insert takes to commit
+    private static final long PRUNE_INTERVAL_MS = 60000;
+    private static final Queue<EntityChange> outbox = new ConcurrentLinkedQueue<>(); // Changes of this server waiting to be published
+    private static final AtomicBoolean polling = new AtomicBoolean(); // Keeps runs of the poll timer from overlapping
+    private static String serverId; // Identifier of this server, null while the bus is disabled
+    private static BungeeTransport bungee; // Null unless broadcasting through BungeeCord
+    private static BukkitTask pollTask;
+    private static long retentionMs;
+
+    // Poller state, only used by the poll timer
+    private static long cursor = -1; // Every change up to this position was handled, -1 until the start of the log is read
+    private static final TreeSet<Long> handled = new TreeSet<>(); // Changes handled past a gap right after the cursor
+    private static long gapSince; // When the gap right after the cursor was first seen, 0 if there is none
+    private static long lastPrune;
+
+    /**
+     * Starts publishing the changes made by this server and polling the changes of the others, using the settings
+     * from the plugin configuration. Only changes made from now on are read, the caches being loaded afterwards.
+     * Blocks on the database.
+     */
+    public static void init() {
+        if (!main.getConfig().getBoolean("sync_enabled", true)) {
+            return;
+        }
+        String configuredId = main.getConfig().getString("server_id", "");
+        init(configuredId == null || configuredId.trim().isEmpty() ? UUID.randomUUID().toString() : configuredId.trim(),
+                TimeUnit.MINUTES.toMillis(Math.max(1, main.getConfig().getLong("sync_change_log_retention_minutes", DEFAULT_RETENTION_MINUTES))));
+        if (main.getConfig().getBoolean("sync_bungeecord", false)) {
+            bungee = new BungeeTransport();
+            bungee.register();
+        }
+        long interval = Math.max(1, main.getConfig().getLong("sync_poll_interval_ticks", DEFAULT_POLL_INTERVAL_TICKS));
+        pollTask = Bukkit.getScheduler().runTaskTimerAsynchronously(main, InvalidationBus::poll, interval, interval);
+        msg.log("Sharing cache invalidations as server '" + serverId + "'" + (bungee != null ? ", through BungeeCord as well." : "."));
+    }
+
+    /**
+     * Starts publishing the changes made by this server through the change log, without the poll timer nor BungeeCord,
+     * and without reading the plugin configuration. Used to run the bus outside of a server, such as in the tests,
+     * where changes are exchanged by calling {@link #poll()}. Blocks on the database.
+     *
+     * @param id              The identifier of this server, unique among the servers sharing the database.
+     * @param retentionMillis How long changes are kept in the change log, in milliseconds.
+     */
+    public static void init(String id, long retentionMillis) {
+        serverId = id;
+        retentionMs = retentionMillis;
+        try {
+            cursor = DatabaseWrapper.getLatestChangeId();
+        } catch (SQLException e) {
+            msg.log("&#ff6961Failed to read the change log, starting from the next poll: &#fdfd96" + e.getMessage());
+        }
+        QuestRegistry.addChangeListener(new InvalidationBus());
+    }
+
+    /**
+     * Publishes a quest created, updated or deleted on this server, with the version now held by the registry.
+     *
+     * @param questId The unique identifier of the changed quest.
+     */
+    @Override
+    public void onQuestChanged(int questId) {
+        publishQuest(questId, QuestRegistry.getVersion(questId));
+    }
+
+    /**
+     * Publishes a change made by this server to a quest.
+     *
+     * @param questId The unique identifier of the quest.
+     * @param version The version of the quest after the change, -1 if unknown, such as for a deletion.
+     */
+    public static void publishQuest(int questId, long version) {
+        publish(EntityChange.Type.QUEST, Integer.toString(questId), version);
+    }
+
+    /**
+     * Publishes a change made by this server to the stored profile of a player.
+     *
+     * @param uuid    The unique identifier of the player.
+     * @param version The version of the profile after the change, -1 if unknown.
+     */
+    public static void publishUser(UUID uuid, long version) {
+        publish(EntityChange.Type.USER, uuid.toString(), version);
+    }
+
+    /**
+     * Invalidates the cache entry affected by a change received from a transport.
+     * Changes made by this server and malformed changes are ignored. Can be called from any thread.
+     *
+     * @param change The received change.
+     */
+    static void receive(EntityChange change) {
+        if (serverId == null || serverId.equals(change.getServerId())) {
+            return;
+        }
+        try {
+            switch (change.getType()) {
+                case QUEST:
+                    QuestRegistry.invalidate(Integer.parseInt(change.getKey()), change.getVersion());
+                    break;
+                case USER:
+                    UserCache.invalidate(UUID.fromString(change.getKey()), change.getVersion());
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            msg.debug("Ignoring the malformed change " + change + ".");
+        }
+    }
+
+    /**
+     * Stops polling and appends the changes still queued. Blocks on the database.
+     * Must be called after the caches wrote their last changes, before the connection pool is closed.
+     */
+    public static void shutdown() {
+        if (pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
+        }
+        if (bungee != null) {
+            bungee.unregister();
+            bungee = null; // Nothing can be scheduled anymore, the remaining changes go through the change log only
+        }
+        append();
+        serverId = null;
+    }
+
+    /**
+     * Queues a change of this server, to be published with the next poll.
+     *
+     * @param type    The kind of the changed entity.
+     * @param key     The key of the changed entity.
+     * @param version The version of the entity after the change.
+     */
+    private static void publish(EntityChange.Type type, String key, long version) {
+        String id = serverId;
+        if (id != null) {
+            outbox.add(new EntityChange(0, id, type, key, version));
+        }
+    }
+
+    /**
+     * Publishes the queued changes of this server, then reads and applies the changes of the others.
+     * Runs on the poll timer, or is called directly when the bus runs without it.
+     */
+    static void poll() {
+        if (!polling.compareAndSet(false, true)) {
+            return; // The previous run is still going
+        }
+        try {
+            append();
+            read();
+            prune();
+        } finally {
+            polling.set(false);
+        }
+    }
+
+    /**
+     * Appends the queued changes of this server to the change log with one batch, and broadcasts them if enabled.
+     * Changes that could not be appended are queued again, to be retried with the next poll.
+     */
+    private static void append() {
+        if (outbox.isEmpty()) {
+            return;
+        }
+        List<EntityChange> batch = new ArrayList<>();
+        EntityChange change;
+        while ((change = outbox.poll()) != null) {
+            batch.add(change);
+        }
+        BungeeTransport transport = bungee;
+        if (transport != null) {
+            transport.send(batch);
+        }
+        try {
+            DatabaseWrapper.appendChanges(batch);
+        } catch (SQLException e) {
+            msg.log("&#ff6961Failed to publish " + batch.size() + " change(s): &#fdfd96" + e.getMessage());
+            outbox.addAll(batch);
+        }
+    }
+
+    /**
+     * Reads the changes appended after the cursor and applies those not handled yet,
+     * then moves the cursor as far as the log has no gaps.
+     */
+    private static void read() {
+        try {
+            if (cursor < 0) {
+                cursor = DatabaseWrapper.getLatestChangeId();
+                return;
+            }
+            for (EntityChange change : DatabaseWrapper.getChanges(cursor, POLL_LIMIT)) {
+                if (handled.add(change.getId())) {
+                    receive(change);
+                }
+            }
+        } catch (SQLException e) {
+            msg.log("&#ff6961Failed to read the change log: &#fdfd96" + e.getMessage());
+            return;
+        }
+        advance();
+        if (handled.isEmpty()) {
+            gapSince = 0;
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (gapSince == 0) {
+            gapSince = now;
+        } else if (now - gapSince >= GAP_TIMEOUT_MS) {
+            // Never committed, such as a rolled back insert: skip to the next change handled
+            cursor = handled.first() - 1;
+            gapSince = 0;
+            advance();
+        }
+    }
+
+    /**
+     * Moves the cursor over the changes handled right after it.
+     */
+    private static void advance() {
+        while (!handled.isEmpty() && handled.first() == cursor + 1) {
+            cursor = handled.pollFirst();
+        }
+    }
+
+    /**
+     * Deletes the changes older than the retention period from the change log, at most once per prune interval.
+     */
+    private static void prune() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < PRUNE_INTERVAL_MS) {
+            return;
+        }
+        lastPrune = now;
+        try {
+            int pruned = DatabaseWrapper.pruneChanges(now - retentionMs);
+            if (pruned > 0) {
+                msg.debug("Pruned " + pruned + " change(s) from the change log.");
+            }
+        } catch (SQLException e) {
+            msg.log("&#ff6961Failed to prune the change log: &#fdfd96" + e.getMessage());
+        }
+    }
+}
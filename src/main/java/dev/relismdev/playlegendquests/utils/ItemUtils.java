@@ -1,30 +1,89 @@
 package dev.relismdev.playlegendquests.utils;
 
+import dev.relismdev.playlegendquests.utils.codec.ItemCodec;
+import dev.relismdev.playlegendquests.utils.codec.LegacyItemCodec;
+import dev.relismdev.playlegendquests.utils.codec.PaperItemCodec;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.util.io.BukkitObjectInputStream;
-import org.bukkit.util.io.BukkitObjectOutputStream;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ItemUtils {
 
+    private static final ItemCodec[] codecs = new ItemCodec[]{new LegacyItemCodec(), new PaperItemCodec()}; // Indexed by codec id
+    private static volatile ItemCodec codec = codecs[PaperItemCodec.ID]; // Codec used to encode new data
+
+    // Decoded reward items per quest id, so each stored item is only deserialized once per change
+    private static final Map<Integer, CachedItem> questItems = new ConcurrentHashMap<>();
+
+    /**
+     * Selects the codec used to encode items from now on. Data encoded with any known codec can still be decoded.
+     *
+     * @param name The name of the codec, "paper" or "legacy".
+     * @return True if the codec exists and was selected; otherwise, false and the current codec is kept.
+     */
+    public static boolean setCodec(String name) {
+        for (ItemCodec candidate : codecs) {
+            if (candidate.getName().equalsIgnoreCase(name)) {
+                codec = candidate;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Encodes an ItemStack with the selected codec, prefixed by the codec id.
+     *
+     * @param itemStack The ItemStack object to be encoded.
+     * @return The encoded ItemStack. Returns null if encoding fails.
+     */
+    public static byte[] encodeItemStack(ItemStack itemStack) {
+        ItemCodec encoder = codec;
+        try {
+            byte[] encoded = encoder.encode(itemStack);
+            byte[] data = new byte[encoded.length + 1];
+            data[0] = encoder.getId();
+            System.arraycopy(encoded, 0, data, 1, encoded.length);
+            return data;
+        } catch (IOException | RuntimeException e) {
+            msg.log("&#ff6961Failed to encode an item with the " + encoder.getName() + " codec: &#fdfd96" + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Decodes an ItemStack encoded by {@link #encodeItemStack(ItemStack)}, using the codec named by its prefix.
+     *
+     * @param data The encoded ItemStack.
+     * @return The decoded ItemStack. Returns null if decoding fails.
+     */
+    public static ItemStack decodeItemStack(byte[] data) {
+        if (data == null || data.length < 2 || data[0] < 0 || data[0] >= codecs.length) {
+            return null;
+        }
+        try {
+            return codecs[data[0]].decode(data, 1, data.length - 1);
+        } catch (IOException | RuntimeException e) {
+            msg.log("&#ff6961Failed to decode an item with the " + codecs[data[0]].getName() + " codec: &#fdfd96" + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Serializes an ItemStack object to a Base64-encoded string.
      *
      * @param itemStack The ItemStack object to be serialized.
-     * @return A Base64-encoded string representing the serialized ItemStack. Returns null if serialization fails.
+     * @return A Base64-encoded string representing the serialized ItemStack. Returns an empty string if serialization fails.
      */
     public static String serializeItemStack(ItemStack itemStack) {
         try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream);
-            dataOutput.writeObject(itemStack);
-            dataOutput.close();
-            return Base64.getEncoder().encodeToString(outputStream.toByteArray());
+            return Base64.getEncoder().encodeToString(codecs[LegacyItemCodec.ID].encode(itemStack));
         } catch (Exception e) {
-            e.printStackTrace();
+            msg.log("&#ff6961Failed to serialize an item: &#fdfd96" + e.getMessage());
             return "";
         }
     }
@@ -37,15 +96,86 @@ public class ItemUtils {
      */
     public static ItemStack deserializeItemStack(String base64String) {
         try {
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64.getDecoder().decode(base64String));
-            BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream);
-            ItemStack itemStack = (ItemStack) dataInput.readObject();
-            dataInput.close();
-            return itemStack;
+            byte[] data = Base64.getDecoder().decode(base64String);
+            return codecs[LegacyItemCodec.ID].decode(data, 0, data.length);
         } catch (Exception e) {
-            e.printStackTrace();
+            msg.log("&#ff6961Failed to deserialize an item: &#fdfd96" + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Decodes the reward item of a quest, reusing the previously decoded item as long as the stored data is unchanged.
+     * The data is compared by hash first and then by content, so a changed item is always decoded again.
+     *
+     * @param questId The unique identifier of the quest owning the item.
+     * @param data    The ItemStack encoded by {@link #encodeItemStack(ItemStack)}.
+     * @return A clone of the decoded ItemStack, safe to modify. Returns null if decoding fails.
+     */
+    public static ItemStack decodeQuestItem(int questId, byte[] data) {
+        CachedItem cached = questItems.get(questId);
+        if (cached == null || !cached.matches(data)) {
+            ItemStack itemStack = decodeItemStack(data);
+            if (itemStack == null) {
+                return null;
+            }
+            cached = new CachedItem(data, itemStack);
+            questItems.put(questId, cached);
+        }
+        return cached.itemStack.clone();
+    }
+
+    /**
+     * Encodes the reward item of a quest, reusing the cached data if the item equals the cached decoded item.
+     *
+     * @param questId   The unique identifier of the quest owning the item.
+     * @param itemStack The ItemStack object to be encoded.
+     * @return The encoded ItemStack. Returns null if encoding fails.
+     */
+    public static byte[] encodeQuestItem(int questId, ItemStack itemStack) {
+        CachedItem cached = questItems.get(questId);
+        if (cached != null && cached.itemStack.equals(itemStack)) {
+            return cached.data;
+        }
+        byte[] data = encodeItemStack(itemStack);
+        if (data != null) {
+            questItems.put(questId, new CachedItem(data, itemStack.clone()));
+        }
+        return data;
+    }
+
+    /**
+     * Drops the cached reward item of a quest, typically once the quest is deleted.
+     *
+     * @param questId The unique identifier of the quest.
+     */
+    public static void evictQuestItem(int questId) {
+        questItems.remove(questId);
+    }
+
+    /**
+     * A decoded item along with the encoded data it was decoded from.
+     */
+    private static final class CachedItem {
+
+        private final byte[] data; // The encoded item, never modified
+        private final int hash; // Hash of the encoded item, checked before comparing the content
+        private final ItemStack itemStack; // The decoded item, never handed out directly
+
+        private CachedItem(byte[] data, ItemStack itemStack) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+            this.itemStack = itemStack;
+        }
+
+        /**
+         * Checks whether the given encoded data is the one this item was decoded from.
+         *
+         * @param other The encoded data to compare.
+         * @return True if the data is identical; otherwise, false.
+         */
+        private boolean matches(byte[] other) {
+            return other != null && hash == Arrays.hashCode(other) && Arrays.equals(data, other);
+        }
+    }
 }
@@ -3,94 +3,161 @@ package dev.relismdev.playlegendquests.utils;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import java.io.*;
-import java.net.URL;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * Utility class to manage locale file configurations and their relative messages within the plugin.
+ * Locales ship inside the plugin jar and are extracted to the data folder, where they can be edited.
+ * Loaded locales are published as an immutable snapshot that is swapped as a whole,
+ * so readers on any thread never observe a partially loaded or empty set of messages.
  */
 public class LocaleManager {
 
-    private static final Map<String, YamlConfiguration> locales = new HashMap<>();
+    private static final String LOCALE_FOLDER = "locale";
+    private static final String[] BUNDLED_LOCALES = {"en_US"}; // Locale files shipped inside the jar
+    private static final AtomicLong generation = new AtomicLong(); // Lets only the latest reload publish its snapshot
+    private static volatile Map<String, Map<String, MessageTemplate>> templates = Collections.emptyMap(); // Compiled messages per locale, fallback included
+    private static volatile Map<String, MessageTemplate> bundledTemplates = Collections.emptyMap(); // Default locale as shipped in the jar, the final fallback
     private static String defaultLocale = "en_US";
 
     /**
-     * Initializes the LocaleManager by loading the default locale and all available locales.
+     * Initializes the LocaleManager.
+     * The default locale bundled in the jar is compiled right away so messages are available immediately,
+     * then every locale of the data folder is loaded in the background.
      *
      * @param plugin The JavaPlugin instance.
      */
     public static void init(JavaPlugin plugin) {
-        loadDefaultLocale(plugin);
-        loadLocales(plugin);
+        extractBundledLocales(plugin);
+        bundledTemplates = Collections.unmodifiableMap(compileMessages(readBundledLocale(plugin, defaultLocale)));
+        templates = Collections.singletonMap(defaultLocale, bundledTemplates);
+        reloadLocales(plugin);
     }
 
     /**
-     * Loads the default locale YAML file from a URL if it doesn't exist locally,
-     * and saves it in the plugin's data folder.
+     * Extracts the locale files bundled in the jar to the plugin's data folder, unless they already exist there.
      *
      * @param plugin The JavaPlugin instance.
      */
-    private static void loadDefaultLocale(JavaPlugin plugin) {
-        File defaultLocaleFile = new File(plugin.getDataFolder(), "locale/" + defaultLocale + ".yml");
-
-        if (!defaultLocaleFile.exists()) {
-            try {
-                // Create the directories if they don't exist
-                defaultLocaleFile.getParentFile().mkdirs();
-
-                // URL for the default locale YAML file
-                String defaultLocaleUrl = "https://github.dev/Relism/PlaylegendQuests/master/assets/locales/" + defaultLocale + ".yml";
-                URL url = new URL(defaultLocaleUrl);
-                BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream()));
-
-                // Write the content to the default locale file
-                FileWriter fileWriter = new FileWriter(defaultLocaleFile);
-                BufferedWriter out = new BufferedWriter(fileWriter);
-                String inputLine;
-                while ((inputLine = in.readLine()) != null) {
-                    out.write(inputLine);
-                    out.newLine();
-                }
-
-                // Close resources
-                in.close();
-                out.close();
-
-                // Log success message
-                msg.log("Downloaded and saved " + defaultLocale + ".yml from GitHub raw URL.");
-            } catch (IOException e) {
-                // Log error if there's an issue downloading or saving the file
-                msg.log("Error downloading or saving " + defaultLocale + ".yml: " + e.getMessage());
+    private static void extractBundledLocales(JavaPlugin plugin) {
+        for (String locale : BUNDLED_LOCALES) {
+            String path = LOCALE_FOLDER + "/" + locale + ".yml";
+            if (!new File(plugin.getDataFolder(), path).exists()) {
+                plugin.saveResource(path, false);
             }
-        } else {
-            YamlConfiguration defaultConfig = YamlConfiguration.loadConfiguration(defaultLocaleFile);
-            locales.put(defaultLocale, defaultConfig);
         }
     }
 
     /**
-     * Loads all available locales from the plugin's data folder.
+     * Reads the raw messages of a locale bundled in the jar.
      *
      * @param plugin The JavaPlugin instance.
+     * @param locale The name of the locale.
+     * @return The raw messages of the locale, empty if it is not bundled.
      */
-    private static void loadLocales(JavaPlugin plugin) {
-        File localeFolder = new File(plugin.getDataFolder(), "locale");
+    private static Map<String, String> readBundledLocale(JavaPlugin plugin, String locale) {
+        InputStream stream = plugin.getResource(LOCALE_FOLDER + "/" + locale + ".yml");
+        if (stream == null) {
+            msg.log("&#ff6961Bundled locale " + locale + ".yml is missing from the plugin jar.");
+            return Collections.emptyMap();
+        }
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            return readMessages(YamlConfiguration.loadConfiguration(reader));
+        } catch (IOException e) {
+            msg.log("&#ff6961Failed to read bundled locale " + locale + ".yml: &#fdfd96" + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
 
-        if (!localeFolder.exists()) {
-            localeFolder.mkdirs();
+    /**
+     * Flattens a loaded locale file into its raw messages, keyed by their full path.
+     *
+     * @param config The loaded locale file.
+     * @return The raw messages of the locale file.
+     */
+    private static Map<String, String> readMessages(YamlConfiguration config) {
+        Map<String, String> messages = new HashMap<>();
+        for (String key : config.getKeys(true)) {
+            if (config.isString(key)) {
+                messages.put(key, config.getString(key));
+            }
         }
+        return messages;
+    }
 
-        File[] localeFiles = localeFolder.listFiles((dir, name) -> name.endsWith(".yml"));
+    /**
+     * Compiles raw messages into templates.
+     *
+     * @param messages The raw messages, keyed by their full path.
+     * @return The compiled templates, keyed by the same paths.
+     */
+    private static Map<String, MessageTemplate> compileMessages(Map<String, String> messages) {
+        Map<String, MessageTemplate> compiled = new HashMap<>();
+        for (Map.Entry<String, String> entry : messages.entrySet()) {
+            compiled.put(entry.getKey(), MessageTemplate.compile(entry.getValue()));
+        }
+        return compiled;
+    }
 
-        if (localeFiles != null) {
-            for (File file : localeFiles) {
-                String localeName = file.getName().replace(".yml", "");
-                YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
-                locales.put(localeName, config);
+    /**
+     * Compiles the raw messages of every loaded locale into an immutable snapshot.
+     * Each locale gets a flat map holding every message of the default locale overridden by its own,
+     * so the fallback is resolved once here instead of on every lookup.
+     * The default locale itself falls back on the one bundled in the jar, so keys missing from an outdated file still resolve.
+     *
+     * @param rawMessages The raw messages of each loaded locale file.
+     * @return The compiled templates of every locale.
+     */
+    private static Map<String, Map<String, MessageTemplate>> compileTemplates(Map<String, Map<String, String>> rawMessages) {
+        Map<String, MessageTemplate> defaultTemplates = new HashMap<>(bundledTemplates);
+        Map<String, String> defaultMessages = rawMessages.get(defaultLocale);
+        if (defaultMessages != null) {
+            defaultTemplates.putAll(compileMessages(defaultMessages));
+        }
+        Map<String, Map<String, MessageTemplate>> snapshot = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> locale : rawMessages.entrySet()) {
+            if (!locale.getKey().equals(defaultLocale)) {
+                Map<String, MessageTemplate> localeTemplates = new HashMap<>(defaultTemplates);
+                localeTemplates.putAll(compileMessages(locale.getValue()));
+                snapshot.put(locale.getKey(), Collections.unmodifiableMap(localeTemplates));
             }
         }
+        snapshot.put(defaultLocale, Collections.unmodifiableMap(defaultTemplates));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Retrieves the compiled message template of the specified locale using the given key.
+     * If the message is not found in the specified locale, the one of the default locale is returned.
+     * If not found in the default locale either, returns a template holding an error message.
+     *
+     * @param locale The locale for the message.
+     * @param key    The key to retrieve the message.
+     * @return The template corresponding to the locale and key.
+     */
+    public static MessageTemplate getTemplate(String locale, String key) {
+        Map<String, Map<String, MessageTemplate>> snapshot = templates;
+        Map<String, MessageTemplate> localeTemplates = locale == null ? null : snapshot.get(locale);
+        if (localeTemplates == null) {
+            localeTemplates = snapshot.get(defaultLocale);
+        }
+        MessageTemplate template = localeTemplates == null ? null : localeTemplates.get(key);
+        if (template == null) {
+            template = bundledTemplates.get(key);
+        }
+        return template != null ? template : MessageTemplate.compile("Message not found for locale " + locale + " and key " + key);
     }
 
     /**
@@ -103,27 +170,36 @@ public class LocaleManager {
      * @return The message corresponding to the locale and key, or a default error message if not found.
      */
     public static String getMessage(String locale, String key) {
-        YamlConfiguration config = locales.get(locale);
-        if (config != null && config.contains(key)) {
-            return config.getString(key);
-        } else {
-            YamlConfiguration defaultConfig = locales.get(defaultLocale);
-            if (defaultConfig != null && defaultConfig.contains(key)) {
-                return defaultConfig.getString(key);
-            } else {
-                return "Message not found for locale " + locale + " and key " + key;
-            }
-        }
+        return getTemplate(locale, key).getRaw();
     }
 
     /**
-     * Reloads all available locales.
+     * Reloads all available locales from the plugin's data folder in the background.
+     * The files are parsed in parallel and the current messages stay in use until the new ones are swapped in.
+     * If loading fails, the current messages are kept.
      *
      * @param plugin The JavaPlugin instance.
+     * @return A future completed once the reloaded locales are in use.
      */
-    public static void reloadLocales(JavaPlugin plugin) {
-        locales.clear();
-        loadLocales(plugin);
+    public static CompletableFuture<Void> reloadLocales(JavaPlugin plugin) {
+        long reload = generation.incrementAndGet();
+        File localeFolder = new File(plugin.getDataFolder(), LOCALE_FOLDER);
+        return CompletableFuture.supplyAsync(() -> {
+            File[] localeFiles = localeFolder.listFiles((dir, name) -> name.endsWith(".yml"));
+            Map<String, Map<String, String>> rawMessages = localeFiles == null ? Collections.emptyMap()
+                    : Arrays.stream(localeFiles).parallel().collect(Collectors.toConcurrentMap(
+                            file -> file.getName().substring(0, file.getName().length() - ".yml".length()),
+                            file -> readMessages(YamlConfiguration.loadConfiguration(file))));
+            return compileTemplates(rawMessages);
+        }).handle((snapshot, error) -> {
+            if (error != null) {
+                msg.log("&#ff6961Failed to load locales: &#fdfd96" + error.getMessage());
+            } else if (generation.get() == reload) {
+                templates = snapshot; // A newer reload publishes its own snapshot instead
+                msg.log("Loaded " + snapshot.size() + " locale(s).");
+            }
+            return null;
+        });
     }
 
     /**
@@ -135,5 +211,3 @@ public class LocaleManager {
         return defaultLocale;
     }
 }
-
-
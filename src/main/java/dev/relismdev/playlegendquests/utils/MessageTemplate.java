@@ -0,0 +1,168 @@
+package dev.relismdev.playlegendquests.utils;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A locale message compiled once at load time: its color codes are already translated
+ * and the positions of its placeholders are already known, so rendering it only fills the slots.
+ * Two kinds of slots are supported: PlaceholderAPI placeholders such as {@code %player_name%},
+ * and positional arguments such as {@code {0}}, filled from the arguments given when sending the message.
+ */
+public class MessageTemplate {
+
+    private final String raw; // The message as written in the locale file
+    private final String[] literals; // Color-translated text around the slots, one more than the slots
+    private final String[] slots; // Slot tokens, such as "%player_name%" or "{0}"
+    private final int[] argumentIndexes; // Argument index of each slot, -1 for PlaceholderAPI slots
+    private final boolean hasPlaceholders; // Whether any slot is a PlaceholderAPI placeholder
+
+    /**
+     * Constructs a MessageTemplate from its compiled parts.
+     *
+     * @param raw             The message as written in the locale file.
+     * @param literals        The color-translated text around the slots.
+     * @param slots           The slot tokens.
+     * @param argumentIndexes The argument index of each slot, -1 for PlaceholderAPI slots.
+     */
+    private MessageTemplate(String raw, String[] literals, String[] slots, int[] argumentIndexes) {
+        this.raw = raw;
+        this.literals = literals;
+        this.slots = slots;
+        this.argumentIndexes = argumentIndexes;
+        boolean placeholders = false;
+        for (int argumentIndex : argumentIndexes) {
+            placeholders |= argumentIndex < 0;
+        }
+        this.hasPlaceholders = placeholders;
+    }
+
+    /**
+     * Compiles a message: splits it around its slots and translates the color codes of the text in between.
+     *
+     * @param raw The message as written in the locale file.
+     * @return The compiled template.
+     */
+    public static MessageTemplate compile(String raw) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        List<Integer> argumentIndexes = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < raw.length()) {
+            char c = raw.charAt(i);
+            int end = -1;
+            int argumentIndex = -1;
+            if (c == '%') {
+                end = findPlaceholderEnd(raw, i);
+            } else if (c == '{') {
+                end = findArgumentEnd(raw, i);
+                if (end > 0) {
+                    argumentIndex = Integer.parseInt(raw.substring(i + 1, end - 1));
+                }
+            }
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            literals.add(msg.translateColorCodes(raw.substring(literalStart, i)));
+            slots.add(raw.substring(i, end));
+            argumentIndexes.add(argumentIndex);
+            literalStart = end;
+            i = end;
+        }
+        literals.add(msg.translateColorCodes(raw.substring(literalStart)));
+
+        int[] indexes = new int[argumentIndexes.size()];
+        for (int j = 0; j < indexes.length; j++) {
+            indexes[j] = argumentIndexes.get(j);
+        }
+        return new MessageTemplate(raw, literals.toArray(new String[0]), slots.toArray(new String[0]), indexes);
+    }
+
+    /**
+     * Renders the message for a player, filling every slot.
+     * Placeholder values are color-translated as well, as they may contain color codes themselves.
+     * PlaceholderAPI is only called for the placeholder slots, never for the text around them.
+     *
+     * @param player    The player the message is rendered for, used to resolve PlaceholderAPI placeholders.
+     * @param arguments The values of the positional argument slots; missing arguments leave their slot as is.
+     * @return The rendered, color-translated message.
+     */
+    public String render(Player player, Object... arguments) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        StringBuilder message = new StringBuilder(raw.length() + 32);
+        for (int i = 0; i < slots.length; i++) {
+            message.append(literals[i]);
+            int argumentIndex = argumentIndexes[i];
+            String value;
+            if (argumentIndex < 0) {
+                value = Placeholders.resolve(player, slots[i]);
+            } else if (arguments != null && argumentIndex < arguments.length) {
+                value = String.valueOf(arguments[argumentIndex]);
+            } else {
+                value = slots[i];
+            }
+            message.append(msg.translateColorCodes(value));
+        }
+        return message.append(literals[slots.length]).toString();
+    }
+
+    /**
+     * Checks whether the message contains PlaceholderAPI placeholders,
+     * meaning that its rendering depends on the player it is rendered for.
+     *
+     * @return True if the message has at least one PlaceholderAPI slot; otherwise, false.
+     */
+    public boolean hasPlaceholders() {
+        return hasPlaceholders;
+    }
+
+    /**
+     * Retrieves the message as written in the locale file.
+     *
+     * @return The raw message.
+     */
+    public String getRaw() {
+        return raw;
+    }
+
+    /**
+     * Finds the end of a PlaceholderAPI placeholder, a '%'-delimited identifier without whitespace.
+     *
+     * @param text  The message.
+     * @param start The position of the opening '%'.
+     * @return The position right after the closing '%', or -1 if no placeholder starts here.
+     */
+    private static int findPlaceholderEnd(String text, int start) {
+        for (int i = start + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%') {
+                return i > start + 1 ? i + 1 : -1;
+            }
+            if (Character.isWhitespace(c)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the end of a positional argument slot, a number between braces such as {@code {0}}.
+     *
+     * @param text  The message.
+     * @param start The position of the opening '{'.
+     * @return The position right after the closing '}', or -1 if no argument slot starts here.
+     */
+    private static int findArgumentEnd(String text, int start) {
+        int i = start + 1;
+        while (i < text.length() && i - start <= 2 && Character.isDigit(text.charAt(i))) {
+            i++;
+        }
+        return i > start + 1 && i < text.length() && text.charAt(i) == '}' ? i + 1 : -1;
+    }
+}
@@ -0,0 +1,129 @@
+package dev.relismdev.playlegendquests.utils;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Gateway to PlaceholderAPI for the messaging pipeline.
+ * Text without placeholders never reaches PlaceholderAPI, nothing is parsed when PlaceholderAPI is not installed,
+ * and placeholder values can optionally be memoized per player for a configurable time.
+ */
+public class Placeholders {
+
+    private static final int MAX_CACHED_PER_PLAYER = 64; // Bounds the memoized values of a single player
+    private static final Map<UUID, Map<String, CachedValue>> cache = new ConcurrentHashMap<>();
+    private static volatile BiFunction<Player, String, String> parser; // Replaces the placeholders of a text, null when none are parsed
+    private static long ttlNanos;
+
+    /**
+     * Detects PlaceholderAPI and reads the memoization time from the plugin configuration.
+     *
+     * @param plugin The JavaPlugin instance.
+     */
+    public static void init(JavaPlugin plugin) {
+        // A lambda rather than a method reference, so the PlaceholderAPI classes are only resolved once it is installed
+        init(Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI") ? (player, text) -> PlaceholderAPI.setPlaceholders(player, text) : null,
+                plugin.getConfig().getLong("placeholder_cache_ttl_ms", 0));
+        if (parser == null) {
+            msg.log("PlaceholderAPI not found, placeholders will not be parsed.");
+        }
+    }
+
+    /**
+     * Parses placeholders with the given function, used to run the messaging pipeline outside of a server,
+     * such as in the tests and benchmarks. Drops every memoized value.
+     *
+     * @param placeholderParser Replaces the placeholders of a text for a player, or null to parse none.
+     * @param ttlMillis         How long resolved placeholder values are memoized per player, 0 to resolve them every time.
+     */
+    public static void init(BiFunction<Player, String, String> placeholderParser, long ttlMillis) {
+        parser = placeholderParser;
+        ttlNanos = Math.max(0, ttlMillis) * 1_000_000L;
+        cache.clear();
+    }
+
+    /**
+     * Checks whether placeholders are parsed at all.
+     *
+     * @return True if PlaceholderAPI is installed and enabled; otherwise, false.
+     */
+    public static boolean isEnabled() {
+        return parser != null;
+    }
+
+    /**
+     * Parses the placeholders of a text for a player.
+     * Text that cannot contain a placeholder is returned as is, without calling PlaceholderAPI.
+     *
+     * @param player The player the placeholders are resolved for.
+     * @param text   The text to parse.
+     * @return The text with its placeholders replaced.
+     */
+    public static String setPlaceholders(Player player, String text) {
+        BiFunction<Player, String, String> placeholderParser = parser;
+        if (placeholderParser == null || text.indexOf('%') < 0) {
+            return text;
+        }
+        return placeholderParser.apply(player, text);
+    }
+
+    /**
+     * Resolves a single placeholder token such as {@code %player_name%} for a player,
+     * reusing the value memoized for that player if it has not expired yet.
+     *
+     * @param player The player the placeholder is resolved for.
+     * @param token  The placeholder token, including its delimiters.
+     * @return The value of the placeholder, or the token itself if it cannot be resolved.
+     */
+    public static String resolve(Player player, String token) {
+        BiFunction<Player, String, String> placeholderParser = parser;
+        if (placeholderParser == null) {
+            return token;
+        }
+        if (ttlNanos == 0 || player == null) {
+            return placeholderParser.apply(player, token);
+        }
+        long now = System.nanoTime();
+        Map<String, CachedValue> values = cache.computeIfAbsent(player.getUniqueId(), uuid -> new ConcurrentHashMap<>());
+        CachedValue cached = values.get(token);
+        if (cached != null && now - cached.expiresAt < 0) {
+            return cached.value;
+        }
+        String value = placeholderParser.apply(player, token);
+        if (values.size() >= MAX_CACHED_PER_PLAYER) {
+            values.clear(); // Cheap bound; hot placeholders are memoized again right away
+        }
+        values.put(token, new CachedValue(value, now + ttlNanos));
+        return value;
+    }
+
+    /**
+     * Drops the memoized placeholder values of a player, typically once they leave.
+     *
+     * @param uuid The unique identifier of the player.
+     */
+    public static void invalidate(UUID uuid) {
+        cache.remove(uuid);
+    }
+
+    /**
+     * A memoized placeholder value along with its expiry time.
+     */
+    private static final class CachedValue {
+
+        private final String value; // The resolved placeholder value
+        private final long expiresAt; // System.nanoTime() after which the value is stale
+
+        private CachedValue(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
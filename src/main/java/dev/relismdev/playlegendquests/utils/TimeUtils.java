@@ -0,0 +1,67 @@
+package dev.relismdev.playlegendquests.utils;
+
+import java.util.Locale;
+
+/**
+ * Utility class to parse and format the durations typed and read by players, such as {@code 1h30m}.
+ */
+public class TimeUtils {
+
+    private static final long[] UNIT_SECONDS = {86400, 3600, 60, 1};
+    private static final String UNIT_SUFFIXES = "dhms"; // Suffix of each unit of UNIT_SECONDS
+
+    /**
+     * Parses a duration made of numbers followed by a unit: d, h, m or s, such as {@code 1h30m} or {@code 2d}.
+     * A plain number is read as seconds.
+     *
+     * @param text The text to parse.
+     * @return The duration in seconds, or -1 if the text is not a valid duration.
+     */
+    public static long parseDuration(String text) {
+        String input = text.trim().toLowerCase(Locale.ROOT);
+        if (input.isEmpty()) {
+            return -1;
+        }
+        long total = 0;
+        long number = -1;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = (number < 0 ? 0 : number * 10) + (c - '0');
+                if (number > Integer.MAX_VALUE) {
+                    return -1;
+                }
+                continue;
+            }
+            int unit = UNIT_SUFFIXES.indexOf(c);
+            if (unit < 0 || number < 0) {
+                return -1;
+            }
+            total += number * UNIT_SECONDS[unit];
+            number = -1;
+        }
+        return number >= 0 ? total + number : total;
+    }
+
+    /**
+     * Formats a duration with its largest units first, such as {@code 1h 30m}.
+     *
+     * @param seconds The duration in seconds.
+     * @return The formatted duration.
+     */
+    public static String formatDuration(long seconds) {
+        StringBuilder text = new StringBuilder();
+        long remaining = Math.max(0, seconds);
+        for (int i = 0; i < UNIT_SECONDS.length; i++) {
+            long amount = remaining / UNIT_SECONDS[i];
+            remaining %= UNIT_SECONDS[i];
+            if (amount > 0) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(amount).append(UNIT_SUFFIXES.charAt(i));
+            }
+        }
+        return text.length() == 0 ? "0s" : text.toString();
+    }
+}
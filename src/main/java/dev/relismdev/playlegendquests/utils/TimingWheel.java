@@ -0,0 +1,265 @@
+package dev.relismdev.playlegendquests.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel scheduling values to expire at a deadline, in milliseconds.
+ * Each level is a ring of buckets, each bucket covering one tick of its level, and every level ticks
+ * as slowly as a full turn of the level below it. A value is placed in the lowest level whose turn covers its deadline,
+ * and moves down a level every time the bucket holding it is reached, until it expires from the lowest one.
+ * Scheduling and cancelling are O(1), and advancing costs O(1) amortized per tick plus the values expiring.
+ * Levels are added as needed, so there is no limit on how far away a deadline can be.
+ * <p>
+ * Deadlines are rounded up to the tick of the lowest level. The wheel is not thread-safe.
+ *
+ * @param <T> The type of the scheduled values.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis; // Span of a bucket of the lowest level
+    private final int wheelSize; // Buckets per level
+    private final List<Level<T>> levels = new ArrayList<>();
+    private long currentTime; // Start of the current tick of the lowest level
+    private int size; // Number of scheduled values
+
+    /**
+     * Constructs an empty TimingWheel.
+     *
+     * @param tickMillis The span of a bucket of the lowest level, in milliseconds.
+     * @param wheelSize  The number of buckets per level.
+     * @param startTime  The current time, in milliseconds.
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long startTime) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = startTime - startTime % tickMillis;
+        levels.add(new Level<>(tickMillis, wheelSize));
+    }
+
+    /**
+     * Schedules a value to expire at a deadline. A deadline already passed expires on the next advance.
+     *
+     * @param value    The value to schedule.
+     * @param deadline The deadline, in milliseconds.
+     * @return The timeout of the value, which can be used to cancel it.
+     */
+    public Timeout<T> schedule(T value, long deadline) {
+        long expiry = deadline + Math.floorMod(-deadline, tickMillis); // Rounded up, so values never expire early
+        Timeout<T> timeout = new Timeout<>(this, value, deadline, expiry);
+        if (!place(timeout)) {
+            // Due already: put it in the bucket of the next tick
+            levels.get(0).bucketFor(currentTime + tickMillis).add(timeout);
+        }
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel to the given time, expiring every value whose deadline is reached.
+     *
+     * @param now      The current time, in milliseconds.
+     * @param onExpire The consumer receiving each expired value.
+     */
+    public void advance(long now, Consumer<T> onExpire) {
+        while (now - currentTime >= tickMillis) {
+            currentTime += tickMillis;
+            List<Timeout<T>> due = new ArrayList<>();
+            // A level ticks at the start of each of its buckets, cascading its values to the lower levels
+            for (int i = 0; i < levels.size(); i++) {
+                Level<T> level = levels.get(i);
+                if (currentTime % level.tickMillis != 0) {
+                    break; // Higher levels tick even less often
+                }
+                Timeout<T> timeout = level.bucketFor(currentTime).drain();
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    timeout.bucket = null;
+                    timeout.previous = null;
+                    timeout.next = null;
+                    if (!place(timeout)) {
+                        due.add(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+            // Expire only once every bucket is consistent again, as consumers may schedule or cancel values
+            for (Timeout<T> timeout : due) {
+                if (timeout.state == Timeout.SCHEDULED) {
+                    timeout.state = Timeout.EXPIRED;
+                    size--;
+                    onExpire.accept(timeout.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of values scheduled and not expired nor cancelled yet.
+     *
+     * @return The number of scheduled values.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Places a timeout in the lowest level whose turn covers its deadline, adding levels if needed.
+     *
+     * @param timeout The timeout to place.
+     * @return True if the timeout was placed; false if it is due.
+     */
+    private boolean place(Timeout<T> timeout) {
+        long delay = timeout.expiry - currentTime;
+        if (delay <= 0) {
+            return false;
+        }
+        int i = 0;
+        while (delay >= levels.get(i).tickMillis * wheelSize) {
+            if (++i == levels.size()) {
+                levels.add(new Level<>(levels.get(i - 1).tickMillis * wheelSize, wheelSize));
+            }
+        }
+        levels.get(i).bucketFor(timeout.expiry).add(timeout);
+        return true;
+    }
+
+    /**
+     * A handle on a value scheduled in a timing wheel.
+     *
+     * @param <T> The type of the scheduled value.
+     */
+    public static final class Timeout<T> {
+
+        private static final int SCHEDULED = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+        private final TimingWheel<T> wheel; // Wheel the value is scheduled in
+        private final T value; // Scheduled value
+        private final long deadline; // Deadline of the value, in milliseconds
+        private final long expiry; // Deadline rounded up to the tick of the lowest level
+        private int state = SCHEDULED;
+        private Bucket<T> bucket; // Bucket holding the timeout, null while it is being expired
+        private Timeout<T> previous; // Neighbours in the bucket
+        private Timeout<T> next;
+
+        private Timeout(TimingWheel<T> wheel, T value, long deadline, long expiry) {
+            this.wheel = wheel;
+            this.value = value;
+            this.deadline = deadline;
+            this.expiry = expiry;
+        }
+
+        /**
+         * Retrieves the deadline of the value.
+         *
+         * @return The deadline, in milliseconds.
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Cancels the timeout, so its value never expires. Does nothing if it already expired or was cancelled.
+         *
+         * @return True if the timeout was cancelled by this call; otherwise, false.
+         */
+        public boolean cancel() {
+            if (state != SCHEDULED) {
+                return false;
+            }
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+            state = CANCELLED;
+            wheel.size--;
+            return true;
+        }
+    }
+
+    /**
+     * A level of the wheel: a ring of buckets, each covering one tick of the level.
+     *
+     * @param <T> The type of the scheduled values.
+     */
+    private static final class Level<T> {
+
+        private final long tickMillis; // Span of a bucket of this level
+        private final Bucket<T>[] buckets;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMillis, int wheelSize) {
+            this.tickMillis = tickMillis;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>();
+            }
+        }
+
+        /**
+         * Retrieves the bucket covering a time.
+         *
+         * @param time The time, in milliseconds.
+         * @return The bucket covering the time.
+         */
+        private Bucket<T> bucketFor(long time) {
+            return buckets[(int) ((time / tickMillis) % buckets.length)];
+        }
+    }
+
+    /**
+     * A bucket of timeouts, as a doubly linked list so timeouts can be removed in constant time.
+     *
+     * @param <T> The type of the scheduled values.
+     */
+    private static final class Bucket<T> {
+
+        private Timeout<T> head;
+
+        /**
+         * Adds a timeout to the bucket.
+         *
+         * @param timeout The timeout to add.
+         */
+        private void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        /**
+         * Removes a timeout from the bucket.
+         *
+         * @param timeout The timeout to remove.
+         */
+        private void remove(Timeout<T> timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        /**
+         * Empties the bucket.
+         *
+         * @return The first timeout of the bucket, linked to the others through their next reference.
+         */
+        private Timeout<T> drain() {
+            Timeout<T> first = head;
+            head = null;
+            return first;
+        }
+    }
+}
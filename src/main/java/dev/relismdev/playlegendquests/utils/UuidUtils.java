@@ -0,0 +1,38 @@
+package dev.relismdev.playlegendquests.utils;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Utility class to convert player UUIDs to and from the 16 bytes they are stored as in {@code BINARY(16)} columns.
+ * The bytes are the most significant bits followed by the least significant bits, both big-endian.
+ */
+public class UuidUtils {
+
+    /**
+     * Converts a UUID into its 16 bytes.
+     *
+     * @param uuid The UUID to convert.
+     * @return The bytes of the UUID.
+     */
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Converts 16 bytes back into a UUID.
+     *
+     * @param bytes The bytes of the UUID.
+     * @return The UUID, or null if the bytes are null or not 16 bytes long.
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
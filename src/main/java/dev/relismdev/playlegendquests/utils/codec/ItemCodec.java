@@ -0,0 +1,49 @@
+package dev.relismdev.playlegendquests.utils.codec;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.io.IOException;
+
+/**
+ * Binary format used to store ItemStacks in the database.
+ * Every encoded value is prefixed by {@code ItemUtils.encodeItemStack} with the id of its codec,
+ * so rows written with different codecs can coexist and are always decoded with the right one.
+ *
+ * @see dev.relismdev.playlegendquests.utils.ItemUtils
+ */
+public interface ItemCodec {
+
+    /**
+     * Retrieves the id written in front of every value encoded by this codec.
+     *
+     * @return The unique id of the codec.
+     */
+    byte getId();
+
+    /**
+     * Retrieves the name used to select this codec in the configuration.
+     *
+     * @return The name of the codec.
+     */
+    String getName();
+
+    /**
+     * Encodes an ItemStack.
+     *
+     * @param itemStack The ItemStack to encode.
+     * @return The encoded ItemStack, without the codec id.
+     * @throws IOException If the ItemStack cannot be encoded.
+     */
+    byte[] encode(ItemStack itemStack) throws IOException;
+
+    /**
+     * Decodes an ItemStack previously encoded by this codec.
+     *
+     * @param data   The buffer holding the encoded ItemStack.
+     * @param offset The position of the encoded ItemStack in the buffer, right after the codec id.
+     * @param length The length of the encoded ItemStack.
+     * @return The decoded ItemStack.
+     * @throws IOException If the data cannot be decoded.
+     */
+    ItemStack decode(byte[] data, int offset, int length) throws IOException;
+}
@@ -0,0 +1,47 @@
+package dev.relismdev.playlegendquests.utils.codec;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Codec storing ItemStacks with Java serialization through {@link BukkitObjectOutputStream},
+ * the format historically stored Base64-encoded in the 'reward_item' column.
+ * Kept so rows can be read back and migrated; prefer {@link PaperItemCodec} for new data.
+ */
+public class LegacyItemCodec implements ItemCodec {
+
+    public static final byte ID = 0;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "legacy";
+    }
+
+    @Override
+    public byte[] encode(ItemStack itemStack) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+            dataOutput.writeObject(itemStack);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public ItemStack decode(byte[] data, int offset, int length) throws IOException {
+        try (BukkitObjectInputStream dataInput = new BukkitObjectInputStream(new ByteArrayInputStream(data, offset, length))) {
+            return (ItemStack) dataInput.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown class in serialized item", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package dev.relismdev.playlegendquests.utils.codec;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Arrays;
+
+/**
+ * Codec storing ItemStacks in Paper's native format, the item's NBT as written by {@link ItemStack#serializeAsBytes()}.
+ * The format is already compressed and carries the data version, so items are upgraded across Minecraft versions.
+ */
+public class PaperItemCodec implements ItemCodec {
+
+    public static final byte ID = 1;
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public String getName() {
+        return "paper";
+    }
+
+    @Override
+    public byte[] encode(ItemStack itemStack) {
+        return itemStack.serializeAsBytes();
+    }
+
+    @Override
+    public ItemStack decode(byte[] data, int offset, int length) {
+        return ItemStack.deserializeBytes(Arrays.copyOfRange(data, offset, offset + length));
+    }
+}
@@ -1,15 +1,12 @@
 package dev.relismdev.playlegendquests.utils;
 
+import dev.relismdev.playlegendquests.cache.UserCache;
 import dev.relismdev.playlegendquests.models.User;
 import dev.relismdev.playlegendquests.Playlegendquests;
-import dev.relismdev.playlegendquests.storage.DatabaseInterface;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.md_5.bungee.api.ChatColor;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
-import java.util.regex.Pattern;
-
 /**
  * Utility class for handling messaging functionalities within the plugin.
  */
@@ -22,11 +19,6 @@ public class msg {
      */
     public msg(){}
 
-    /**
-     * Regular expression pattern to match hexadecimal color codes in the format #XXXXXX.
-     */
-    public static final Pattern HEX_PATTERN = Pattern.compile("&(#[A-Fa-f0-9]{6})");
-
     /**
      * Represents the color character used in Minecraft chat formatting.
      */
@@ -34,23 +26,26 @@ public class msg {
 
     /**
      * Sends a color-translated and placeholder-parsed message to a specific player.
+     * Messages without a '%' are sent without going through PlaceholderAPI.
      *
      * @param p       The player to whom the message will be sent.
      * @param message The message to be sent.
      */
     public static void send(Player p, String message) {
-        p.sendMessage(translateColorCodes(PlaceholderAPI.setPlaceholders(p, message)));
+        p.sendMessage(translateColorCodes(Placeholders.setPlaceholders(p, message)));
     }
 
     /**
      * Sends a message to a player based on their locale.
+     * The message is compiled when the locale is loaded, so sending it only fills its placeholders.
      *
      * @param player     The player to send the message to.
      * @param messageKey The key for the message to be retrieved.
+     * @param arguments  The values of the positional {0}, {1}, ... slots of the message, if any.
      */
-    public static void sendLocale(Player player, String messageKey) {
-        // Retrieve user information from the database
-        User user = DatabaseInterface.getUser(player);
+    public static void sendLocale(Player player, String messageKey, Object... arguments) {
+        // Retrieve user information from the cache, loaded when the player logged in
+        User user = UserCache.get(player.getUniqueId());
         // Determine the appropriate locale based on user information or default if unavailable
         String locale;
         if (user != null) {
@@ -58,8 +53,21 @@ public class msg {
         } else {
             locale = LocaleManager.getDefaultLocale();
         }
-        // Retrieve the message based on the locale and message key, then send it to the player
-        send(player, LocaleManager.getMessage(locale, messageKey));
+        // Retrieve the compiled message based on the locale and message key, then send it to the player
+        player.sendMessage(LocaleManager.getTemplate(locale, messageKey).render(player, arguments));
+    }
+
+    /**
+     * Sends a message to every online player based on their own locale.
+     * The message of each locale is only compiled once, when the locale is loaded.
+     *
+     * @param messageKey The key for the message to be retrieved.
+     * @param arguments  The values of the positional {0}, {1}, ... slots of the message, if any.
+     */
+    public static void broadcastLocale(String messageKey, Object... arguments) {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            sendLocale(player, messageKey, arguments);
+        }
     }
 
 
@@ -74,11 +82,12 @@ public class msg {
 
     /**
      * Sends a color-translated debug message to the console if the debug configuration is enabled.
+     * Does nothing when running outside of the plugin, such as in the benchmarks.
      *
      * @param message The debug message to be sent.
      */
     public static void debug(String message){
-        if(main.getConfig().getBoolean("debug")){
+        if(main != null && main.getConfig().getBoolean("debug")){
             log(message);
         }
     }
@@ -95,27 +104,73 @@ public class msg {
     /**
      * Translates color codes in the provided text using the vanilla minecraft color code identifier.
      * It also supports hexadecimal color codes (#XXXXXX format).
+     * The text is scanned once, and returned as is when it contains no '&amp;' at all.
      *
      * @param text The text containing color codes to be translated.
      * @return The text with translated color codes.
      */
     public static String translateColorCodes(String text) {
-        final String WITH_DELIMITER = "((?<=%1$s)|(?=%1$s))";
-        String[] texts = text.split(String.format(WITH_DELIMITER, "&"));
-        StringBuilder finalText = new StringBuilder();
-        for (int i = 0; i < texts.length; i++) {
-            if (texts[i].equalsIgnoreCase("&")) {
-                //get the next string
-                i++;
-                if (texts[i].charAt(0) == '#') {
-                    finalText.append(ChatColor.of(texts[i].substring(0, 7)) + texts[i].substring(7));
-                } else {
-                    finalText.append(ChatColor.translateAlternateColorCodes('&', "&" + texts[i]));
+        int first = text.indexOf('&');
+        if (first < 0) {
+            return text; // Nothing to translate
+        }
+        int length = text.length();
+        StringBuilder finalText = new StringBuilder(length + 16);
+        finalText.append(text, 0, first);
+        for (int i = first; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '&' && i + 1 < length) {
+                char next = text.charAt(i + 1);
+                if (next == '#' && isHexColor(text, i + 2)) {
+                    // &#RRGGBB becomes the client hex format: COLOR_CHAR x, then COLOR_CHAR before each digit
+                    finalText.append(COLOR_CHAR).append('x');
+                    for (int j = i + 2; j < i + 8; j++) {
+                        finalText.append(COLOR_CHAR).append(Character.toLowerCase(text.charAt(j)));
+                    }
+                    i += 7;
+                    continue;
+                }
+                if (isColorCode(next)) {
+                    finalText.append(COLOR_CHAR).append(Character.toLowerCase(next));
+                    i++;
+                    continue;
                 }
-            } else {
-                finalText.append(texts[i]);
             }
+            finalText.append(c);
         }
         return finalText.toString();
     }
+
+    /**
+     * Checks whether the six characters at the given position form a hexadecimal color.
+     *
+     * @param text  The text to check.
+     * @param start The position of the first hexadecimal digit.
+     * @return True if six hexadecimal digits start at the position; otherwise, false.
+     */
+    private static boolean isHexColor(String text, int start) {
+        if (start + 6 > text.length()) {
+            return false;
+        }
+        for (int i = start; i < start + 6; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the character is a vanilla color or format code, as accepted by
+     * {@link ChatColor#translateAlternateColorCodes(char, String)}.
+     *
+     * @param c The character following the '&amp;'.
+     * @return True if the character is a color or format code; otherwise, false.
+     */
+    private static boolean isColorCode(char c) {
+        return (c >= '0' && c <= '9')
+                || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')
+                || (c >= 'k' && c <= 'o') || (c >= 'K' && c <= 'O')
+                || c == 'r' || c == 'R' || c == 'x' || c == 'X';
+    }
 }
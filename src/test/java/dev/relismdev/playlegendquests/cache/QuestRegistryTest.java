@@ -0,0 +1,81 @@
+package dev.relismdev.playlegendquests.cache;
+
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.storage.DatabaseExecutor;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that reloading a quest changed elsewhere never replaces a newer snapshot held by the registry.
+ */
+class QuestRegistryTest {
+
+    @BeforeAll
+    static void setUp() {
+        MockBukkit.mock();
+        DatabaseWrapper.init(new H2Backend("jdbc:h2:mem:quest_registry_test;DB_CLOSE_DELAY=-1"));
+        DatabaseExecutor.init(1, 100);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        DatabaseExecutor.shutdown();
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void reloadOfAnOlderVersionKeepsTheNewerSnapshot() throws Exception {
+        Quest quest = new Quest("Sailor", "Sail across the ocean", 25, null);
+        assertTrue(DatabaseWrapper.createQuest(quest));
+        // Updated and stored by this server after a reload read the quest, which then completes with the older version
+        Quest updated = quest.copy();
+        updated.setName("Captain");
+        updated.setVersion(1);
+        QuestRegistry.put(updated);
+
+        QuestRegistry.invalidate(quest.getId()).get(5, TimeUnit.SECONDS);
+
+        assertEquals("Captain", QuestRegistry.getQuest(quest.getId()).getName(), "A stale reload replaced the newer snapshot");
+        assertEquals(1, QuestRegistry.getVersion(quest.getId()));
+        assertNull(QuestRegistry.getQuest("Sailor"), "The name of the stale reload was indexed");
+    }
+
+    @Test
+    void reloadOfANewerVersionReplacesTheSnapshot() throws Exception {
+        Quest quest = new Quest("Archer", "Shoot some skeletons", 15, null);
+        assertTrue(DatabaseWrapper.createQuest(quest));
+        QuestRegistry.put(quest);
+        Quest updated = DatabaseWrapper.getQuest(quest.getId());
+        updated.setName("Marksman");
+        assertTrue(DatabaseWrapper.updateQuest(updated)); // Updated by another server
+
+        QuestRegistry.invalidate(quest.getId(), updated.getVersion()).get(5, TimeUnit.SECONDS);
+
+        assertEquals("Marksman", QuestRegistry.getQuest("marksman").getName());
+        assertNull(QuestRegistry.getQuest("Archer"), "The previous name is still indexed");
+    }
+
+    @Test
+    void reloadOfADeletedQuestRemovesIt() throws Exception {
+        Quest quest = new Quest("Diver", "Explore the ocean floor", 15, null);
+        assertTrue(DatabaseWrapper.createQuest(quest));
+        QuestRegistry.put(quest);
+        assertTrue(DatabaseWrapper.deleteQuest(quest.getId())); // Deleted by another server
+
+        QuestRegistry.invalidate(quest.getId(), -1).get(5, TimeUnit.SECONDS);
+
+        assertNull(QuestRegistry.getQuest(quest.getId()));
+        assertNull(QuestRegistry.getQuest("Diver"));
+    }
+}
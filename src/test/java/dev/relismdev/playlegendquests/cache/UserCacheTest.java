@@ -0,0 +1,168 @@
+package dev.relismdev.playlegendquests.cache;
+
+import dev.relismdev.playlegendquests.models.User;
+import dev.relismdev.playlegendquests.storage.DatabaseExecutor;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.UserProvisioner;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks how cached profiles are shared between the sessions of a player and written back once the last one ends.
+ */
+class UserCacheTest {
+
+    @BeforeAll
+    static void setUp() {
+        MockBukkit.mock();
+        DatabaseWrapper.init(new H2Backend("jdbc:h2:mem:user_cache_test;DB_CLOSE_DELAY=-1"));
+        DatabaseExecutor.init(1, 100); // One thread, so waiting for a task waits for the ones queued before it
+        UserProvisioner.init(0, 100);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        UserProvisioner.shutdown();
+        DatabaseExecutor.shutdown();
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @AfterEach
+    void clear() {
+        UserCache.shutdown();
+    }
+
+    @Test
+    void quitOfAPreviousSessionKeepsTheProfileOfTheNewOne() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        User first = UserCache.load(uuid);
+        first.addBalance(5);
+        UserCache.markDirty(uuid);
+
+        User second = UserCache.load(uuid); // Relogs before the first session quit
+        UserCache.unload(uuid); // The first session quits
+        assertSame(first, second, "Both sessions should share the profile");
+        assertSame(second, UserCache.get(uuid), "The quit of the first session evicted the profile of the second");
+
+        second.addBalance(7);
+        UserCache.markDirty(uuid);
+        UserCache.unload(uuid);
+        assertNull(UserCache.get(uuid));
+        awaitWrites();
+        assertEquals(12, DatabaseWrapper.getUser(uuid).getBalance());
+    }
+
+    @Test
+    void deniedLoginEndsItsSession() {
+        UUID uuid = UUID.randomUUID();
+        UserCache.load(uuid);
+        UserCache.load(uuid);
+        UserCache.unload(uuid); // The second login is denied
+        assertNotNull(UserCache.get(uuid));
+        UserCache.unload(uuid);
+        assertNull(UserCache.get(uuid));
+        UserCache.unload(uuid); // Unpaired, ignored
+        assertNull(UserCache.get(uuid));
+    }
+
+    @Test
+    void failedWriteOfAnEvictedProfileIsRetriedWithTheNextFlush() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        quitWithAFailedWrite(uuid, 5);
+
+        UserCache.flush();
+        assertEquals(5, DatabaseWrapper.getUser(uuid).getBalance());
+    }
+
+    @Test
+    void failedWriteIsRetriedOnShutdown() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        quitWithAFailedWrite(uuid, 3);
+
+        UserCache.shutdown();
+        assertEquals(3, DatabaseWrapper.getUser(uuid).getBalance());
+    }
+
+    @Test
+    void profileWithAFailedWriteIsCachedAgainOnLogin() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        quitWithAFailedWrite(uuid, 4);
+
+        User user = UserCache.load(uuid);
+        assertEquals(4, user.getBalance(), "The login read the stored profile over the pending write");
+        user.addBalance(1);
+        UserCache.markDirty(uuid);
+        UserCache.flush();
+        assertEquals(5, DatabaseWrapper.getUser(uuid).getBalance());
+    }
+
+    @Test
+    void refreshKeepsTheUnsavedLocale() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        User user = UserCache.load(uuid);
+        user.setLocale("de_DE"); // Not written yet
+        UserCache.markDirty(uuid);
+        User remote = DatabaseWrapper.getUser(uuid); // Another server credits the player
+        remote.addBalance(6);
+        DatabaseWrapper.updateUser(remote);
+
+        UserCache.invalidate(uuid, remote.getVersion());
+        awaitWrites();
+        assertEquals("de_DE", user.getLocale(), "The refresh dropped the locale set on this server");
+        assertEquals(6, user.getBalance());
+
+        UserCache.flush();
+        User stored = DatabaseWrapper.getUser(uuid);
+        assertEquals("de_DE", stored.getLocale());
+        assertEquals(6, stored.getBalance());
+    }
+
+    /**
+     * Loads a profile, changes its balance and unloads it while the users table is unavailable, so its write fails.
+     *
+     * @param uuid   The unique identifier of the player.
+     * @param amount The amount to add to the balance.
+     */
+    private static void quitWithAFailedWrite(UUID uuid, long amount) throws Exception {
+        UserCache.load(uuid).addBalance(amount);
+        UserCache.markDirty(uuid);
+        execute("ALTER TABLE users RENAME TO users_unavailable");
+        try {
+            UserCache.unload(uuid);
+            awaitWrites();
+        } finally {
+            execute("ALTER TABLE users_unavailable RENAME TO users");
+        }
+        assertEquals(0, DatabaseWrapper.getUser(uuid).getBalance());
+    }
+
+    private static void execute(String sql) throws SQLException {
+        DatabaseWrapper.withConnection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                return statement.execute(sql);
+            }
+        });
+    }
+
+    /**
+     * Waits for the writes queued on the database executor.
+     */
+    private static void awaitWrites() throws Exception {
+        DatabaseExecutor.supply(() -> true).get(5, TimeUnit.SECONDS);
+    }
+}
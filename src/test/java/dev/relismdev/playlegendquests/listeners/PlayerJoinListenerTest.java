@@ -0,0 +1,100 @@
+package dev.relismdev.playlegendquests.listeners;
+
+import dev.relismdev.playlegendquests.cache.UserCache;
+import dev.relismdev.playlegendquests.models.Objective;
+import dev.relismdev.playlegendquests.models.ObjectiveType;
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.progress.ProgressTracker;
+import dev.relismdev.playlegendquests.progress.ProgressWriter;
+import dev.relismdev.playlegendquests.storage.DatabaseExecutor;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.UserProvisioner;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a player whose profile could not be provisioned is kept out, rather than making progress
+ * that could never be written, and can join once the profile can be provisioned again.
+ */
+class PlayerJoinListenerTest {
+
+    private static ServerMock server;
+    private static Quest quest;
+    private final PlayerJoinListener listener = new PlayerJoinListener();
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        server = MockBukkit.mock();
+        DatabaseWrapper.init(new H2Backend("jdbc:h2:mem:player_join_listener_test;DB_CLOSE_DELAY=-1"));
+        DatabaseExecutor.init(1, 100);
+        UserProvisioner.init(0, 100);
+        quest = new Quest("Miner", "Mine some stone", 10, null);
+        quest.setObjective(new Objective(ObjectiveType.BREAK, "STONE", 10));
+        DatabaseWrapper.createQuest(quest);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        ProgressTracker.shutdown();
+        UserCache.shutdown();
+        UserProvisioner.shutdown();
+        DatabaseExecutor.shutdown();
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void failedProvisioningDeniesTheLoginInsteadOfDroppingTheProgress() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        AsyncPlayerPreLoginEvent denied = new AsyncPlayerPreLoginEvent("Notch", InetAddress.getLoopbackAddress(), uuid);
+        execute("ALTER TABLE users RENAME TO users_unavailable");
+        try {
+            listener.onAsyncPlayerPreLogin(denied);
+        } finally {
+            execute("ALTER TABLE users_unavailable RENAME TO users");
+        }
+        assertEquals(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, denied.getLoginResult(), "The player was admitted without a stored profile");
+        assertNull(UserCache.get(uuid));
+        PlayerMock player = new PlayerMock(server, "Notch", uuid);
+        ProgressTracker.activate(player); // Joins anyway, such as through a plugin overriding the result
+        assertFalse(ProgressTracker.start(player, quest), "The progress of a player without a stored profile was tracked");
+
+        AsyncPlayerPreLoginEvent allowed = new AsyncPlayerPreLoginEvent("Notch", InetAddress.getLoopbackAddress(), uuid);
+        listener.onAsyncPlayerPreLogin(allowed);
+        assertEquals(AsyncPlayerPreLoginEvent.Result.ALLOWED, allowed.getLoginResult());
+        assertNotNull(UserCache.get(uuid));
+        ProgressTracker.activate(player);
+        assertTrue(ProgressTracker.start(player, quest));
+        ProgressTracker.handle(player, ObjectiveType.BREAK, "STONE", 2);
+        ProgressWriter.shutdown(); // Writes the progress
+        assertEquals(2, DatabaseWrapper.getPlayerQuests(uuid).get(0).getProgress(), "The progress was not written");
+
+        UserCache.unload(uuid);
+        assertNull(UserCache.get(uuid), "The denied login left a session holding the profile");
+    }
+
+    private static void execute(String sql) throws SQLException {
+        DatabaseWrapper.withConnection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                return statement.execute(sql);
+            }
+        });
+    }
+}
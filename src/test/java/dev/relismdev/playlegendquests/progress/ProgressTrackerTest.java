@@ -0,0 +1,138 @@
+package dev.relismdev.playlegendquests.progress;
+
+import dev.relismdev.playlegendquests.models.Objective;
+import dev.relismdev.playlegendquests.models.ObjectiveType;
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a player relogging before their previous session quit keeps the progress made during that session,
+ * whether the new session joins before or after the previous one quits.
+ */
+class ProgressTrackerTest {
+
+    private static ServerMock server;
+    private static Quest quest;
+    private UUID uuid;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        server = MockBukkit.mock();
+        DatabaseWrapper.init(new H2Backend("jdbc:h2:mem:progress_tracker_test;DB_CLOSE_DELAY=-1"));
+        quest = new Quest("Lumberjack", "Break some logs", 10, null);
+        quest.setObjective(new Objective(ObjectiveType.BREAK, "OAK_LOG", 10));
+        DatabaseWrapper.createQuest(quest);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @BeforeEach
+    void newPlayer() {
+        uuid = UUID.randomUUID();
+    }
+
+    @AfterEach
+    void stopTracking() {
+        ProgressTracker.shutdown();
+    }
+
+    @Test
+    void quitBeforeTheNewSessionJoinsHandsTheProgressOver() {
+        PlayerMock previous = session();
+        advance(previous);
+
+        assertTrue(ProgressTracker.load(uuid)); // Logs in again, reading the progress not written yet
+        ProgressTracker.unload(previous);
+        PlayerMock current = join();
+
+        assertProgress(current);
+    }
+
+    @Test
+    void quitAfterTheNewSessionJoinedKeepsItsProgress() {
+        PlayerMock previous = session();
+        advance(previous);
+
+        PlayerMock current = session(); // Logs in and joins again
+        ProgressTracker.unload(previous);
+
+        assertProgress(current);
+    }
+
+    @Test
+    void quitWithoutANewSessionStopsTracking() {
+        PlayerMock player = session();
+        advance(player);
+
+        ProgressTracker.unload(player);
+
+        assertFalse(ProgressTracker.isActive(uuid, quest.getId()));
+        assertFalse(ProgressTracker.isTracking(ObjectiveType.BREAK));
+    }
+
+    /**
+     * Logs the player in and joins, loading their stored progress.
+     *
+     * @return The player of the new session.
+     */
+    private PlayerMock session() {
+        assertTrue(ProgressTracker.load(uuid));
+        return join();
+    }
+
+    /**
+     * Joins with the progress loaded when logging in.
+     *
+     * @return The player of the new session.
+     */
+    private PlayerMock join() {
+        PlayerMock player = new PlayerMock(server, "Notch", uuid);
+        ProgressTracker.activate(player);
+        return player;
+    }
+
+    /**
+     * Starts the quest and breaks three logs.
+     *
+     * @param player The player making progress.
+     */
+    private void advance(PlayerMock player) {
+        assertTrue(ProgressTracker.start(player, quest));
+        ProgressTracker.handle(player, ObjectiveType.BREAK, "OAK_LOG", 3);
+    }
+
+    /**
+     * Checks that the player still works on the quest with the progress made before relogging, tracked once.
+     *
+     * @param player The player of the remaining session.
+     */
+    private void assertProgress(PlayerMock player) {
+        assertTrue(ProgressTracker.isActive(uuid, quest.getId()), "The progress of the previous session was lost");
+        assertEquals(3, ProgressTracker.getProgress(uuid).iterator().next().getProgress());
+        ProgressTracker.handle(player, ObjectiveType.BREAK, "OAK_LOG", 1);
+        assertEquals(4, ProgressTracker.getProgress(uuid).iterator().next().getProgress(), "The progress is not tracked for the new session");
+
+        ProgressTracker.unload(player);
+        assertFalse(ProgressTracker.isTracking(ObjectiveType.BREAK), "The objective was still indexed for the previous session");
+    }
+}
@@ -0,0 +1,134 @@
+package dev.relismdev.playlegendquests.progress;
+
+import dev.relismdev.playlegendquests.models.Objective;
+import dev.relismdev.playlegendquests.models.ObjectiveType;
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.models.QuestProgress;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.PoolStats;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the progress recorded before shutting down is written, after the batches handed over to the writer thread,
+ * including the ones that failed and wait to be retried.
+ */
+class ProgressWriterTest {
+
+    private static Quest quest;
+    private UUID uuid;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        MockBukkit.mock();
+        DatabaseWrapper.init(new H2Backend("jdbc:h2:mem:progress_writer_test;DB_CLOSE_DELAY=-1"));
+        quest = new Quest("Miner", "Mine some stone", 10, null);
+        quest.setObjective(new Objective(ObjectiveType.BREAK, "STONE", 10));
+        DatabaseWrapper.createQuest(quest);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @BeforeEach
+    void start() throws SQLException {
+        ProgressWriter.shutdown(); // Writes the deltas left by other tests, which record progress without starting the writer
+        ProgressWriter.initWriter();
+        uuid = UUID.randomUUID();
+        DatabaseWrapper.provisionUsers(Collections.singletonList(uuid), "en_US");
+    }
+
+    @AfterEach
+    void stop() {
+        ProgressWriter.shutdown();
+    }
+
+    @Test
+    void shutdownWritesTheDeltasRecordedSinceTheLastFlush() throws SQLException {
+        ProgressWriter.recordStart(uuid, quest.getId(), 0);
+        ProgressWriter.flush();
+        recordProgress(2);
+
+        ProgressWriter.shutdown();
+        assertProgress(2);
+    }
+
+    @Test
+    void shutdownRetriesTheDeltasOfAFailedBatch() throws Exception {
+        ProgressWriter.recordStart(uuid, quest.getId(), 0);
+        recordProgress(3);
+        execute("ALTER TABLE player_quests RENAME TO player_quests_unavailable");
+        try {
+            long acquisitions = DatabaseWrapper.getPoolStats().getAcquisitions();
+            ProgressWriter.flush();
+            awaitFailedWrite(acquisitions);
+        } finally {
+            execute("ALTER TABLE player_quests_unavailable RENAME TO player_quests");
+        }
+        assertTrue(DatabaseWrapper.getPlayerQuests(uuid).isEmpty());
+        recordProgress(1);
+
+        ProgressWriter.shutdown();
+        assertProgress(4);
+    }
+
+    /**
+     * Records progress made by the player on the quest.
+     *
+     * @param added The amount added to the progress.
+     */
+    private void recordProgress(int added) {
+        ProgressWriter.recordProgress(new QuestProgress(uuid, quest.getId(), quest.getObjective(), added, false, 0), added);
+    }
+
+    /**
+     * Checks the stored progress of the player on the quest.
+     *
+     * @param expected The expected progress.
+     */
+    private void assertProgress(int expected) throws SQLException {
+        List<QuestProgress> progressList = DatabaseWrapper.getPlayerQuests(uuid);
+        assertEquals(1, progressList.size(), "The progress was not written");
+        assertEquals(expected, progressList.get(0).getProgress());
+    }
+
+    /**
+     * Waits for the writer thread to try a batch and give its connection back.
+     *
+     * @param acquisitions The number of connections acquired before the batch was handed over.
+     */
+    private static void awaitFailedWrite(long acquisitions) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        PoolStats stats = DatabaseWrapper.getPoolStats();
+        while (stats.getAcquisitions() == acquisitions || stats.getActiveConnections() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "The batch was never written");
+            Thread.sleep(10);
+            stats = DatabaseWrapper.getPoolStats();
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        DatabaseWrapper.withConnection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                return statement.execute(sql);
+            }
+        });
+    }
+}
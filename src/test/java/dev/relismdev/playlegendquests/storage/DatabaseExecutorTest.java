@@ -0,0 +1,115 @@
+package dev.relismdev.playlegendquests.storage;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that database tasks the executor cannot run fail their futures instead of running on the submitting thread
+ * or leaving their callers waiting.
+ */
+class DatabaseExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+        DatabaseExecutor.init(1, 1, 200); // Short shutdown timeout, so dropping the blocked tasks does not slow the build
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        DatabaseExecutor.shutdown();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void completesWithTheTaskResult() throws Exception {
+        assertEquals(42, DatabaseExecutor.supply(() -> 42).get(5, TimeUnit.SECONDS));
+
+        IllegalStateException failure = new IllegalStateException("failed on purpose");
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> DatabaseExecutor.supply(() -> { throw failure; }).get(5, TimeUnit.SECONDS));
+        assertSame(failure, error.getCause());
+    }
+
+    @Test
+    void rejectsTasksWhenTheQueueIsFull() {
+        CountDownLatch started = new CountDownLatch(1);
+        DatabaseExecutor.supply(() -> block(started));
+        await(started);
+        DatabaseExecutor.supply(() -> true); // Takes the only queue slot
+
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Boolean> rejected = DatabaseExecutor.supply(() -> ran.getAndSet(true));
+
+        assertRejected(rejected);
+        assertFalse(ran.get(), "A rejected task ran on the submitting thread");
+    }
+
+    @Test
+    void rejectsTasksSubmittedAfterShutdown() {
+        DatabaseExecutor.shutdown();
+
+        assertRejected(DatabaseExecutor.supply(() -> true));
+    }
+
+    @Test
+    void rejectsTasksDroppedByShutdown() {
+        CountDownLatch started = new CountDownLatch(1);
+        DatabaseExecutor.supply(() -> block(started));
+        await(started);
+        CompletableFuture<Boolean> queued = DatabaseExecutor.supply(() -> true);
+
+        DatabaseExecutor.shutdown(); // Times out waiting for the blocked task
+
+        assertRejected(queued);
+    }
+
+    /**
+     * Blocks the executor thread until the test ends or the executor is shut down.
+     *
+     * @param started Counted down once the executor thread is blocked.
+     * @return True once released, false if interrupted.
+     */
+    private boolean block(CountDownLatch started) {
+        started.countDown();
+        try {
+            release.await();
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertRejected(CompletableFuture<?> future) {
+        assertTrue(future.isCompletedExceptionally(), "The future of a rejected task was left pending");
+        ExecutionException error = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    }
+}
@@ -0,0 +1,122 @@
+package dev.relismdev.playlegendquests.storage;
+
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import dev.relismdev.playlegendquests.utils.ItemUtils;
+import dev.relismdev.playlegendquests.utils.UuidUtils;
+import dev.relismdev.playlegendquests.utils.codec.LegacyItemCodec;
+import dev.relismdev.playlegendquests.utils.codec.PaperItemCodec;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how items are stored, so an item that cannot be encoded or decoded is never silently stored or dropped.
+ */
+class DatabaseWrapperItemTest {
+
+    @BeforeAll
+    static void setUp() {
+        MockBukkit.mock();
+        DatabaseWrapper.init(new H2Backend("jdbc:h2:mem:item_test;DB_CLOSE_DELAY=-1"));
+        ItemUtils.setCodec("paper");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void createQuestFailsWhenTheRewardItemCannotBeEncoded() throws SQLException {
+        Quest quest = new Quest("Unencodable reward", "Reward item failing to encode", 10, new UnencodableItem());
+
+        assertThrows(SQLException.class, () -> DatabaseWrapper.createQuest(quest));
+        assertNull(DatabaseWrapper.getQuest(quest.getName()), "The quest was stored without its reward item");
+    }
+
+    @Test
+    void updateQuestFailsWhenTheRewardItemCannotBeEncoded() throws SQLException {
+        Quest quest = new Quest("Updated reward", "Reward item failing to encode once updated", 10, null);
+        assertTrue(DatabaseWrapper.createQuest(quest));
+        quest.setReward_item(new UnencodableItem());
+
+        assertThrows(SQLException.class, () -> DatabaseWrapper.updateQuest(quest));
+        assertEquals(0, DatabaseWrapper.getQuest(quest.getId()).getVersion(), "The quest was updated without its reward item");
+    }
+
+    @Test
+    void claimingRewardsKeepsTheItemsThatCannotBeDecoded() throws SQLException {
+        UUID uuid = UUID.randomUUID();
+        DatabaseWrapper.provisionUsers(Collections.singletonList(uuid), "en_US");
+        addPendingReward(uuid, new byte[]{LegacyItemCodec.ID, 1, 2, 3}); // Corrupted items
+        addPendingReward(uuid, new byte[]{PaperItemCodec.ID, 4, 5, 6});
+
+        assertEquals(Collections.emptyList(), DatabaseWrapper.claimPendingRewards(uuid));
+        assertEquals(2, countPendingRewards(uuid), "Items that could not be decoded were deleted");
+    }
+
+    /**
+     * Stores raw item data as a pending reward of a player.
+     *
+     * @param uuid The unique identifier of the player.
+     * @param data The stored item data.
+     */
+    private static void addPendingReward(UUID uuid, byte[] data) throws SQLException {
+        DatabaseWrapper.withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO pending_rewards (uuid, item_data) VALUES (?, ?)")) {
+                statement.setBytes(1, UuidUtils.toBytes(uuid));
+                statement.setBytes(2, data);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Counts the pending rewards of a player still stored.
+     *
+     * @param uuid The unique identifier of the player.
+     * @return The number of stored rewards.
+     */
+    private static int countPendingRewards(UUID uuid) throws SQLException {
+        return DatabaseWrapper.withConnection(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM pending_rewards WHERE uuid = ?")) {
+                statement.setBytes(1, UuidUtils.toBytes(uuid));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getInt(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * An item whose native serialization always fails.
+     */
+    private static final class UnencodableItem extends ItemStack {
+
+        private UnencodableItem() {
+            super(Material.DIAMOND);
+        }
+
+        @Override
+        public byte[] serializeAsBytes() {
+            throw new IllegalStateException("Cannot be serialized");
+        }
+    }
+}
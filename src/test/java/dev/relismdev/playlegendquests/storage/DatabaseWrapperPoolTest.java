@@ -0,0 +1,138 @@
+package dev.relismdev.playlegendquests.storage;
+
+import dev.relismdev.playlegendquests.models.ProgressDelta;
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a long mix of storage calls from several threads against an in-memory database of the H2 backend,
+ * failing calls included, and checks that every connection borrowed through {@link DatabaseWrapper#withConnection(SqlFunction)}
+ * goes back to the pool.
+ */
+class DatabaseWrapperPoolTest {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:pool_test;DB_CLOSE_DELAY=-1";
+    private static final int CALLS = 100_000;
+    private static final int THREADS = 8;
+    private static final int MAX_POOL_SIZE = 10; // Default size of the pool started by DatabaseWrapper.init(StorageBackend)
+    private static final int QUESTS = 20;
+    private static final int USERS = 50;
+    private static final List<Quest> quests = new ArrayList<>();
+    private static final List<UUID> users = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        MockBukkit.mock();
+        DatabaseWrapper.init(new H2Backend(JDBC_URL));
+        for (int i = 0; i < QUESTS; i++) {
+            Quest quest = new Quest("Pool quest " + i, "Pool test quest", 10, null);
+            DatabaseWrapper.createQuest(quest);
+            quests.add(quest);
+        }
+        for (int i = 0; i < USERS; i++) {
+            users.add(UUID.randomUUID());
+        }
+        DatabaseWrapper.provisionUsers(users, "en_US");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void poolStaysBoundedOverMixedCalls() throws Exception {
+        AtomicInteger maxTotal = new AtomicInteger();
+        LongAdder failures = new LongAdder();
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            results.add(threads.submit(() -> {
+                for (int i = offset; i < CALLS; i += THREADS) {
+                    call(i, failures);
+                    if (i % 1000 < THREADS) {
+                        maxTotal.accumulateAndGet(DatabaseWrapper.getPoolStats().getTotalConnections(), Math::max);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(); // Rethrows the first unexpected failure
+        }
+        threads.shutdown();
+
+        PoolStats stats = DatabaseWrapper.getPoolStats();
+        assertEquals(0, stats.getActiveConnections(), "Connections were not handed back: " + stats);
+        assertTrue(stats.getTotalConnections() <= MAX_POOL_SIZE, "Pool grew past its maximum: " + stats);
+        assertTrue(maxTotal.get() <= MAX_POOL_SIZE, "Pool grew past its maximum while running: " + maxTotal.get());
+        assertEquals(0, stats.getAcquireTimeouts(), "Threads timed out waiting for a connection: " + stats);
+        assertEquals(CALLS / 8, failures.sum(), "Every failing call should have thrown");
+    }
+
+    /**
+     * Runs one storage call, picked by the call number so every kind of call runs the same number of times.
+     *
+     * @param i        The call number.
+     * @param failures Counts the calls failing on purpose.
+     * @throws SQLException If a call that should succeed failed.
+     */
+    private static void call(int i, LongAdder failures) throws SQLException {
+        Quest quest = quests.get(i % QUESTS);
+        UUID uuid = users.get(i % USERS);
+        switch (i % 8) {
+            case 0:
+                DatabaseWrapper.getQuest(quest.getId());
+                break;
+            case 1:
+                DatabaseWrapper.getQuest(quest.getName());
+                break;
+            case 2:
+                DatabaseWrapper.getQuestsPage(0, 10);
+                break;
+            case 3:
+                DatabaseWrapper.getUser(uuid);
+                break;
+            case 4:
+                DatabaseWrapper.creditBalances(Collections.singletonMap(uuid, 1L));
+                break;
+            case 5:
+                ProgressDelta delta = new ProgressDelta(uuid, quest.getId());
+                delta.add(1, false);
+                DatabaseWrapper.writeProgressDeltas(Collections.singletonList(delta));
+                break;
+            case 6:
+                DatabaseWrapper.getPlayerQuests(uuid);
+                break;
+            default:
+                // The work throws halfway, with a statement still open
+                assertThrows(SQLException.class, () -> DatabaseWrapper.withConnection(connection -> {
+                    Statement statement = connection.createStatement();
+                    return statement.executeQuery("SELECT * FROM missing_table");
+                }));
+                failures.increment();
+        }
+    }
+}
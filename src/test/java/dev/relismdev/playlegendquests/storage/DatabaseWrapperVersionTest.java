@@ -0,0 +1,180 @@
+package dev.relismdev.playlegendquests.storage;
+
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.models.User;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the compare-and-set writes of quests and users: a write based on an outdated version never overwrites
+ * the newer one, stale quest edits are rejected, and balance and locale changes are applied on top of the changes made elsewhere.
+ * Each test reads the same row twice to stand in for two servers sharing the database.
+ */
+class DatabaseWrapperVersionTest {
+
+    @BeforeAll
+    static void setUp() {
+        MockBukkit.mock();
+        DatabaseWrapper.init(new H2Backend("jdbc:h2:mem:version_test;DB_CLOSE_DELAY=-1"));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void staleQuestUpdateIsRejected() throws SQLException {
+        Quest created = new Quest("Hunter", "Hunt some zombies", 20, null);
+        assertTrue(DatabaseWrapper.createQuest(created));
+        Quest first = DatabaseWrapper.getQuest(created.getId());
+        Quest second = DatabaseWrapper.getQuest(created.getId());
+        long conflicts = DatabaseWrapper.getVersionConflicts();
+
+        first.setDescription("Hunt many zombies");
+        assertTrue(DatabaseWrapper.updateQuest(first));
+        assertEquals(1, first.getVersion());
+        second.setReward_coins(50);
+        assertFalse(DatabaseWrapper.updateQuest(second), "An update based on an outdated version was applied");
+
+        Quest stored = DatabaseWrapper.getQuest(created.getId());
+        assertEquals("Hunt many zombies", stored.getDescription());
+        assertEquals(20, stored.getReward_coins());
+        assertEquals(1, stored.getVersion());
+        assertEquals(conflicts + 1, DatabaseWrapper.getVersionConflicts());
+    }
+
+    @Test
+    void updateOfADeletedQuestIsNoConflict() throws SQLException {
+        Quest quest = new Quest("Farmer", "Harvest some wheat", 10, null);
+        assertTrue(DatabaseWrapper.createQuest(quest));
+        assertTrue(DatabaseWrapper.deleteQuest(quest.getId()));
+        long conflicts = DatabaseWrapper.getVersionConflicts();
+
+        assertFalse(DatabaseWrapper.updateQuest(quest));
+        assertEquals(conflicts, DatabaseWrapper.getVersionConflicts());
+    }
+
+    @Test
+    void conflictingQuestChangeIsAppliedAgainOnTheLatestVersion() throws SQLException {
+        Quest created = new Quest("Builder", "Place some bricks", 10, null);
+        assertTrue(DatabaseWrapper.createQuest(created));
+        AtomicInteger attempts = new AtomicInteger();
+
+        Quest updated = DatabaseWrapper.updateQuest(created.getId(), quest -> {
+            if (attempts.incrementAndGet() == 1) {
+                concurrentRename(quest.getId(), "Master builder"); // Another server gets in between
+            }
+            quest.setReward_coins(30);
+        });
+
+        assertEquals(2, attempts.get());
+        Quest stored = DatabaseWrapper.getQuest(created.getId());
+        assertEquals("Master builder", stored.getName(), "The concurrent edit was overwritten");
+        assertEquals(30, stored.getReward_coins());
+        assertEquals(2, stored.getVersion());
+        assertEquals(stored.getVersion(), updated.getVersion());
+    }
+
+    @Test
+    void conflictingBalanceChangesAreBothKept() throws SQLException {
+        UUID uuid = UUID.randomUUID();
+        DatabaseWrapper.provisionUsers(Collections.singletonList(uuid), "en_US");
+        User first = DatabaseWrapper.getUser(uuid);
+        User second = DatabaseWrapper.getUser(uuid);
+        long conflicts = DatabaseWrapper.getVersionConflicts();
+
+        first.addBalance(5);
+        assertTrue(DatabaseWrapper.updateUser(first));
+        second.addBalance(7);
+        assertTrue(DatabaseWrapper.updateUser(second));
+
+        assertEquals(12, DatabaseWrapper.getUser(uuid).getBalance(), "A balance change was lost");
+        assertEquals(12, second.getBalance(), "The change written elsewhere was not folded into the cached balance");
+        assertEquals(2, second.getVersion());
+        assertEquals(conflicts + 1, DatabaseWrapper.getVersionConflicts());
+    }
+
+    @Test
+    void uncachedCreditsAreFoldedIntoTheNextWrite() throws SQLException {
+        UUID uuid = UUID.randomUUID();
+        DatabaseWrapper.provisionUsers(Collections.singletonList(uuid), "en_US");
+        User user = DatabaseWrapper.getUser(uuid);
+
+        DatabaseWrapper.creditBalances(Collections.singletonMap(uuid, 10L)); // Credited by a server without the profile cached
+        user.addBalance(-3);
+        assertTrue(DatabaseWrapper.updateUser(user));
+
+        assertEquals(7, DatabaseWrapper.getUser(uuid).getBalance());
+        assertEquals(7, user.getBalance());
+    }
+
+    @Test
+    void localeChangeIsKeptByAConflictingBalanceChange() throws SQLException {
+        UUID uuid = UUID.randomUUID();
+        DatabaseWrapper.provisionUsers(Collections.singletonList(uuid), "en_US");
+        User first = DatabaseWrapper.getUser(uuid);
+        User second = DatabaseWrapper.getUser(uuid);
+
+        first.setLocale("fr_FR");
+        assertTrue(DatabaseWrapper.updateUser(first));
+        second.addBalance(4);
+        assertTrue(DatabaseWrapper.updateUser(second));
+
+        User stored = DatabaseWrapper.getUser(uuid);
+        assertEquals("fr_FR", stored.getLocale(), "The locale was overwritten by a balance change");
+        assertEquals(4, stored.getBalance());
+        assertEquals("fr_FR", second.getLocale(), "The stored locale was not taken over on the conflict");
+    }
+
+    @Test
+    void balanceChangeIsKeptByAConflictingLocaleChange() throws SQLException {
+        UUID uuid = UUID.randomUUID();
+        DatabaseWrapper.provisionUsers(Collections.singletonList(uuid), "en_US");
+        User first = DatabaseWrapper.getUser(uuid);
+        User second = DatabaseWrapper.getUser(uuid);
+
+        first.addBalance(4);
+        assertTrue(DatabaseWrapper.updateUser(first));
+        second.setLocale("fr_FR");
+        assertTrue(DatabaseWrapper.updateUser(second));
+
+        User stored = DatabaseWrapper.getUser(uuid);
+        assertEquals("fr_FR", stored.getLocale());
+        assertEquals(4, stored.getBalance(), "The balance change was lost");
+        assertEquals(4, second.getBalance());
+
+        assertTrue(DatabaseWrapper.updateUser(first)); // Nothing changed, the stored locale is left alone
+        assertEquals("fr_FR", DatabaseWrapper.getUser(uuid).getLocale());
+        assertEquals("fr_FR", first.getLocale());
+    }
+
+    /**
+     * Renames a quest through a copy read separately, as another server would.
+     *
+     * @param id   The unique identifier of the quest.
+     * @param name The new name of the quest.
+     */
+    private static void concurrentRename(int id, String name) {
+        try {
+            Quest quest = DatabaseWrapper.getQuest(id);
+            quest.setName(name);
+            assertTrue(DatabaseWrapper.updateQuest(quest));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package dev.relismdev.playlegendquests.storage.backend;
+
+import dev.relismdev.playlegendquests.models.Quest;
+import dev.relismdev.playlegendquests.models.User;
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how each backend sets up the connection pool, and that the embedded H2 backend runs the MySQL dialect
+ * of the storage layer and keeps its data across restarts.
+ */
+class StorageBackendTest {
+
+    @TempDir
+    File folder;
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+    }
+
+    @AfterEach
+    void tearDown() {
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void mySqlBackendEnablesTheDriverBatching() {
+        HikariConfig config = new HikariConfig();
+        new MySqlBackend("localhost:3306", "quests", "plugin", "secret").configure(config);
+
+        assertEquals("jdbc:mysql://localhost:3306/quests?useSSL=false", config.getJdbcUrl());
+        assertEquals("plugin", config.getUsername());
+        assertEquals("secret", config.getPassword());
+        assertEquals("true", config.getDataSourceProperties().getProperty("rewriteBatchedStatements"));
+        assertEquals("true", config.getDataSourceProperties().getProperty("cachePrepStmts"));
+    }
+
+    @Test
+    void h2BackendRunsInMySqlMode() {
+        HikariConfig config = new HikariConfig();
+        H2Backend.file(new File(folder, "quests"), true).configure(config);
+
+        assertEquals("org.h2.Driver", config.getDriverClassName());
+        assertEquals("jdbc:h2:file:" + new File(folder, "quests").getAbsolutePath() + ";AUTO_SERVER=TRUE;MODE=MySQL;DATABASE_TO_LOWER=TRUE", config.getJdbcUrl());
+    }
+
+    @Test
+    void h2FileKeepsTheDataAcrossRestarts() throws SQLException {
+        File file = new File(folder, "quests");
+        DatabaseWrapper.init(H2Backend.file(file));
+        assertEquals(H2Backend.NAME, DatabaseWrapper.getBackend().getName());
+        assertTrue(DatabaseWrapper.createQuest(new Quest("Fisher", "Catch some fish", 15, null)));
+        DatabaseWrapper.disable();
+
+        DatabaseWrapper.init(H2Backend.file(file)); // The migrations find the schema up to date
+        assertNotNull(DatabaseWrapper.getQuest("Fisher"), "The quest was not kept in the database file");
+    }
+
+    @Test
+    void h2RunsTheBatchedUpsertsOfTheMySqlDialect() throws SQLException {
+        DatabaseWrapper.init(new H2Backend("jdbc:h2:mem:storage_backend_test;DB_CLOSE_DELAY=-1"));
+        List<UUID> uuids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+        DatabaseWrapper.provisionUsers(uuids.subList(0, 1), "en_US");
+
+        Map<UUID, User> users = DatabaseWrapper.provisionUsers(uuids, "de_DE"); // The first user exists already
+        assertEquals(2, users.size());
+        assertEquals("en_US", DatabaseWrapper.getUser(uuids.get(0)).getLocale(), "An existing user was overwritten");
+        assertEquals("de_DE", DatabaseWrapper.getUser(uuids.get(1)).getLocale());
+    }
+}
@@ -0,0 +1,101 @@
+package dev.relismdev.playlegendquests.storage.migration;
+
+import dev.relismdev.playlegendquests.storage.DatabaseWrapper;
+import dev.relismdev.playlegendquests.storage.backend.H2Backend;
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that migrations bring a database up to date once, and that a failed migration is reported
+ * so the plugin does not start, then applied again on the next start.
+ */
+class MigrationRunnerTest {
+
+    private static final String SETTINGS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE"; // As set by the H2 backend
+
+    @BeforeEach
+    void setUp() {
+        MockBukkit.mock();
+    }
+
+    @AfterEach
+    void tearDown() {
+        DatabaseWrapper.disable();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void newDatabaseIsMigratedToTheLatestVersionOnce() throws SQLException {
+        String url = "jdbc:h2:mem:migration_new_test;DB_CLOSE_DELAY=-1";
+        assertTrue(DatabaseWrapper.init(new H2Backend(url)));
+        assertEquals(MigrationRunner.getLatestVersion(), count(url, "SELECT MAX(version) FROM schema_version"));
+        DatabaseWrapper.disable();
+
+        assertTrue(DatabaseWrapper.init(new H2Backend(url)));
+        assertEquals(MigrationRunner.getLatestVersion(), count(url, "SELECT COUNT(*) FROM schema_version"), "A migration was applied twice");
+    }
+
+    @Test
+    void failedMigrationIsReportedAndAppliedAgainOnTheNextStart() throws SQLException {
+        String url = "jdbc:h2:mem:migration_failure_test;DB_CLOSE_DELAY=-1";
+        // A database at version 3 whose 'player_quests' table is missing, so adding its foreign keys fails
+        execute(url, "CREATE TABLE schema_version (version INT PRIMARY KEY, description VARCHAR(255) NOT NULL, installed_at BIGINT NOT NULL)");
+        execute(url, "INSERT INTO schema_version VALUES (1, 'Baseline schema', 0), (2, 'Unique index on quest names', 0), (3, 'Binary player UUIDs', 0)");
+        execute(url, "CREATE TABLE quests (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), description TEXT, reward_coins BIGINT, reward_item TEXT, reward_item_data MEDIUMBLOB, objective_type VARCHAR(16), objective_target VARCHAR(64), objective_amount INT, duration_seconds BIGINT NOT NULL DEFAULT 0)");
+        execute(url, "CREATE TABLE users (uuid BINARY(16) PRIMARY KEY, balance BIGINT, locale VARCHAR(5))");
+        execute(url, "CREATE TABLE pending_rewards (id BIGINT AUTO_INCREMENT PRIMARY KEY, uuid BINARY(16) NOT NULL, item_data MEDIUMBLOB NOT NULL)");
+
+        assertFalse(DatabaseWrapper.init(new H2Backend(url)), "The failed migration was not reported");
+        assertEquals(3, count(url, "SELECT MAX(version) FROM schema_version"));
+        DatabaseWrapper.disable();
+
+        execute(url, "CREATE TABLE player_quests (uuid BINARY(16) NOT NULL, quest_id INT NOT NULL, progress INT NOT NULL DEFAULT 0, completed BOOLEAN NOT NULL DEFAULT FALSE, expires_at BIGINT, PRIMARY KEY (uuid, quest_id))");
+        assertTrue(DatabaseWrapper.init(new H2Backend(url)));
+        assertEquals(MigrationRunner.getLatestVersion(), count(url, "SELECT MAX(version) FROM schema_version"));
+    }
+
+    @Test
+    void usersMissingForStoredProgressAreCreatedWithTheDefaultLocale() throws SQLException {
+        String url = "jdbc:h2:mem:migration_missing_users_test;DB_CLOSE_DELAY=-1";
+        // A database at version 3 holding progress of a player without a profile
+        execute(url, "CREATE TABLE schema_version (version INT PRIMARY KEY, description VARCHAR(255) NOT NULL, installed_at BIGINT NOT NULL)");
+        execute(url, "INSERT INTO schema_version VALUES (1, 'Baseline schema', 0), (2, 'Unique index on quest names', 0), (3, 'Binary player UUIDs', 0)");
+        execute(url, "CREATE TABLE quests (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), description TEXT, reward_coins BIGINT, reward_item TEXT, reward_item_data MEDIUMBLOB, objective_type VARCHAR(16), objective_target VARCHAR(64), objective_amount INT, duration_seconds BIGINT NOT NULL DEFAULT 0)");
+        execute(url, "CREATE TABLE users (uuid BINARY(16) PRIMARY KEY, balance BIGINT, locale VARCHAR(5))");
+        execute(url, "CREATE TABLE pending_rewards (id BIGINT AUTO_INCREMENT PRIMARY KEY, uuid BINARY(16) NOT NULL, item_data MEDIUMBLOB NOT NULL)");
+        execute(url, "CREATE TABLE player_quests (uuid BINARY(16) NOT NULL, quest_id INT NOT NULL, progress INT NOT NULL DEFAULT 0, completed BOOLEAN NOT NULL DEFAULT FALSE, expires_at BIGINT, PRIMARY KEY (uuid, quest_id))");
+        execute(url, "INSERT INTO quests (id, name) VALUES (1, 'Fisher')");
+        execute(url, "INSERT INTO player_quests (uuid, quest_id, progress) VALUES (X'00000000000000000000000000000001', 1, 3)");
+
+        assertTrue(DatabaseWrapper.init(new H2Backend(url)));
+        assertEquals(1, count(url, "SELECT COUNT(*) FROM users WHERE locale = 'en_US'"), "The missing user was not created with the default locale");
+    }
+
+    private static void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url + SETTINGS, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int count(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url + SETTINGS, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package dev.relismdev.playlegendquests.sync;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs two servers against one database and checks that the changes of one reach the caches of the other through
+ * the change log: quest updates, user profile changes, changes delivered twice, and changes committed after later ones.
+ * The plugin keeps its state in static fields, so each server loads its own copy of the plugin classes.
+ */
+class InvalidationBusTest {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:invalidation_bus_test;DB_CLOSE_DELAY=-1";
+    private static final String SETTINGS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE"; // As set by the H2 backend
+    private static Server first;
+    private static Server second;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        MockBukkit.mock();
+        first = new Server("first");
+        second = new Server("second");
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void questChangesReachTheOtherServer() throws Exception {
+        int id = first.createQuest("Explorer");
+        sync();
+        assertEquals("Explorer", second.questName(id));
+
+        first.renameQuest(id, "Voyager");
+        sync();
+        assertEquals("Voyager", second.questName(id));
+        assertNull(second.call("cache.QuestRegistry", "getQuest", "Explorer"), "The previous name is still indexed");
+
+        assertTrue((Boolean) first.call("storage.DatabaseInterface", "deleteQuest", id));
+        sync();
+        assertNull(second.questName(id));
+    }
+
+    @Test
+    void changeDeliveredTwiceIsAppliedOnce() throws Exception {
+        int id = first.createQuest("Gatherer");
+        first.renameQuest(id, "Forager");
+        sync();
+        execute("UPDATE quests SET name = 'Silently renamed' WHERE id = " + id); // Changes the row without a new version
+
+        second.receive("first", "QUEST", Integer.toString(id), 1); // Delivered again, such as through BungeeCord
+        second.awaitDatabase();
+        assertEquals("Forager", second.questName(id), "The quest was reloaded for a version it already had");
+
+        second.receive("first", "QUEST", Integer.toString(id), 2);
+        second.awaitDatabase();
+        assertEquals("Silently renamed", second.questName(id));
+    }
+
+    @Test
+    void changeCommittedAfterALaterOneIsNotMissed() throws Exception {
+        int id = first.createQuest("Alchemist");
+        sync();
+        try (Connection connection = DriverManager.getConnection(DATABASE_URL + SETTINGS, "sa", "")) {
+            // A third server updates the quest, but commits its change after the first server appended a later one
+            connection.setAutoCommit(false);
+            execute(connection, "UPDATE quests SET name = 'Brewer', version = version + 1 WHERE id = " + id);
+            execute(connection, "INSERT INTO change_log (server_id, entity_type, entity_key, version, created_at) VALUES ('third', 'QUEST', '" + id + "', 1, " + System.currentTimeMillis() + ")");
+            int later = first.createQuest("Enchanter");
+            sync();
+            assertEquals("Enchanter", second.questName(later));
+            assertEquals("Alchemist", second.questName(id));
+
+            connection.commit();
+        }
+        sync();
+        assertEquals("Brewer", second.questName(id), "The change committed late was skipped");
+    }
+
+    @Test
+    void userChangesRefreshTheOtherServer() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Object onFirst = first.call("cache.UserCache", "load", uuid);
+        Object onSecond = second.call("cache.UserCache", "load", uuid);
+
+        Server.invoke(onSecond, "addBalance", 2L); // Not written yet
+        Server.invoke(onFirst, "addBalance", 5L);
+        first.call("cache.UserCache", "markDirty", uuid);
+        first.call("cache.UserCache", "flush");
+        sync();
+        assertEquals(7L, Server.invoke(onSecond, "getBalance"), "The balance written by the other server was not folded in");
+
+        second.call("cache.UserCache", "markDirty", uuid);
+        second.call("cache.UserCache", "flush");
+        sync();
+        assertEquals(7L, Server.invoke(onFirst, "getBalance"));
+        Object stored = first.call("storage.DatabaseWrapper", "getUser", uuid);
+        assertEquals(7L, Server.invoke(stored, "getBalance"));
+    }
+
+    /**
+     * Lets both servers publish their changes, then read the changes of each other.
+     */
+    private static void sync() throws Exception {
+        first.poll();
+        second.poll();
+        first.poll();
+        first.awaitDatabase();
+        second.awaitDatabase();
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(DATABASE_URL + SETTINGS, "sa", "")) {
+            execute(connection, sql);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.execute();
+        }
+    }
+
+    /**
+     * A server running its own copy of the plugin's storage, caches and invalidation bus, driven through reflection.
+     * Only the plugin classes are loaded again; the server API and the libraries, such as the H2 driver, are shared.
+     */
+    private static final class Server {
+
+        private static final String PACKAGE = "dev.relismdev.playlegendquests.";
+        private final ClassLoader loader;
+
+        private Server(String id) throws Exception {
+            URL classes = InvalidationBus.class.getProtectionDomain().getCodeSource().getLocation();
+            loader = new URLClassLoader(new URL[]{classes}, Server.class.getClassLoader()) {
+                @Override
+                protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                    if (!name.startsWith(PACKAGE)) {
+                        return super.loadClass(name, resolve);
+                    }
+                    synchronized (getClassLoadingLock(name)) {
+                        Class<?> loaded = findLoadedClass(name);
+                        if (loaded == null) {
+                            loaded = findClass(name); // Child first, so each server has its own static state
+                        }
+                        if (resolve) {
+                            resolveClass(loaded);
+                        }
+                        return loaded;
+                    }
+                }
+            };
+            assertTrue((Boolean) call("storage.DatabaseWrapper", "init", create("storage.backend.H2Backend", DATABASE_URL)));
+            call("storage.DatabaseExecutor", "init", 1, 100); // One thread, so waiting for a task waits for the ones queued before it
+            call("storage.UserProvisioner", "init", 0L, 100);
+            call("sync.InvalidationBus", "init", id, TimeUnit.MINUTES.toMillis(10));
+            assertTrue((Boolean) call("cache.QuestRegistry", "load"));
+        }
+
+        private void stop() throws Exception {
+            call("cache.UserCache", "shutdown");
+            call("sync.InvalidationBus", "shutdown");
+            call("storage.UserProvisioner", "shutdown");
+            call("storage.DatabaseExecutor", "shutdown");
+            call("storage.DatabaseWrapper", "disable");
+        }
+
+        /**
+         * Creates a quest through the write path of the plugin, publishing the change.
+         *
+         * @param name The name of the quest.
+         * @return The unique identifier of the quest.
+         */
+        private int createQuest(String name) throws Exception {
+            Object quest = create("models.Quest", name, "Quest created by a test", 10L, null);
+            assertTrue((Boolean) call("storage.DatabaseInterface", "createQuest", quest));
+            return (Integer) invoke(quest, "getId");
+        }
+
+        /**
+         * Renames a quest through the write path of the plugin, publishing the change.
+         *
+         * @param id   The unique identifier of the quest.
+         * @param name The new name of the quest.
+         */
+        private void renameQuest(int id, String name) throws Exception {
+            Object quest = call("cache.QuestRegistry", "getQuest", id);
+            invoke(quest, "setName", name);
+            assertTrue((Boolean) call("storage.DatabaseInterface", "updateQuest", quest));
+        }
+
+        /**
+         * Retrieves the name of a quest held by the quest registry of this server.
+         *
+         * @param id The unique identifier of the quest.
+         * @return The name of the quest, or null if the registry does not hold it.
+         */
+        private String questName(int id) throws Exception {
+            Object quest = call("cache.QuestRegistry", "getQuest", id);
+            return quest == null ? null : (String) invoke(quest, "getName");
+        }
+
+        private void poll() throws Exception {
+            call("sync.InvalidationBus", "poll");
+        }
+
+        /**
+         * Hands a change over to the bus of this server, as a transport would.
+         */
+        private void receive(String serverId, String type, String key, long version) throws Exception {
+            Class<?> typeClass = loader.loadClass(PACKAGE + "models.EntityChange$Type");
+            Object change = create("models.EntityChange", 0L, serverId, typeClass.getMethod("valueOf", String.class).invoke(null, type), key, version);
+            call("sync.InvalidationBus", "receive", change);
+        }
+
+        /**
+         * Waits for the database tasks queued on this server, such as cache reloads.
+         */
+        private void awaitDatabase() throws Exception {
+            Supplier<Boolean> done = () -> true;
+            ((CompletableFuture<?>) call("storage.DatabaseExecutor", "supply", done)).get(5, TimeUnit.SECONDS);
+        }
+
+        private Object create(String className, Object... args) throws Exception {
+            Constructor<?> constructor = find(loader.loadClass(PACKAGE + className).getDeclaredConstructors(), args);
+            return constructor.newInstance(args);
+        }
+
+        private Object call(String className, String method, Object... args) throws Exception {
+            return run(find(methods(loader.loadClass(PACKAGE + className), method), args), null, args);
+        }
+
+        private static Object invoke(Object target, String method, Object... args) throws Exception {
+            return run(find(methods(target.getClass(), method), args), target, args);
+        }
+
+        private static Object run(Method method, Object target, Object... args) throws Exception {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        private static Method[] methods(Class<?> type, String name) {
+            return Arrays.stream(type.getDeclaredMethods()).filter(method -> method.getName().equals(name)).toArray(Method[]::new);
+        }
+
+        /**
+         * Finds the overload accepting the given arguments.
+         */
+        private static <T extends Executable> T find(T[] candidates, Object[] args) {
+            for (T candidate : candidates) {
+                Class<?>[] types = candidate.getParameterTypes();
+                if (types.length != args.length) {
+                    continue;
+                }
+                boolean matches = true;
+                for (int i = 0; i < types.length && matches; i++) {
+                    matches = args[i] == null ? !types[i].isPrimitive() : wrap(types[i]).isInstance(args[i]);
+                }
+                if (matches) {
+                    candidate.setAccessible(true);
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("No overload accepts " + Arrays.toString(args));
+        }
+
+        private static Class<?> wrap(Class<?> type) {
+            if (!type.isPrimitive()) {
+                return type;
+            }
+            if (type == int.class) {
+                return Integer.class;
+            }
+            if (type == long.class) {
+                return Long.class;
+            }
+            if (type == boolean.class) {
+                return Boolean.class;
+            }
+            return type;
+        }
+    }
+}
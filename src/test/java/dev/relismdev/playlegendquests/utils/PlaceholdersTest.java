@@ -0,0 +1,94 @@
+package dev.relismdev.playlegendquests.utils;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks when the placeholder parser is called: never for text without placeholders, and once per memoized value.
+ */
+class PlaceholdersTest {
+
+    private final AtomicInteger parsed = new AtomicInteger();
+    private Player player;
+
+    @BeforeEach
+    void setUp() {
+        ServerMock server = MockBukkit.mock();
+        player = server.addPlayer("Notch");
+    }
+
+    @AfterEach
+    void tearDown() {
+        Placeholders.init(null, 0);
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void textWithoutPlaceholdersBypassesTheParser() {
+        Placeholders.init(this::parse, 0);
+
+        assertEquals("&aNo placeholder here", Placeholders.setPlaceholders(player, "&aNo placeholder here"));
+        assertEquals(0, parsed.get());
+        assertEquals("Hello Notch", Placeholders.setPlaceholders(player, "Hello %player_name%"));
+        assertEquals(1, parsed.get());
+    }
+
+    @Test
+    void nothingIsParsedWithoutAParser() {
+        Placeholders.init(null, 60000);
+
+        assertFalse(Placeholders.isEnabled());
+        assertEquals("Hello %player_name%", Placeholders.setPlaceholders(player, "Hello %player_name%"));
+        assertEquals("%player_name%", Placeholders.resolve(player, "%player_name%"));
+    }
+
+    @Test
+    void resolvedValuesAreMemoizedUntilInvalidated() {
+        Placeholders.init(this::parse, 60000);
+
+        assertEquals("Notch", Placeholders.resolve(player, "%player_name%"));
+        assertEquals("Notch", Placeholders.resolve(player, "%player_name%"));
+        assertEquals(1, parsed.get());
+
+        Placeholders.invalidate(player.getUniqueId());
+        assertEquals("Notch", Placeholders.resolve(player, "%player_name%"));
+        assertEquals(2, parsed.get());
+    }
+
+    @Test
+    void valuesAreResolvedEveryTimeWithoutMemoization() {
+        Placeholders.init(this::parse, 0);
+
+        Placeholders.resolve(player, "%player_name%");
+        Placeholders.resolve(player, "%player_name%");
+        assertEquals(2, parsed.get());
+    }
+
+    @Test
+    void compiledMessagesOnlyResolveTheirPlaceholders() {
+        Placeholders.init(this::parse, 0);
+        MessageTemplate template = MessageTemplate.compile("Welcome %player_name%, you started {0}");
+
+        assertEquals("Welcome Notch, you started Gatherer", template.render(player, "Gatherer"));
+        assertEquals(1, parsed.get());
+        assertEquals("You completed Gatherer!", MessageTemplate.compile("You completed {0}!").render(player, "Gatherer"));
+        assertEquals(1, parsed.get());
+    }
+
+    /**
+     * Stands in for PlaceholderAPI, counting its calls.
+     */
+    private String parse(Player target, String text) {
+        parsed.incrementAndGet();
+        return text.replace("%player_name%", target.getName());
+    }
+}
@@ -0,0 +1,150 @@
+package dev.relismdev.playlegendquests.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that values expire on the first advance reaching their deadline, never earlier, whichever level they are placed in.
+ */
+class TimingWheelTest {
+
+    @Test
+    void valuesExpireOnceTheirDeadlineIsReached() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 1000);
+        wheel.schedule("first", 1025);
+        wheel.schedule("second", 1031);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(1029, expired::add);
+        assertEquals(Collections.emptyList(), expired, "Values expired before their deadline");
+        wheel.advance(1030, expired::add);
+        assertEquals(Collections.singletonList("first"), expired, "The deadline of 1025 is rounded up to the tick of 1030");
+        wheel.advance(1040, expired::add);
+        assertEquals(2, expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void distantDeadlinesCascadeThroughTheLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 4, 0);
+        long[] deadlines = {3, 4, 5, 15, 16, 17, 63, 64, 65, 1000, 1_000_000};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        List<Long> expired = new ArrayList<>();
+
+        for (long now = 1; now <= 1_000_000; now++) {
+            long time = now;
+            wheel.advance(now, deadline -> {
+                assertEquals(time, deadline.longValue(), "A value expired at the wrong time");
+                expired.add(deadline);
+            });
+        }
+        assertEquals(deadlines.length, expired.size());
+    }
+
+    @Test
+    void passedDeadlinesExpireOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 1000);
+        wheel.schedule("late", 900);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(1010, expired::add);
+        assertEquals(Collections.singletonList("late"), expired);
+    }
+
+    @Test
+    void cancelledValuesNeverExpire() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        TimingWheel.Timeout<String> near = wheel.schedule("near", 20);
+        TimingWheel.Timeout<String> far = wheel.schedule("far", 500);
+        wheel.schedule("kept", 30);
+
+        assertTrue(near.cancel());
+        assertTrue(far.cancel());
+        assertFalse(far.cancel(), "A timeout was cancelled twice");
+        assertEquals(1, wheel.size());
+        List<String> expired = new ArrayList<>();
+        wheel.advance(1000, expired::add);
+        assertEquals(Collections.singletonList("kept"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void consumersCanScheduleAndCancelWhileValuesExpire() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        TimingWheel.Timeout<String> sibling = wheel.schedule("sibling", 20);
+        wheel.schedule("first", 20);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(20, value -> {
+            expired.add(value);
+            if (sibling.cancel()) {
+                wheel.schedule("rescheduled", 40);
+            }
+        });
+        assertEquals(1, expired.size(), "The cancelled sibling expired anyway");
+        wheel.advance(40, expired::add);
+        assertEquals("rescheduled", expired.get(1));
+    }
+
+    @Test
+    void randomSchedulesExpireOnTimeAndOnce() {
+        Random random = new Random(42);
+        TimingWheel<Integer> wheel = new TimingWheel<>(50, 8, 0);
+        List<TimingWheel.Timeout<Integer>> timeouts = new ArrayList<>();
+        Map<Integer, Long> expiredAt = new HashMap<>();
+        Set<Integer> cancelled = new HashSet<>();
+        long now = 0;
+        for (int i = 0; i < 20_000; i++) {
+            long deadline = now + random.nextInt(random.nextBoolean() ? 1_000 : 10_000_000);
+            timeouts.add(wheel.schedule(i, deadline));
+            if (random.nextInt(10) == 0) {
+                int index = random.nextInt(timeouts.size());
+                if (timeouts.get(index).cancel()) {
+                    cancelled.add(index);
+                }
+            }
+            now += random.nextInt(100);
+            advance(wheel, now, expiredAt);
+        }
+        long end = now;
+        advance(wheel, end + 20_000_000, expiredAt);
+
+        assertEquals(0, wheel.size());
+        assertEquals(timeouts.size() - cancelled.size(), expiredAt.size());
+        for (Map.Entry<Integer, Long> entry : expiredAt.entrySet()) {
+            long deadline = timeouts.get(entry.getKey()).getDeadline();
+            assertFalse(cancelled.contains(entry.getKey()), "A cancelled value expired");
+            assertTrue(entry.getValue() >= deadline, "A value expired early");
+            if (deadline <= end) {
+                // Rounded up to the next tick, then expired by the first advance past it
+                assertTrue(entry.getValue() - deadline < 50 + 100, "A value expired late");
+            }
+        }
+    }
+
+    /**
+     * Advances a wheel, recording when each value expires.
+     *
+     * @param wheel     The wheel to advance.
+     * @param now       The time to advance to.
+     * @param expiredAt The time each value expired at, by value.
+     */
+    private static void advance(TimingWheel<Integer> wheel, long now, Map<Integer, Long> expiredAt) {
+        wheel.advance(now, value -> assertNull(expiredAt.put(value, now), "A value expired twice"));
+    }
+}